@@ -0,0 +1,142 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据库：按行数、列数（或表数）和固定的随机种子生成，相同参数得到完全相同的内容，
+ * 因此不同提交上的测试结果可以直接比较。生成的文件保存在bench.dir（默认target/bench-data）中，
+ * 已存在时直接复用。
+ */
+public final class BenchmarkData {
+    private static final long SEED = 20240527L;
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "数据库", "编辑器", "查询", "索引",
+            "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit"};
+
+    private BenchmarkData() {
+    }
+
+    public static File directory() {
+        File dir = new File(System.getProperty("bench.dir", "target/bench-data"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IllegalStateException("无法创建目录: " + dir.getAbsolutePath());
+        }
+        return dir;
+    }
+
+    public static Connection open(File file) throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+    }
+
+    // 一张名为data的表，列按INTEGER、REAL、TEXT、短TEXT循环，约5%的值为NULL
+    public static File table(int rows, int columns) throws SQLException {
+        File file = new File(directory(), "data-" + rows + "x" + columns + ".db");
+        if (file.exists()) {
+            return file;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        temp.delete();
+        Random random = new Random(SEED);
+        Connection connection = open(temp);
+        try {
+            Statement stmt = connection.createStatement();
+            StringBuilder create = new StringBuilder("CREATE TABLE data (id INTEGER PRIMARY KEY");
+            StringBuilder insert = new StringBuilder("INSERT INTO data VALUES (?");
+            for (int c = 0; c < columns; c++) {
+                create.append(", c").append(c).append(' ').append(typeOf(c));
+                insert.append(", ?");
+            }
+            stmt.execute(create.append(')').toString());
+            stmt.close();
+
+            connection.setAutoCommit(false);
+            PreparedStatement ps = connection.prepareStatement(insert.append(')').toString());
+            for (int r = 1; r <= rows; r++) {
+                ps.setInt(1, r);
+                for (int c = 0; c < columns; c++) {
+                    ps.setObject(c + 2, random.nextInt(20) == 0 ? null : value(random, c));
+                }
+                ps.addBatch();
+                if (r % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            ps.close();
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IllegalStateException("无法重命名: " + temp.getAbsolutePath());
+        }
+        return file;
+    }
+
+    // tables张表，每张表columns列、一个索引和少量数据，用于测量结构读取
+    public static File schema(int tables, int columns) throws SQLException {
+        File file = new File(directory(), "schema-" + tables + "x" + columns + ".db");
+        if (file.exists()) {
+            return file;
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        temp.delete();
+        Connection connection = open(temp);
+        try {
+            connection.setAutoCommit(false);
+            Statement stmt = connection.createStatement();
+            for (int t = 0; t < tables; t++) {
+                StringBuilder create = new StringBuilder("CREATE TABLE t" + t + " (id INTEGER PRIMARY KEY");
+                for (int c = 0; c < columns; c++) {
+                    create.append(", c").append(c).append(' ').append(typeOf(c))
+                            .append(c == 0 ? " NOT NULL" : "").append(c == 1 ? " DEFAULT 0" : "");
+                }
+                stmt.execute(create.append(')').toString());
+                stmt.execute("CREATE INDEX t" + t + "_c0 ON t" + t + " (c0, c1)");
+                stmt.execute("INSERT INTO t" + t + " (c0) VALUES (1), (2), (3)");
+            }
+            stmt.close();
+            connection.commit();
+        } finally {
+            connection.close();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IllegalStateException("无法重命名: " + temp.getAbsolutePath());
+        }
+        return file;
+    }
+
+    private static String typeOf(int column) {
+        switch (column % 4) {
+            case 0:
+                return "INTEGER";
+            case 1:
+                return "REAL";
+            default:
+                return "TEXT";
+        }
+    }
+
+    private static Object value(Random random, int column) {
+        switch (column % 4) {
+            case 0:
+                return random.nextInt(1000000);
+            case 1:
+                return random.nextDouble() * 10000;
+            case 2:
+                StringBuilder text = new StringBuilder();
+                int words = 2 + random.nextInt(12);
+                for (int i = 0; i < words; i++) {
+                    text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                }
+                return text.toString();
+            default:
+                return WORDS[random.nextInt(WORDS.length)];
+        }
+    }
+}
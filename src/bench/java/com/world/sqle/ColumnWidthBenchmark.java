@@ -0,0 +1,62 @@
+package com.world.sqle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JTable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 显示查询结果后自动调整列宽（ColumnWidthSizer.resizeAll）。每次使用新的ColumnWidthSizer，
+ * 测量的是第一次显示结果时没有宽度缓存的情况。在无界面模式下运行，不需要显示器。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ColumnWidthBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int columns;
+
+    private JTable table;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        Connection connection = BenchmarkData.open(BenchmarkData.table(rows, columns));
+        try {
+            Statement stmt = connection.createStatement();
+            ResultSet resultSet = stmt.executeQuery("SELECT * FROM data");
+            table = new JTable(new ColumnarTableModel(ColumnarResultStore.read(resultSet, -1)));
+            resultSet.close();
+            stmt.close();
+        } finally {
+            connection.close();
+        }
+    }
+
+    @Benchmark
+    public JTable resizeAll() {
+        ColumnWidthSizer sizer = new ColumnWidthSizer(table);
+        sizer.resizeAll();
+        return table;
+    }
+}
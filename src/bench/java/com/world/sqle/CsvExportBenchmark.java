@@ -0,0 +1,95 @@
+package com.world.sqle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.table.TableModel;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * exportResults的两条CSV导出路径：分页结果重新执行查询，从ResultSet流式写出；
+ * 已完整加载的结果从内存中的表格模型写出。输出写入临时文件。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvExportBenchmark {
+    @Param({"100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int columns;
+
+    private Connection connection;
+    private TableModel model;
+    private File output;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException, IOException {
+        connection = BenchmarkData.open(BenchmarkData.table(rows, columns));
+        Statement stmt = connection.createStatement();
+        ResultSet resultSet = stmt.executeQuery("SELECT * FROM data");
+        model = new ColumnarTableModel(ColumnarResultStore.read(resultSet, -1));
+        resultSet.close();
+        stmt.close();
+        output = File.createTempFile("bench-export", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+        output.delete();
+    }
+
+    @Benchmark
+    public long fromResultSet() throws SQLException, IOException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("SELECT * FROM data");
+            try {
+                return export(ResultExporter.fromResultSet(resultSet));
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    @Benchmark
+    public long fromTableModel() throws SQLException, IOException {
+        return export(ResultExporter.fromTableModel(model));
+    }
+
+    private long export(ResultExporter.Source source) throws SQLException, IOException {
+        Utf8ChannelWriter writer = new Utf8ChannelWriter(FileChannel.open(output.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+        try {
+            return new ResultExporter(null).export(source, writer, ResultExporter.Format.CSV);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.world.sqle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * executeQuery构建结果表格模型的两条路径：
+ * 可分页的SELECT只读取第一页（PagedResultTableModel.open，总行数另行统计），其他语句把全部结果读入列存（ColumnarResultStore）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryModelBenchmark {
+    private static final String SQL = "SELECT * FROM data";
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int columns;
+
+    private Connection connection;
+    private PreparedStatementCache statementCache;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        connection = BenchmarkData.open(BenchmarkData.table(rows, columns));
+        statementCache = new PreparedStatementCache(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        statementCache.clear();
+        connection.close();
+    }
+
+    @Benchmark
+    public PagedResultTableModel pagedFirstPage() throws SQLException {
+        PagedResultTableModel model = PagedResultTableModel.open(null, statementCache, SQL, null, DIRECT, null);
+        model.dispose();
+        return model;
+    }
+
+    @Benchmark
+    public ColumnarTableModel columnarFullResult() throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery(SQL);
+            try {
+                return new ColumnarTableModel(ColumnarResultStore.read(resultSet, -1));
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+}
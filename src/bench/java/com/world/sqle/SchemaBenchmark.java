@@ -0,0 +1,62 @@
+package com.world.sqle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * refreshTableList和viewTableStructure读取数据库结构：第一次读取全部表、列和索引（cold），
+ * 以及结构没有变化时只检查schema_version（warm）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SchemaBenchmark {
+    @Param({"100", "1000"})
+    public int tables;
+
+    @Param({"10"})
+    public int columns;
+
+    private Connection connection;
+    private SchemaCache warmCache;
+
+    @Setup(Level.Trial)
+    public void open() throws SQLException {
+        connection = BenchmarkData.open(BenchmarkData.schema(tables, columns));
+        warmCache = new SchemaCache();
+        warmCache.refresh(connection);
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public SchemaCache.Snapshot coldLoad() throws SQLException {
+        return new SchemaCache().refresh(connection);
+    }
+
+    @Benchmark
+    public SchemaCache.Snapshot warmRefresh() throws SQLException {
+        return warmCache.refresh(connection);
+    }
+}
@@ -0,0 +1,293 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 带类型的二进制列存导出格式（.sqlb），所有整数和浮点数均为小端序。
+ *
+ * <pre>
+ * 文件头: "SQLB" 版本号(int32) 列数(int32) 每列[名称长度(int32) 名称UTF-8 java.sql.Types类型(int32)]
+ * 行组:   行数(int32，大于0) 行组数据字节数(int64) 每列[编码(byte) NULL位图((行数+7)/8字节) 列数据]
+ * 结尾:   行数为0的行组头(int32)
+ * </pre>
+ *
+ * 列数据按编码区分：LONG为int64数组，DOUBLE为float64数组，TEXT为(行数+1)个int32偏移量加UTF-8字节，
+ * MIXED为每个非NULL值的类型标记(byte)和值，NULL列没有数据。
+ */
+public final class BinaryResultFormat {
+    public static final String EXTENSION = "sqlb";
+    // 每个行组的行数
+    public static final int GROUP_SIZE = 65536;
+
+    private static final byte[] MAGIC = {'S', 'Q', 'L', 'B'};
+    private static final int VERSION = 1;
+
+    private static final byte ENCODING_NULL = 0;
+    private static final byte ENCODING_LONG = 1;
+    private static final byte ENCODING_DOUBLE = 2;
+    private static final byte ENCODING_TEXT = 3;
+    private static final byte ENCODING_MIXED = 4;
+
+    private static final byte VALUE_LONG = 1;
+    private static final byte VALUE_DOUBLE = 2;
+    private static final byte VALUE_TEXT = 3;
+    private static final byte VALUE_BLOB = 4;
+
+    private BinaryResultFormat() {
+    }
+
+    public static void writeHeader(Utf8ChannelWriter writer, String[] names, int[] types) throws IOException {
+        writer.writeBytes(MAGIC, 0, MAGIC.length);
+        writer.writeInt(VERSION);
+        writer.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            writer.writeInt(name.length);
+            writer.writeBytes(name, 0, name.length);
+            writer.writeInt(types[i]);
+        }
+    }
+
+    public static void writeEnd(Utf8ChannelWriter writer) throws IOException {
+        writer.writeInt(0);
+    }
+
+    // 把一个行组的数据按列编码后写出
+    public static void writeGroup(Utf8ChannelWriter writer, ColumnarResultStore group) throws IOException {
+        int rowCount = group.getRowCount();
+        if (rowCount == 0) {
+            return;
+        }
+        byte[][] columns = new byte[group.getColumnCount()][];
+        long bodyLength = 0;
+        for (int column = 0; column < columns.length; column++) {
+            columns[column] = encodeColumn(group, column);
+            bodyLength += columns[column].length;
+        }
+        writer.writeInt(rowCount);
+        writer.writeLong(bodyLength);
+        for (byte[] column : columns) {
+            writer.writeBytes(column, 0, column.length);
+        }
+    }
+
+    private static byte[] encodeColumn(ColumnarResultStore group, int column) {
+        int rowCount = group.getRowCount();
+        String storage = group.getStorageType(column);
+        byte[] nulls = new byte[(rowCount + 7) / 8];
+        for (int row = 0; row < rowCount; row++) {
+            if (group.isNull(row, column)) {
+                nulls[row >>> 3] |= 1 << (row & 7);
+            }
+        }
+
+        if ("LONG".equals(storage) || "DOUBLE".equals(storage)) {
+            boolean isLong = "LONG".equals(storage);
+            ByteBuffer buffer = allocate(1 + nulls.length + 8L * rowCount);
+            buffer.put(isLong ? ENCODING_LONG : ENCODING_DOUBLE).put(nulls);
+            for (int row = 0; row < rowCount; row++) {
+                boolean isNull = group.isNull(row, column);
+                if (isLong) {
+                    buffer.putLong(isNull ? 0 : group.getLong(row, column));
+                } else {
+                    buffer.putDouble(isNull ? 0 : group.getDouble(row, column));
+                }
+            }
+            return buffer.array();
+        }
+
+        if ("TEXT".equals(storage)) {
+            byte[][] values = new byte[rowCount][];
+            long textLength = 0;
+            for (int row = 0; row < rowCount; row++) {
+                Object value = group.getValue(row, column);
+                values[row] = value == null ? new byte[0] : ((String) value).getBytes(StandardCharsets.UTF_8);
+                textLength += values[row].length;
+            }
+            ByteBuffer buffer = allocate(1 + nulls.length + 4L * (rowCount + 1) + textLength);
+            buffer.put(ENCODING_TEXT).put(nulls);
+            int offset = 0;
+            buffer.putInt(0);
+            for (byte[] value : values) {
+                offset += value.length;
+                buffer.putInt(offset);
+            }
+            for (byte[] value : values) {
+                buffer.put(value);
+            }
+            return buffer.array();
+        }
+
+        if ("NULL".equals(storage)) {
+            ByteBuffer buffer = allocate(1 + nulls.length);
+            buffer.put(ENCODING_NULL).put(nulls);
+            return buffer.array();
+        }
+
+        // 混合类型或BLOB：每个值带类型标记
+        byte[][] payloads = new byte[rowCount][];
+        long length = 1 + nulls.length;
+        for (int row = 0; row < rowCount; row++) {
+            Object value = group.getValue(row, column);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Number) {
+                length += 9;
+            } else {
+                payloads[row] = value instanceof byte[] ? (byte[]) value : value.toString().getBytes(StandardCharsets.UTF_8);
+                length += 5 + payloads[row].length;
+            }
+        }
+        ByteBuffer buffer = allocate(length);
+        buffer.put(ENCODING_MIXED).put(nulls);
+        for (int row = 0; row < rowCount; row++) {
+            Object value = group.getValue(row, column);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Double || value instanceof Float) {
+                buffer.put(VALUE_DOUBLE).putDouble(((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                buffer.put(VALUE_LONG).putLong(((Number) value).longValue());
+            } else {
+                buffer.put(value instanceof byte[] ? VALUE_BLOB : VALUE_TEXT).putInt(payloads[row].length).put(payloads[row]);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static ByteBuffer allocate(long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalStateException("行组过大: " + length + " 字节");
+        }
+        return ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // 通过内存映射读取整个文件，数值和TEXT列从映射的缓冲区整块复制到ColumnarResultStore的列数组中
+    public static ColumnarResultStore read(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = map(channel, 0, Math.min(channel.size(), 1 << 20));
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) {
+                throw new IOException("不是二进制结果文件: " + file.getName());
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的文件版本: " + version);
+            }
+            int columnCount = header.getInt();
+            String[] names = new String[columnCount];
+            int[] types = new int[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[header.getInt()];
+                header.get(name);
+                names[i] = new String(name, StandardCharsets.UTF_8);
+                types[i] = header.getInt();
+            }
+            long position = header.position();
+
+            ColumnarResultStore store = new ColumnarResultStore(names, types);
+            while (true) {
+                ByteBuffer groupHeader = map(channel, position, 4);
+                int rowCount = groupHeader.getInt();
+                if (rowCount == 0) {
+                    break;
+                }
+                groupHeader = map(channel, position + 4, 8);
+                long bodyLength = groupHeader.getLong();
+                ByteBuffer body = map(channel, position + 12, bodyLength);
+                for (int column = 0; column < columnCount; column++) {
+                    decodeColumn(body, rowCount, store, column);
+                }
+                store.endGroup(rowCount);
+                position += 12 + bodyLength;
+            }
+            return store;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length) throws IOException {
+        if (position + length > channel.size()) {
+            throw new IOException("文件不完整");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    // 从body的当前位置切出length字节（小端序），body随之前进
+    private static ByteBuffer take(ByteBuffer body, long length) throws IOException {
+        if (length > body.remaining()) {
+            throw new IOException("行组数据不完整");
+        }
+        ByteBuffer slice = body.slice().order(ByteOrder.LITTLE_ENDIAN);
+        // 转为Buffer调用，编译后的代码在Java 8上也能运行
+        ((Buffer) slice).limit((int) length);
+        ((Buffer) body).position(body.position() + (int) length);
+        return slice;
+    }
+
+    private static void decodeColumn(ByteBuffer body, int rowCount, ColumnarResultStore store, int column) throws IOException {
+        byte encoding = body.get();
+        ByteBuffer nulls = take(body, (rowCount + 7) / 8);
+        switch (encoding) {
+            case ENCODING_NULL:
+                for (int row = 0; row < rowCount; row++) {
+                    store.appendValue(column, row, null);
+                }
+                break;
+            case ENCODING_LONG:
+                store.appendLongs(column, take(body, 8L * rowCount).asLongBuffer(), nulls, rowCount);
+                break;
+            case ENCODING_DOUBLE:
+                store.appendDoubles(column, take(body, 8L * rowCount).asDoubleBuffer(), nulls, rowCount);
+                break;
+            case ENCODING_TEXT: {
+                IntBuffer offsets = take(body, 4L * (rowCount + 1)).asIntBuffer();
+                store.appendUtf8(column, offsets, take(body, offsets.get(rowCount)), nulls, rowCount);
+                break;
+            }
+            case ENCODING_MIXED:
+                // 每个值的类型不同，只能逐个创建对象
+                for (int row = 0; row < rowCount; row++) {
+                    if (isNull(nulls, row)) {
+                        store.appendValue(column, row, null);
+                        continue;
+                    }
+                    byte type = body.get();
+                    Object value;
+                    if (type == VALUE_LONG) {
+                        value = body.getLong();
+                    } else if (type == VALUE_DOUBLE) {
+                        value = body.getDouble();
+                    } else {
+                        byte[] bytes = new byte[body.getInt()];
+                        body.get(bytes);
+                        value = type == VALUE_BLOB ? bytes : new String(bytes, StandardCharsets.UTF_8);
+                    }
+                    store.appendValue(column, row, value);
+                }
+                break;
+            default:
+                throw new IOException("未知的列编码: " + encoding);
+        }
+    }
+
+    private static boolean isNull(ByteBuffer nulls, int row) {
+        return (nulls.get(row >>> 3) & (1 << (row & 7))) != 0;
+    }
+}
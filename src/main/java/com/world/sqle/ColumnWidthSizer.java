@@ -0,0 +1,189 @@
+package com.world.sqle;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+import javax.swing.table.TableModel;
+import java.awt.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 按抽样结果调整表格列宽。
+ * 只测量表头、开头和结尾的若干行以及随机抽取的行，用缓存的FontMetrics计算文本宽度，
+ * 不为每个单元格创建渲染组件；分页结果加载出新的数据页时只会增宽相应的列。
+ */
+public class ColumnWidthSizer implements TableModelListener {
+    private static final int HEAD_ROWS = 50;
+    private static final int TAIL_ROWS = 50;
+    private static final int RANDOM_ROWS = 100;
+    // 新加载的数据页中最多测量的行数
+    private static final int INCREMENTAL_ROWS = 100;
+    // 最大宽度限制为500像素
+    private static final int MAX_WIDTH = 500;
+    // 超过该长度的文本一定会达到最大宽度，不再完整测量
+    private static final int MAX_MEASURED_CHARS = 200;
+    private static final int MAX_CACHED_WIDTHS = 10000;
+    // 单元格渲染器默认边框左右各1像素
+    private static final int CELL_INSETS = 2;
+
+    private final JTable table;
+    private final Random random = new Random();
+    private final Map<String, Integer> widthCache = new HashMap<>();
+    private FontMetrics fontMetrics;
+    private TableModel model;
+
+    public ColumnWidthSizer(JTable table) {
+        this.table = table;
+    }
+
+    // 监听新模型的行更新事件，用于增量调整列宽
+    public void attach(TableModel newModel) {
+        if (model != null) {
+            model.removeTableModelListener(this);
+        }
+        model = newModel;
+        if (model != null) {
+            model.addTableModelListener(this);
+        }
+    }
+
+    // 根据表头和抽样行重新计算所有列的宽度
+    public void resizeAll() {
+        int rowCount = table.getRowCount();
+        int[] sample = sampleRows(rowCount);
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = table.convertRowIndexToModel(sample[i]);
+        }
+        for (int column = 0; column < table.getColumnCount(); column++) {
+            TableColumn tableColumn = table.getColumnModel().getColumn(column);
+            int width = Math.max(tableColumn.getMinWidth(), headerWidth(tableColumn, column));
+            width = Math.max(width, measureRows(column, sample, sample.length));
+            tableColumn.setPreferredWidth(Math.min(width, MAX_WIDTH));
+        }
+    }
+
+    @Override
+    public void tableChanged(TableModelEvent e) {
+        if (e.getType() != TableModelEvent.UPDATE || e.getFirstRow() < 0
+                || e.getLastRow() == Integer.MAX_VALUE || e.getColumn() != TableModelEvent.ALL_COLUMNS) {
+            return;
+        }
+        rowsLoaded(e.getFirstRow(), e.getLastRow());
+    }
+
+    // 新的数据行加载后只增宽，不缩窄，避免滚动时列宽来回跳动
+    public void rowsLoaded(int firstRow, int lastRow) {
+        int count = Math.min(INCREMENTAL_ROWS, lastRow - firstRow + 1);
+        if (count <= 0) {
+            return;
+        }
+        int[] rows = new int[count];
+        int step = Math.max(1, (lastRow - firstRow + 1) / count);
+        for (int i = 0; i < count; i++) {
+            rows[i] = Math.min(lastRow, firstRow + i * step);
+        }
+        for (int column = 0; column < table.getColumnCount(); column++) {
+            TableColumn tableColumn = table.getColumnModel().getColumn(column);
+            int current = tableColumn.getPreferredWidth();
+            if (current >= MAX_WIDTH) {
+                continue;
+            }
+            int width = measureRows(column, rows, rows.length);
+            if (width > current) {
+                tableColumn.setPreferredWidth(Math.min(width, MAX_WIDTH));
+            }
+        }
+    }
+
+    // 抽样：开头N行、结尾N行以及随机行
+    private int[] sampleRows(int rowCount) {
+        if (rowCount <= HEAD_ROWS + TAIL_ROWS + RANDOM_ROWS) {
+            int[] rows = new int[rowCount];
+            for (int i = 0; i < rowCount; i++) {
+                rows[i] = i;
+            }
+            return rows;
+        }
+        int[] rows = new int[HEAD_ROWS + TAIL_ROWS + RANDOM_ROWS];
+        int n = 0;
+        for (int i = 0; i < HEAD_ROWS; i++) {
+            rows[n++] = i;
+        }
+        for (int i = rowCount - TAIL_ROWS; i < rowCount; i++) {
+            rows[n++] = i;
+        }
+        for (int i = 0; i < RANDOM_ROWS; i++) {
+            rows[n++] = HEAD_ROWS + random.nextInt(rowCount - HEAD_ROWS - TAIL_ROWS);
+        }
+        return rows;
+    }
+
+    // rows为模型行号
+    private int measureRows(int column, int[] rows, int count) {
+        FontMetrics metrics = currentFontMetrics();
+        int spacing = table.getIntercellSpacing().width + CELL_INSETS;
+        int modelColumn = table.convertColumnIndexToModel(column);
+        TableModel tableModel = table.getModel();
+        int width = 0;
+        for (int i = 0; i < count; i++) {
+            Object value = peekValue(tableModel, rows[i], modelColumn);
+            if (value == null || value == PagedResultTableModel.LOADING) {
+                continue;
+            }
+            width = Math.max(width, textWidth(metrics, value.toString()) + spacing);
+            if (width >= MAX_WIDTH) {
+                return MAX_WIDTH;
+            }
+        }
+        return width;
+    }
+
+    // 分页模型中未加载的行不触发加载
+    private static Object peekValue(TableModel tableModel, int row, int column) {
+        if (tableModel instanceof PagedResultTableModel) {
+            return ((PagedResultTableModel) tableModel).peekValueAt(row, column);
+        }
+        return tableModel.getValueAt(row, column);
+    }
+
+    private int headerWidth(TableColumn tableColumn, int column) {
+        TableCellRenderer renderer = tableColumn.getHeaderRenderer();
+        if (renderer == null && table.getTableHeader() != null) {
+            renderer = table.getTableHeader().getDefaultRenderer();
+        }
+        if (renderer == null) {
+            return 0;
+        }
+        Component c = renderer.getTableCellRendererComponent(table, tableColumn.getHeaderValue(), false, false, -1, column);
+        return c.getPreferredSize().width;
+    }
+
+    private int textWidth(FontMetrics metrics, String text) {
+        if (text.length() > MAX_MEASURED_CHARS) {
+            text = text.substring(0, MAX_MEASURED_CHARS);
+        }
+        Integer cached = widthCache.get(text);
+        if (cached != null) {
+            return cached;
+        }
+        int width = metrics.stringWidth(text);
+        if (widthCache.size() >= MAX_CACHED_WIDTHS) {
+            widthCache.clear();
+        }
+        widthCache.put(text, width);
+        return width;
+    }
+
+    private FontMetrics currentFontMetrics() {
+        Font font = table.getFont();
+        if (fontMetrics == null || !fontMetrics.getFont().equals(font)) {
+            fontMetrics = table.getFontMetrics(font);
+            widthCache.clear();
+        }
+        return fontMetrics;
+    }
+}
@@ -0,0 +1,803 @@
+package com.world.sqle;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.*;
+
+/**
+ * 按列存储的查询结果。
+ * INTEGER/REAL列使用long[]/double[]保存，TEXT列先做字典编码，重复值过少时改为紧凑的UTF-8字节数组，
+ * NULL值记录在位图中。列的初始类型来自ResultSetMetaData，遇到与声明类型不符的值时退化为对象列。
+ */
+public class ColumnarResultStore {
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String[] columnNames;
+    private final Column[] columns;
+    private int rowCount;
+
+    public ColumnarResultStore(String[] columnNames, int[] sqlTypes) {
+        this(columnNames, sqlTypes, INITIAL_CAPACITY);
+    }
+
+    // capacity为预计行数，数组按需增长
+    public ColumnarResultStore(String[] columnNames, int[] sqlTypes, int capacity) {
+        this.columnNames = columnNames;
+        this.columns = new Column[columnNames.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Column.forSqlType(sqlTypes[i], Math.max(64, capacity));
+        }
+    }
+
+    // 读取结果集中的全部行（maxRows小于0表示不限制）
+    public static ColumnarResultStore read(ResultSet resultSet, int maxRows) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        int columnCount = metaData.getColumnCount();
+        String[] names = new String[columnCount];
+        int[] types = new int[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            names[i] = metaData.getColumnName(i + 1);
+            types[i] = metaData.getColumnType(i + 1);
+        }
+
+        int capacity = maxRows < 0 ? INITIAL_CAPACITY : Math.min(maxRows, INITIAL_CAPACITY);
+        ColumnarResultStore store = new ColumnarResultStore(names, types, capacity);
+        while ((maxRows < 0 || store.rowCount < maxRows) && resultSet.next()) {
+            store.appendRow(resultSet);
+        }
+        return store;
+    }
+
+    public void appendRow(ResultSet resultSet) throws SQLException {
+        for (int i = 0; i < columns.length; i++) {
+            append(i, rowCount, resultSet.getObject(i + 1));
+        }
+        rowCount++;
+    }
+
+    public void appendRow(Object[] values) {
+        for (int i = 0; i < columns.length; i++) {
+            append(i, rowCount, values[i]);
+        }
+        rowCount++;
+    }
+
+    private void append(int column, int row, Object value) {
+        if (value != null && columns[column] instanceof UntypedColumn) {
+            // 声明类型未知的列（表达式、聚合函数）按第一个非NULL值确定存储方式
+            columns[column] = ((UntypedColumn) columns[column]).toTypedColumn(value, row);
+        }
+        if (!columns[column].append(row, value)) {
+            // 值与列类型不符（SQLite列可以保存任意类型），退化为对象列
+            columns[column] = columns[column].toObjectColumn(row);
+            columns[column].append(row, value);
+        }
+    }
+
+    // ---------- 按列追加一个行组（BinaryResultFormat从内存映射的文件直接解码） ----------
+    // 每列调用一次appendXxx追加rows行，全部列追加后调用endGroup(rows)。nulls是NULL位图，第r位为1表示第r行为NULL。
+    // 列的存储方式与数据一致或尚未确定时整块复制到long[]、double[]或UTF-8字节数组，不逐行创建对象；否则逐个值追加
+
+    public void appendLongs(int column, LongBuffer values, ByteBuffer nulls, int rows) {
+        if (columns[column] instanceof UntypedColumn) {
+            columns[column] = ((UntypedColumn) columns[column]).adopt(new LongColumn(Math.max(64, rowCount + rows)));
+        }
+        if (columns[column] instanceof LongColumn) {
+            ((LongColumn) columns[column]).appendAll(rowCount, values, rows);
+            columns[column].setNulls(rowCount, nulls, rows);
+            return;
+        }
+        for (int r = 0; r < rows; r++) {
+            append(column, rowCount + r, isNull(nulls, r) ? null : Long.valueOf(values.get(r)));
+        }
+    }
+
+    public void appendDoubles(int column, DoubleBuffer values, ByteBuffer nulls, int rows) {
+        if (columns[column] instanceof UntypedColumn) {
+            columns[column] = ((UntypedColumn) columns[column]).adopt(new DoubleColumn(Math.max(64, rowCount + rows)));
+        }
+        if (columns[column] instanceof DoubleColumn) {
+            ((DoubleColumn) columns[column]).appendAll(rowCount, values, rows);
+            columns[column].setNulls(rowCount, nulls, rows);
+            return;
+        }
+        for (int r = 0; r < rows; r++) {
+            append(column, rowCount + r, isNull(nulls, r) ? null : Double.valueOf(values.get(r)));
+        }
+    }
+
+    // offsets为rows + 1个偏移量，第r行的内容是text中[offsets[r], offsets[r + 1])的UTF-8字节
+    public void appendUtf8(int column, IntBuffer offsets, ByteBuffer text, ByteBuffer nulls, int rows) {
+        if (columns[column] instanceof UntypedColumn) {
+            columns[column] = ((UntypedColumn) columns[column]).adopt(new TextColumn(Math.max(64, rowCount + rows)));
+        }
+        if (columns[column] instanceof TextColumn) {
+            ((TextColumn) columns[column]).appendAll(rowCount, offsets, text, rows);
+            columns[column].setNulls(rowCount, nulls, rows);
+            return;
+        }
+        byte[] bytes = new byte[offsets.get(rows) - offsets.get(0)];
+        text.get(bytes);
+        for (int r = 0; r < rows; r++) {
+            int start = offsets.get(r) - offsets.get(0);
+            append(column, rowCount + r, isNull(nulls, r) ? null
+                    : new String(bytes, start, offsets.get(r + 1) - offsets.get(r), StandardCharsets.UTF_8));
+        }
+    }
+
+    // 行组中第row行的值，用于NULL列和混合类型的列
+    public void appendValue(int column, int row, Object value) {
+        append(column, rowCount + row, value);
+    }
+
+    public void endGroup(int rows) {
+        rowCount += rows;
+    }
+
+    private static boolean isNull(ByteBuffer nulls, int row) {
+        return (nulls.get(row >>> 3) & (1 << (row & 7))) != 0;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    public String[] getColumnNames() {
+        return columnNames.clone();
+    }
+
+    public Object getValue(int row, int column) {
+        return columns[column].get(row);
+    }
+
+    public boolean isNull(int row, int column) {
+        return columns[column].isNull(row);
+    }
+
+    // 列的存储方式：LONG、DOUBLE、TEXT、OBJECT
+    public String getStorageType(int column) {
+        return columns[column].storageType();
+    }
+
+    // 数值列直接返回原始值，避免装箱（调用前需确认列类型且值不为NULL）
+    public long getLong(int row, int column) {
+        return ((LongColumn) columns[column]).values[row];
+    }
+
+    public double getDouble(int row, int column) {
+        return ((DoubleColumn) columns[column]).values[row];
+    }
+
+    // 估算占用的堆内存字节数
+    public long estimatedBytes() {
+        long bytes = 64;
+        for (Column column : columns) {
+            bytes += column.estimatedBytes(rowCount);
+        }
+        return bytes;
+    }
+
+    /**
+     * 按某一列对给定的行排序，返回新的行号数组；NULL排在最前（降序时最后），值相同的行保持原来的先后顺序。
+     * 先把列值换算为名次（数值列对long[]/double[]副本、TEXT列对字典或解码后的字符串并行排序），
+     * 再把"名次 << 32 | 位置"打包为long并行排序，数值列整个过程不装箱，也不逐对调用Comparator。
+     */
+    public int[] sortRows(final int[] rows, int column, boolean ascending) {
+        final int[] ranks = ranks(rows, columns[column]);
+        int maxRank = 0;
+        for (int rank : ranks) {
+            maxRank = Math.max(maxRank, rank);
+        }
+        final int top = ascending ? 0 : maxRank;
+        long[] keys = new long[rows.length];
+        Arrays.parallelSetAll(keys, new java.util.function.IntToLongFunction() {
+            @Override
+            public long applyAsLong(int i) {
+                return (long) Math.abs(top - ranks[i]) << 32 | i;
+            }
+        });
+        Arrays.parallelSort(keys);
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < keys.length; i++) {
+            sorted[i] = rows[(int) keys[i]];
+        }
+        return sorted;
+    }
+
+    // 每一行的值在该列全部不同值中的名次，NULL为0，其余从1开始
+    private static int[] ranks(final int[] rows, final Column column) {
+        final int[] ranks = new int[rows.length];
+        if (column instanceof LongColumn) {
+            final long[] values = ((LongColumn) column).values;
+            long[] distinct = new long[rows.length];
+            int count = 0;
+            for (int row : rows) {
+                if (!column.isNull(row)) {
+                    distinct[count++] = values[row];
+                }
+            }
+            Arrays.parallelSort(distinct, 0, count);
+            final long[] sorted = Arrays.copyOf(distinct, dedupe(distinct, count));
+            Arrays.parallelSetAll(ranks, new java.util.function.IntUnaryOperator() {
+                @Override
+                public int applyAsInt(int i) {
+                    return column.isNull(rows[i]) ? 0 : Arrays.binarySearch(sorted, values[rows[i]]) + 1;
+                }
+            });
+        } else if (column instanceof DoubleColumn) {
+            final double[] values = ((DoubleColumn) column).values;
+            double[] distinct = new double[rows.length];
+            int count = 0;
+            for (int row : rows) {
+                if (!column.isNull(row)) {
+                    distinct[count++] = values[row];
+                }
+            }
+            Arrays.parallelSort(distinct, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || Double.compare(distinct[unique - 1], distinct[i]) != 0) {
+                    distinct[unique++] = distinct[i];
+                }
+            }
+            final double[] sorted = Arrays.copyOf(distinct, unique);
+            Arrays.parallelSetAll(ranks, new java.util.function.IntUnaryOperator() {
+                @Override
+                public int applyAsInt(int i) {
+                    return column.isNull(rows[i]) ? 0 : Arrays.binarySearch(sorted, values[rows[i]]) + 1;
+                }
+            });
+        } else if (column instanceof TextColumn && ((TextColumn) column).dictionary != null) {
+            // 只对字典排序，每行的名次通过编码查表得到
+            final TextColumn text = (TextColumn) column;
+            String[] values = text.dictionaryValues.toArray(new String[0]);
+            Integer[] order = new Integer[values.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            final String[] dictionary = values;
+            Arrays.parallelSort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer a, Integer b) {
+                    return dictionary[a].compareTo(dictionary[b]);
+                }
+            });
+            final int[] codeRanks = new int[values.length];
+            for (int i = 0; i < order.length; i++) {
+                codeRanks[order[i]] = i + 1;
+            }
+            Arrays.parallelSetAll(ranks, new java.util.function.IntUnaryOperator() {
+                @Override
+                public int applyAsInt(int i) {
+                    return column.isNull(rows[i]) ? 0 : codeRanks[text.codes[rows[i]]];
+                }
+            });
+        } else if (column instanceof TextColumn) {
+            // 紧凑编码的TEXT列：解码一次后按String的自然顺序排序，不经过Comparator
+            final String[] values = new String[rows.length];
+            String[] distinct = new String[rows.length];
+            int count = 0;
+            for (int i = 0; i < rows.length; i++) {
+                values[i] = (String) column.get(rows[i]);
+                if (values[i] != null) {
+                    distinct[count++] = values[i];
+                }
+            }
+            Arrays.parallelSort(distinct, 0, count);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || !distinct[unique - 1].equals(distinct[i])) {
+                    distinct[unique++] = distinct[i];
+                }
+            }
+            final String[] sorted = Arrays.copyOf(distinct, unique);
+            Arrays.parallelSetAll(ranks, new java.util.function.IntUnaryOperator() {
+                @Override
+                public int applyAsInt(int i) {
+                    return values[i] == null ? 0 : Arrays.binarySearch(sorted, values[i]) + 1;
+                }
+            });
+        } else {
+            // 混合类型的列按SQLite的跨类型规则比较
+            Object[] distinct = new Object[rows.length];
+            int count = 0;
+            for (int row : rows) {
+                if (!column.isNull(row)) {
+                    distinct[count++] = column.get(row);
+                }
+            }
+            final Comparator<Object> comparator = new Comparator<Object>() {
+                @Override
+                public int compare(Object a, Object b) {
+                    return compareValues(a, b);
+                }
+            };
+            Arrays.parallelSort(distinct, 0, count, comparator);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || comparator.compare(distinct[unique - 1], distinct[i]) != 0) {
+                    distinct[unique++] = distinct[i];
+                }
+            }
+            final Object[] sorted = Arrays.copyOf(distinct, unique);
+            Arrays.parallelSetAll(ranks, new java.util.function.IntUnaryOperator() {
+                @Override
+                public int applyAsInt(int i) {
+                    return column.isNull(rows[i]) ? 0 : Arrays.binarySearch(sorted, column.get(rows[i]), comparator) + 1;
+                }
+            });
+        }
+        return ranks;
+    }
+
+    // 去掉已排序数组前count个元素中的重复值，返回不同值的个数
+    private static int dedupe(long[] values, int count) {
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || values[unique - 1] != values[i]) {
+                values[unique++] = values[i];
+            }
+        }
+        return unique;
+    }
+
+    // 按SQLite的规则比较两个值：NULL < 数值 < 文本 < BLOB，文本逐字符比较，BLOB逐字节比较
+    public static int compareValues(Object a, Object b) {
+        int classA = storageClass(a);
+        int classB = storageClass(b);
+        if (classA != classB) {
+            return Integer.compare(classA, classB);
+        }
+        switch (classA) {
+            case 0:
+                return 0;
+            case 1:
+                if ((a instanceof Long || a instanceof Integer) && (b instanceof Long || b instanceof Integer)) {
+                    return Long.compare(((Number) a).longValue(), ((Number) b).longValue());
+                }
+                return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+            case 2:
+                return a.toString().compareTo(b.toString());
+            default:
+                byte[] x = (byte[]) a;
+                byte[] y = (byte[]) b;
+                for (int i = 0; i < Math.min(x.length, y.length); i++) {
+                    if (x[i] != y[i]) {
+                        return Integer.compare(x[i] & 0xff, y[i] & 0xff);
+                    }
+                }
+                return Integer.compare(x.length, y.length);
+        }
+    }
+
+    private static int storageClass(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Number) {
+            return 1;
+        } else if (value instanceof byte[]) {
+            return 3;
+        }
+        return 2;
+    }
+
+    private abstract static class Column {
+        long[] nulls;
+
+        Column(int capacity) {
+            nulls = new long[(capacity + 63) >>> 6];
+        }
+
+        static Column forSqlType(int sqlType, int capacity) {
+            switch (sqlType) {
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.SMALLINT:
+                case Types.TINYINT:
+                case Types.BOOLEAN:
+                    return new LongColumn(capacity);
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return new DoubleColumn(capacity);
+                case Types.VARCHAR:
+                case Types.CHAR:
+                case Types.CLOB:
+                case Types.NVARCHAR:
+                    return new TextColumn(capacity);
+                case Types.BLOB:
+                case Types.BINARY:
+                case Types.VARBINARY:
+                    return new ObjectColumn(capacity);
+                default:
+                    return new UntypedColumn(capacity);
+            }
+        }
+
+        static Column forValue(Object value, int capacity) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return new LongColumn(capacity);
+            } else if (value instanceof Double || value instanceof Float) {
+                return new DoubleColumn(capacity);
+            } else if (value instanceof String) {
+                return new TextColumn(capacity);
+            }
+            return new ObjectColumn(capacity);
+        }
+
+        // 返回false表示值的类型不适合本列
+        abstract boolean append(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract String storageType();
+
+        abstract long estimatedBytes(int rowCount);
+
+        boolean isNull(int row) {
+            int word = row >>> 6;
+            return word < nulls.length && (nulls[word] & (1L << row)) != 0;
+        }
+
+        void setNull(int row) {
+            int word = row >>> 6;
+            if (word >= nulls.length) {
+                nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 3 / 2));
+            }
+            nulls[word] |= 1L << row;
+        }
+
+        // 按位图设置从row开始的rows行，只访问位图中不为0的字节
+        void setNulls(int row, ByteBuffer bitmap, int rows) {
+            for (int i = 0; i < (rows + 7) / 8; i++) {
+                int bits = bitmap.get(i) & 0xff;
+                while (bits != 0) {
+                    setNull(row + i * 8 + Integer.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        Column toObjectColumn(int rowCount) {
+            ObjectColumn column = new ObjectColumn(Math.max(64, rowCount * 2));
+            for (int row = 0; row < rowCount; row++) {
+                column.append(row, get(row));
+            }
+            return column;
+        }
+
+        static int grow(int capacity, int required) {
+            return Math.max(required, capacity + (capacity >> 1));
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        long[] values;
+
+        LongColumn(int capacity) {
+            super(capacity);
+            values = new long[capacity];
+        }
+
+        @Override
+        boolean append(int row, Object value) {
+            if (value != null && !(value instanceof Long) && !(value instanceof Integer)
+                    && !(value instanceof Short) && !(value instanceof Byte)) {
+                return false;
+            }
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + 1));
+            }
+            if (value == null) {
+                setNull(row);
+            } else {
+                values[row] = ((Number) value).longValue();
+            }
+            return true;
+        }
+
+        // 从row开始整块复制rows个值，NULL行的值随后由位图标记
+        void appendAll(int row, LongBuffer source, int rows) {
+            if (row + rows > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + rows));
+            }
+            source.get(values, row, rows);
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : Long.valueOf(values[row]);
+        }
+
+        @Override
+        String storageType() {
+            return "LONG";
+        }
+
+        @Override
+        long estimatedBytes(int rowCount) {
+            return 8L * values.length + 8L * nulls.length;
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        double[] values;
+
+        DoubleColumn(int capacity) {
+            super(capacity);
+            values = new double[capacity];
+        }
+
+        @Override
+        boolean append(int row, Object value) {
+            if (value != null && !(value instanceof Double) && !(value instanceof Float)) {
+                return false;
+            }
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + 1));
+            }
+            if (value == null) {
+                setNull(row);
+            } else {
+                values[row] = ((Number) value).doubleValue();
+            }
+            return true;
+        }
+
+        void appendAll(int row, DoubleBuffer source, int rows) {
+            if (row + rows > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + rows));
+            }
+            source.get(values, row, rows);
+        }
+
+        @Override
+        Object get(int row) {
+            return isNull(row) ? null : Double.valueOf(values[row]);
+        }
+
+        @Override
+        String storageType() {
+            return "DOUBLE";
+        }
+
+        @Override
+        long estimatedBytes(int rowCount) {
+            return 8L * values.length + 8L * nulls.length;
+        }
+    }
+
+    // TEXT列：先用字典编码，不同值超过上限或占比过高时改为UTF-8字节数组加偏移量
+    private static final class TextColumn extends Column {
+        private static final int MAX_DICTIONARY_SIZE = 65536;
+
+        // 字典编码
+        int[] codes;
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> dictionaryValues = new ArrayList<>();
+        long dictionaryChars;
+
+        // 紧凑编码：第row行的内容为bytes[offsets[row], offsets[row + 1])
+        byte[] bytes;
+        int[] offsets;
+        int byteCount;
+
+        TextColumn(int capacity) {
+            super(capacity);
+            codes = new int[capacity];
+        }
+
+        @Override
+        boolean append(int row, Object value) {
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            String text = (String) value;
+            if (dictionary != null) {
+                appendEncoded(row, text);
+            } else {
+                appendPacked(row, text);
+            }
+            return true;
+        }
+
+        private void appendEncoded(int row, String text) {
+            if (row >= codes.length) {
+                codes = Arrays.copyOf(codes, grow(codes.length, row + 1));
+            }
+            if (text == null) {
+                setNull(row);
+                codes[row] = -1;
+                return;
+            }
+            Integer code = dictionary.get(text);
+            if (code == null) {
+                if (dictionaryValues.size() >= MAX_DICTIONARY_SIZE
+                        || (row >= INITIAL_CAPACITY && dictionaryValues.size() > row / 2)) {
+                    switchToPacked(row);
+                    appendPacked(row, text);
+                    return;
+                }
+                code = dictionaryValues.size();
+                dictionary.put(text, code);
+                dictionaryValues.add(text);
+                dictionaryChars += text.length();
+            }
+            codes[row] = code;
+        }
+
+        private void switchToPacked(int rowCount) {
+            bytes = new byte[(int) Math.max(1024, Math.min(Integer.MAX_VALUE / 2, dictionaryChars * 2))];
+            offsets = new int[codes.length + 1];
+            byteCount = 0;
+            int[] oldCodes = codes;
+            List<String> oldValues = dictionaryValues;
+            codes = null;
+            dictionary = null;
+            dictionaryValues = null;
+            for (int row = 0; row < rowCount; row++) {
+                appendPacked(row, isNull(row) || oldCodes[row] < 0 ? null : oldValues.get(oldCodes[row]));
+            }
+        }
+
+        private void appendPacked(int row, String text) {
+            if (row + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, grow(offsets.length, row + 2));
+            }
+            if (text == null) {
+                setNull(row);
+            } else {
+                byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                if (byteCount + encoded.length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, grow(bytes.length, byteCount + encoded.length));
+                }
+                System.arraycopy(encoded, 0, bytes, byteCount, encoded.length);
+                byteCount += encoded.length;
+            }
+            offsets[row + 1] = byteCount;
+        }
+
+        // 整块复制UTF-8字节并换算偏移量，列改为紧凑编码（不为每个值创建字符串去查字典）
+        void appendAll(int row, IntBuffer sourceOffsets, ByteBuffer text, int rows) {
+            if (dictionary != null) {
+                switchToPacked(row);
+            }
+            if (row + rows + 1 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, grow(offsets.length, row + rows + 1));
+            }
+            int first = sourceOffsets.get(0);
+            int length = sourceOffsets.get(rows) - first;
+            if (byteCount + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, grow(bytes.length, byteCount + length));
+            }
+            text.get(bytes, byteCount, length);
+            int base = byteCount - first;
+            for (int r = 1; r <= rows; r++) {
+                offsets[row + r] = base + sourceOffsets.get(r);
+            }
+            byteCount += length;
+        }
+
+        @Override
+        Object get(int row) {
+            if (isNull(row)) {
+                return null;
+            }
+            if (dictionary != null) {
+                return dictionaryValues.get(codes[row]);
+            }
+            return new String(bytes, offsets[row], offsets[row + 1] - offsets[row], StandardCharsets.UTF_8);
+        }
+
+        @Override
+        String storageType() {
+            return "TEXT";
+        }
+
+        @Override
+        long estimatedBytes(int rowCount) {
+            if (dictionary != null) {
+                // 每个字典项：字符串对象、字符数组和哈希表节点
+                return 4L * codes.length + 2L * dictionaryChars + 96L * dictionaryValues.size() + 8L * nulls.length;
+            }
+            return bytes.length + 4L * offsets.length + 8L * nulls.length;
+        }
+    }
+
+    // 类型未知且目前只有NULL值的列
+    private static final class UntypedColumn extends Column {
+        UntypedColumn(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        boolean append(int row, Object value) {
+            if (value != null) {
+                return false;
+            }
+            setNull(row);
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return null;
+        }
+
+        @Override
+        String storageType() {
+            return "NULL";
+        }
+
+        @Override
+        long estimatedBytes(int rowCount) {
+            return 8L * nulls.length;
+        }
+
+        Column toTypedColumn(Object value, int rowCount) {
+            return adopt(forValue(value, Math.max(64, rowCount * 2)));
+        }
+
+        // 已经记录的NULL转给确定了类型的列
+        Column adopt(Column column) {
+            column.nulls = nulls;
+            return column;
+        }
+    }
+
+    // BLOB或混合类型的列
+    private static final class ObjectColumn extends Column {
+        Object[] values;
+        long payloadBytes;
+
+        ObjectColumn(int capacity) {
+            super(capacity);
+            values = new Object[capacity];
+        }
+
+        @Override
+        boolean append(int row, Object value) {
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, row + 1));
+            }
+            values[row] = value;
+            if (value == null) {
+                setNull(row);
+            } else if (value instanceof byte[]) {
+                payloadBytes += 16 + ((byte[]) value).length;
+            } else if (value instanceof String) {
+                payloadBytes += 40 + 2L * ((String) value).length();
+            } else {
+                payloadBytes += 16;
+            }
+            return true;
+        }
+
+        @Override
+        Object get(int row) {
+            return values[row];
+        }
+
+        @Override
+        String storageType() {
+            return "OBJECT";
+        }
+
+        @Override
+        long estimatedBytes(int rowCount) {
+            return 8L * values.length + payloadBytes + 8L * nulls.length;
+        }
+    }
+}
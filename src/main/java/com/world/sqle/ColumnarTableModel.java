@@ -0,0 +1,51 @@
+package com.world.sqle;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * 基于ColumnarResultStore的只读表格模型，用于需要完整保存在内存中的查询结果。
+ * 可以设置显示的行及其顺序（排序和筛选的结果），不修改store本身。
+ */
+public class ColumnarTableModel extends AbstractTableModel {
+    private final ColumnarResultStore store;
+    // 显示的第i行对应store中的第rowOrder[i]行，为null时按原顺序显示全部行
+    private int[] rowOrder;
+
+    public ColumnarTableModel(ColumnarResultStore store) {
+        this.store = store;
+    }
+
+    public ColumnarResultStore getStore() {
+        return store;
+    }
+
+    public void setRowOrder(int[] rowOrder) {
+        this.rowOrder = rowOrder;
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowOrder != null ? rowOrder.length : store.getRowCount();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return store.getColumnCount();
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return store.getColumnName(column);
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false; // 表格不可编辑
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return store.getValue(rowOrder != null ? rowOrder[row] : row, column);
+    }
+}
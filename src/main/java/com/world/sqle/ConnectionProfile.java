@@ -0,0 +1,301 @@
+package com.world.sqle;
+
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * 数据库连接的性能配置：日志模式、同步级别、页缓存、内存映射、临时存储、页大小和忙等待超时。
+ * 打开连接时通过SQLiteConfig应用，也可以对已打开的连接执行PRAGMA；按数据库文件保存在用户首选项中。
+ * 日志模式和同步级别为null时不设置，保持数据库原有的设置（例如用其他工具切换到的WAL模式）；
+ * 没有为数据库保存过配置时就是这种情况，只有用户保存或选择了配置才会修改。
+ */
+public class ConnectionProfile {
+    public static final String[] JOURNAL_MODES = {"DELETE", "TRUNCATE", "PERSIST", "MEMORY", "WAL", "OFF"};
+    public static final String[] SYNCHRONOUS_MODES = {"OFF", "NORMAL", "FULL", "EXTRA"};
+    public static final String[] TEMP_STORES = {"DEFAULT", "FILE", "MEMORY"};
+    public static final Integer[] PAGE_SIZES = {1024, 2048, 4096, 8192, 16384, 32768, 65536};
+
+    private static final Preferences PREFERENCES = Preferences.userRoot().node("SQLiteEditor/profiles");
+
+    public enum Preset {
+        DEFAULT("默认"),
+        READ_HEAVY("读密集分析"),
+        BULK_LOAD("批量导入"),
+        CUSTOM("自定义");
+
+        private final String description;
+
+        Preset(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    // 为null时保持数据库当前的设置
+    private String journalMode = "DELETE";
+    private String synchronous = "FULL";
+    private int cacheSizeMb = 2;
+    private int mmapSizeMb = 0;
+    private String tempStore = "DEFAULT";
+    private int pageSize = 4096;
+    private int busyTimeoutMs = 3000;
+
+    public static ConnectionProfile preset(Preset preset) {
+        ConnectionProfile profile = new ConnectionProfile();
+        switch (preset) {
+            case READ_HEAVY:
+                // WAL下读不阻塞写；大缓存和内存映射减少读取时的系统调用和复制
+                profile.journalMode = "WAL";
+                profile.synchronous = "NORMAL";
+                profile.cacheSizeMb = 256;
+                profile.mmapSizeMb = 1024;
+                profile.tempStore = "MEMORY";
+                profile.pageSize = 8192;
+                profile.busyTimeoutMs = 5000;
+                break;
+            case BULK_LOAD:
+                // 不等待磁盘同步，断电时可能丢失最近的事务
+                profile.journalMode = "WAL";
+                profile.synchronous = "OFF";
+                profile.cacheSizeMb = 512;
+                profile.mmapSizeMb = 256;
+                profile.tempStore = "MEMORY";
+                profile.pageSize = 4096;
+                profile.busyTimeoutMs = 10000;
+                break;
+            default:
+                break;
+        }
+        return profile;
+    }
+
+    // 与当前设置完全相同的预设，没有时返回CUSTOM
+    public Preset getPreset() {
+        for (Preset preset : Preset.values()) {
+            if (preset != Preset.CUSTOM && preset(preset).equals(this)) {
+                return preset;
+            }
+        }
+        return Preset.CUSTOM;
+    }
+
+    // 读取为该数据库文件保存的配置；没有保存过时返回默认配置，但不修改数据库的日志模式和同步级别
+    public static ConnectionProfile load(File database) {
+        ConnectionProfile profile = new ConnectionProfile();
+        profile.journalMode = null;
+        profile.synchronous = null;
+        try {
+            String key = keyFor(database);
+            if (!PREFERENCES.nodeExists(key)) {
+                return profile;
+            }
+            Preferences node = PREFERENCES.node(key);
+            profile.journalMode = choice(node.get("journal_mode", null), JOURNAL_MODES, null);
+            profile.synchronous = choice(node.get("synchronous", null), SYNCHRONOUS_MODES, null);
+            profile.cacheSizeMb = Math.max(1, node.getInt("cache_size_mb", profile.cacheSizeMb));
+            profile.mmapSizeMb = Math.max(0, node.getInt("mmap_size_mb", profile.mmapSizeMb));
+            profile.tempStore = choice(node.get("temp_store", profile.tempStore), TEMP_STORES, profile.tempStore);
+            profile.pageSize = node.getInt("page_size", profile.pageSize);
+            profile.busyTimeoutMs = Math.max(0, node.getInt("busy_timeout", profile.busyTimeoutMs));
+        } catch (BackingStoreException ex) {
+            // 首选项不可用时使用默认配置
+        }
+        return profile;
+    }
+
+    public void save(File database) throws BackingStoreException {
+        Preferences node = PREFERENCES.node(keyFor(database));
+        node.put("path", database.getAbsolutePath());
+        putOrRemove(node, "journal_mode", journalMode);
+        putOrRemove(node, "synchronous", synchronous);
+        node.putInt("cache_size_mb", cacheSizeMb);
+        node.putInt("mmap_size_mb", mmapSizeMb);
+        node.put("temp_store", tempStore);
+        node.putInt("page_size", pageSize);
+        node.putInt("busy_timeout", busyTimeoutMs);
+        node.flush();
+    }
+
+    private static void putOrRemove(Preferences node, String key, String value) {
+        if (value != null) {
+            node.put(key, value);
+        } else {
+            node.remove(key);
+        }
+    }
+
+    // 首选项节点名长度有限，用路径的SHA-1作为键
+    private static String keyFor(File database) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1")
+                    .digest(database.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest) {
+                key.append(String.format("%02x", b & 0xFF));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String choice(String value, String[] allowed, String fallback) {
+        for (String option : allowed) {
+            if (option.equalsIgnoreCase(value)) {
+                return option;
+            }
+        }
+        return fallback;
+    }
+
+    // 按配置打开连接。新建的数据库先设置页大小，再切换日志模式（WAL模式下页大小不能再修改）
+    public Connection open(File database) throws SQLException {
+        boolean newDatabase = !database.exists() || database.length() == 0;
+        SQLiteConfig config = toConfig(!newDatabase);
+        Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath(), config.toProperties());
+        if (newDatabase) {
+            Statement stmt = connection.createStatement();
+            try {
+                stmt.execute("PRAGMA page_size = " + pageSize);
+                if (journalMode != null) {
+                    stmt.execute("PRAGMA journal_mode = " + journalMode);
+                }
+            } finally {
+                stmt.close();
+            }
+        }
+        return connection;
+    }
+
+    public SQLiteConfig toConfig(boolean withJournalMode) {
+        SQLiteConfig config = new SQLiteConfig();
+        if (withJournalMode && journalMode != null) {
+            config.setJournalMode(SQLiteConfig.JournalMode.valueOf(journalMode));
+        }
+        if (synchronous != null) {
+            config.setSynchronous(SQLiteConfig.SynchronousMode.valueOf(synchronous));
+        }
+        // 负数表示以KiB为单位
+        config.setCacheSize(-cacheSizeMb * 1024);
+        config.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, String.valueOf((long) mmapSizeMb * 1024 * 1024));
+        config.setTempStore(SQLiteConfig.TempStore.valueOf(tempStore));
+        config.setBusyTimeout(busyTimeoutMs);
+        return config;
+    }
+
+    // 对已打开的连接应用配置（不包括页大小），连接不能处于事务中
+    public void apply(Connection connection) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            if (journalMode != null) {
+                stmt.execute("PRAGMA journal_mode = " + journalMode);
+            }
+            if (synchronous != null) {
+                stmt.execute("PRAGMA synchronous = " + synchronous);
+            }
+            stmt.execute("PRAGMA cache_size = " + (-cacheSizeMb * 1024));
+            stmt.execute("PRAGMA mmap_size = " + ((long) mmapSizeMb * 1024 * 1024));
+            stmt.execute("PRAGMA temp_store = " + tempStore);
+            stmt.execute("PRAGMA busy_timeout = " + busyTimeoutMs);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    public String getJournalMode() {
+        return journalMode;
+    }
+
+    // null表示保持数据库当前的日志模式
+    public void setJournalMode(String journalMode) {
+        this.journalMode = journalMode == null ? null : choice(journalMode, JOURNAL_MODES, this.journalMode);
+    }
+
+    public String getSynchronous() {
+        return synchronous;
+    }
+
+    public void setSynchronous(String synchronous) {
+        this.synchronous = synchronous == null ? null : choice(synchronous, SYNCHRONOUS_MODES, this.synchronous);
+    }
+
+    public int getCacheSizeMb() {
+        return cacheSizeMb;
+    }
+
+    public void setCacheSizeMb(int cacheSizeMb) {
+        this.cacheSizeMb = Math.max(1, cacheSizeMb);
+    }
+
+    public int getMmapSizeMb() {
+        return mmapSizeMb;
+    }
+
+    public void setMmapSizeMb(int mmapSizeMb) {
+        this.mmapSizeMb = Math.max(0, mmapSizeMb);
+    }
+
+    public String getTempStore() {
+        return tempStore;
+    }
+
+    public void setTempStore(String tempStore) {
+        this.tempStore = choice(tempStore, TEMP_STORES, this.tempStore);
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public int getBusyTimeoutMs() {
+        return busyTimeoutMs;
+    }
+
+    public void setBusyTimeoutMs(int busyTimeoutMs) {
+        this.busyTimeoutMs = Math.max(0, busyTimeoutMs);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ConnectionProfile)) {
+            return false;
+        }
+        ConnectionProfile other = (ConnectionProfile) o;
+        return Objects.equals(journalMode, other.journalMode) && Objects.equals(synchronous, other.synchronous)
+                && cacheSizeMb == other.cacheSizeMb && mmapSizeMb == other.mmapSizeMb
+                && tempStore.equals(other.tempStore) && pageSize == other.pageSize
+                && busyTimeoutMs == other.busyTimeoutMs;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(journalMode) * 31 + Objects.hashCode(synchronous) * 17 + cacheSizeMb + mmapSizeMb * 7 + pageSize;
+    }
+
+    @Override
+    public String toString() {
+        return getPreset() + " (journal_mode=" + (journalMode != null ? journalMode : "不修改")
+                + ", synchronous=" + (synchronous != null ? synchronous : "不修改")
+                + ", cache_size=" + cacheSizeMb + "MB, mmap_size=" + mmapSizeMb + "MB, temp_store=" + tempStore
+                + ", page_size=" + pageSize + ", busy_timeout=" + busyTimeoutMs + "ms)";
+    }
+}
@@ -0,0 +1,429 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 把CSV文件批量导入到表中。
+ * 解析线程读取记录并按批放入有界队列，调用线程用同一个PreparedStatement通过addBatch/executeBatch插入，
+ * 在大事务中提交；可以在导入期间临时关闭同步写入（synchronous=OFF、journal_mode=MEMORY）。
+ * 表不存在时按表头创建，列类型根据第一批数据推断。
+ */
+public class CsvImporter {
+    // 每批记录数，也是executeBatch的大小
+    private static final int BATCH_ROWS = 1000;
+    // 解析线程最多领先的批数
+    private static final int QUEUE_BATCHES = 16;
+    // 文件结束标记
+    private static final String[][] END = new String[0][];
+
+    // 导入进度回调，在导入线程中调用
+    public interface Listener {
+        void progress(long rows, long bytesRead, long totalBytes);
+
+        boolean isCancelled();
+    }
+
+    private final Connection connection;
+    private final Listener listener;
+    private char delimiter = ',';
+    private boolean header = true;
+    private boolean emptyAsNull = true;
+    private boolean fastMode;
+    private long commitInterval;
+
+    private volatile Exception parseError;
+
+    public CsvImporter(Connection connection, Listener listener) {
+        this.connection = connection;
+        this.listener = listener;
+    }
+
+    public void setDelimiter(char delimiter) {
+        this.delimiter = delimiter;
+    }
+
+    // 第一行是否为列名
+    public void setHeader(boolean header) {
+        this.header = header;
+    }
+
+    public void setEmptyAsNull(boolean emptyAsNull) {
+        this.emptyAsNull = emptyAsNull;
+    }
+
+    // 导入期间设置synchronous=OFF和journal_mode=MEMORY，完成后恢复原来的设置
+    public void setFastMode(boolean fastMode) {
+        this.fastMode = fastMode;
+    }
+
+    // 每插入多少行提交一次，0表示整个文件在一个事务中导入（失败时全部回滚）
+    public void setCommitInterval(long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    // 导入文件并返回插入的行数；取消时抛出CancellationException。连接必须处于自动提交模式
+    public long importFile(File file, String tableName) throws Exception {
+        if (!connection.getAutoCommit()) {
+            throw new SQLException("导入需要在事务之外执行");
+        }
+        final FileInputStream input = new FileInputStream(file);
+        final FileChannel channel = input.getChannel();
+        final long totalBytes = channel.size();
+        final CsvReader reader = new CsvReader(new InputStreamReader(input, StandardCharsets.UTF_8), delimiter);
+        reader.setEmptyAsNull(emptyAsNull);
+
+        try {
+            // 在当前线程读取表头（或第一条记录）以确定列数
+            String[] first = reader.readRecord();
+            if (first == null) {
+                return 0;
+            }
+            String[] columns = header ? first : defaultColumnNames(first.length);
+            int firstLine = header ? 2 : 1;
+
+            final BlockingQueue<String[][]> queue = new ArrayBlockingQueue<>(QUEUE_BATCHES);
+            Thread parser = startParser(reader, header ? null : first, queue);
+            try {
+                return insertAll(tableName, columns, firstLine, queue, channel, totalBytes);
+            } finally {
+                parser.interrupt();
+                parser.join();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static String[] defaultColumnNames(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "column" + (i + 1);
+        }
+        return names;
+    }
+
+    // 解析线程：按批放入队列，结束或出错时放入结束标记
+    private Thread startParser(final CsvReader reader, final String[] pending, final BlockingQueue<String[][]> queue) {
+        Thread parser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<String[]> batch = new ArrayList<>(BATCH_ROWS);
+                    if (pending != null) {
+                        batch.add(pending);
+                    }
+                    String[] record;
+                    while ((record = reader.readRecord()) != null) {
+                        batch.add(record);
+                        if (batch.size() == BATCH_ROWS) {
+                            queue.put(batch.toArray(new String[batch.size()][]));
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        queue.put(batch.toArray(new String[batch.size()][]));
+                    }
+                    queue.put(END);
+                } catch (InterruptedException ex) {
+                    // 导入已结束或被取消
+                } catch (Exception ex) {
+                    parseError = ex;
+                    queue.clear();
+                    queue.offer(END);
+                }
+            }
+        }, "csv-parser");
+        parser.setDaemon(true);
+        parser.start();
+        return parser;
+    }
+
+    private long insertAll(String tableName, String[] columns, int firstLine, BlockingQueue<String[][]> queue,
+                           FileChannel channel, long totalBytes) throws Exception {
+        String[][] batch = queue.take();
+        checkParseError();
+
+        // 日志模式只能在事务之外修改
+        String[] savedPragmas = fastMode ? relaxDurability() : null;
+        connection.setAutoCommit(false);
+        PreparedStatement stmt = null;
+        try {
+            // 新建的表和数据在同一个事务中，失败时一起回滚
+            String[] targetColumns = prepareTable(tableName, columns, batch);
+            stmt = connection.prepareStatement(insertSql(tableName, targetColumns));
+            int columnCount = targetColumns.length;
+            long records = 0;
+            long rows = 0;
+            long uncommitted = 0;
+            while (batch != END) {
+                if (listener != null && listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("导入已取消");
+                }
+                for (String[] record : batch) {
+                    records++;
+                    if (isBlank(record) && columnCount > 1) {
+                        continue;
+                    }
+                    if (record.length > columnCount) {
+                        throw new SQLException("第 " + (firstLine + records - 1) + " 条记录有 " + record.length
+                                + " 个字段，目标表只有 " + columnCount + " 列");
+                    }
+                    for (int i = 0; i < columnCount; i++) {
+                        String value = i < record.length ? record[i] : null;
+                        if (value == null) {
+                            stmt.setNull(i + 1, Types.NULL);
+                        } else {
+                            // 以文本绑定，由列的类型亲和性转换为整数或浮点数
+                            stmt.setString(i + 1, value);
+                        }
+                    }
+                    stmt.addBatch();
+                    rows++;
+                    uncommitted++;
+                }
+                stmt.executeBatch();
+                if (commitInterval > 0 && uncommitted >= commitInterval) {
+                    connection.commit();
+                    uncommitted = 0;
+                }
+                if (listener != null) {
+                    listener.progress(rows, channel.position(), totalBytes);
+                }
+                batch = queue.take();
+            }
+            checkParseError();
+            connection.commit();
+            return rows;
+        } catch (Exception ex) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackError) {
+                // 保留原来的异常
+            }
+            throw ex;
+        } finally {
+            if (stmt != null) {
+                stmt.close();
+            }
+            connection.setAutoCommit(true);
+            if (savedPragmas != null) {
+                restoreDurability(savedPragmas);
+            }
+        }
+    }
+
+    private void checkParseError() throws Exception {
+        Exception error = parseError;
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // 空行读取为只有一个空字段的记录
+    private static boolean isBlank(String[] record) {
+        return record.length == 1 && (record[0] == null || record[0].isEmpty());
+    }
+
+    private static String insertSql(String tableName, String[] columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(SqlUtil.quoteIdentifier(tableName)).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(SqlUtil.quoteIdentifier(columns[i]));
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        return sql.append(')').toString();
+    }
+
+    // 返回插入的目标列：表不存在时按CSV列创建；已存在时按列名匹配，列名不匹配时按位置对应表的前几列
+    private String[] prepareTable(String tableName, String[] columns, String[][] sample) throws SQLException {
+        List<String> existing = new ArrayList<>();
+        PreparedStatement stmt = connection.prepareStatement("SELECT name FROM pragma_table_info(?)");
+        try {
+            stmt.setString(1, tableName);
+            ResultSet resultSet = stmt.executeQuery();
+            while (resultSet.next()) {
+                existing.add(resultSet.getString(1));
+            }
+            resultSet.close();
+        } finally {
+            stmt.close();
+        }
+
+        if (existing.isEmpty()) {
+            createTable(tableName, columns, sample);
+            return columns;
+        }
+
+        if (header) {
+            List<String> lowerExisting = new ArrayList<>();
+            for (String name : existing) {
+                lowerExisting.add(name.toLowerCase(Locale.ROOT));
+            }
+            boolean allMatch = true;
+            for (String column : columns) {
+                if (column == null || !lowerExisting.contains(column.toLowerCase(Locale.ROOT))) {
+                    allMatch = false;
+                    break;
+                }
+            }
+            if (allMatch) {
+                return columns;
+            }
+        }
+        if (columns.length > existing.size()) {
+            throw new SQLException("CSV文件有 " + columns.length + " 列，表 " + tableName + " 只有 " + existing.size() + " 列");
+        }
+        return existing.subList(0, columns.length).toArray(new String[columns.length]);
+    }
+
+    private void createTable(String tableName, String[] columns, String[][] sample) throws SQLException {
+        StringBuilder sql = new StringBuilder("CREATE TABLE ").append(SqlUtil.quoteIdentifier(tableName)).append(" (");
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == null || columns[i].isEmpty()) {
+                columns[i] = "column" + (i + 1);
+            }
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(SqlUtil.quoteIdentifier(columns[i])).append(' ').append(inferType(sample, i));
+        }
+        sql.append(')');
+        Statement stmt = connection.createStatement();
+        try {
+            stmt.execute(sql.toString());
+        } finally {
+            stmt.close();
+        }
+    }
+
+    // 根据样本推断列类型：全是整数为INTEGER，全是数字为REAL，否则为TEXT。
+    // 超出64位范围的整数（例如很长的编号）在REAL列中会被舍入，这样的列为TEXT
+    private static String inferType(String[][] sample, int column) {
+        boolean integer = true;
+        boolean real = true;
+        boolean any = false;
+        for (String[] record : sample) {
+            String value = column < record.length ? record[column] : null;
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            any = true;
+            if (hasLeadingZero(value) || isDigits(value) && !isInteger(value)) {
+                // 前导零的值（例如编号、邮编）和超出long范围的整数保留为文本
+                return "TEXT";
+            }
+            if (integer && !isInteger(value)) {
+                integer = false;
+            }
+            if (!integer && real && !isReal(value)) {
+                real = false;
+                break;
+            }
+        }
+        if (!any) {
+            return "TEXT";
+        }
+        return integer ? "INTEGER" : real ? "REAL" : "TEXT";
+    }
+
+    private static boolean hasLeadingZero(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        return value.length() - start > 1 && value.charAt(start) == '0' && value.charAt(start + 1) != '.';
+    }
+
+    // 可以带正负号的一串数字，不限长度
+    private static boolean isDigits(String value) {
+        int start = value.charAt(0) == '-' || value.charAt(0) == '+' ? 1 : 0;
+        if (start >= value.length()) {
+            return false;
+        }
+        for (int i = start; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 在long范围内的整数，19位的值（例如雪花ID）也算
+    private static boolean isInteger(String value) {
+        if (!isDigits(value)) {
+            return false;
+        }
+        try {
+            Long.parseLong(value);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    private static boolean isReal(String value) {
+        char last = value.charAt(value.length() - 1);
+        if (!(last >= '0' && last <= '9' || last == '.')) {
+            // 排除Double.parseDouble接受的"NaN"、"1d"、"2f"等写法
+            return false;
+        }
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    // 返回原来的synchronous和journal_mode
+    private String[] relaxDurability() throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            String synchronous = queryPragma(stmt, "synchronous");
+            String journalMode = queryPragma(stmt, "journal_mode");
+            stmt.execute("PRAGMA synchronous = OFF");
+            // WAL模式下切换日志模式需要独占数据库，失败时保持原来的模式
+            if (!"wal".equalsIgnoreCase(journalMode)) {
+                queryPragma(stmt, "journal_mode = MEMORY");
+            }
+            return new String[]{synchronous, journalMode};
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private void restoreDurability(String[] saved) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            stmt.execute("PRAGMA synchronous = " + saved[0]);
+            if (!"wal".equalsIgnoreCase(saved[1])) {
+                queryPragma(stmt, "journal_mode = " + saved[1]);
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static String queryPragma(Statement stmt, String pragma) throws SQLException {
+        ResultSet resultSet = stmt.executeQuery("PRAGMA " + pragma);
+        try {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        } finally {
+            resultSet.close();
+        }
+    }
+}
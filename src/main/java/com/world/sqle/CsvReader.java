@@ -0,0 +1,119 @@
+package com.world.sqle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式读取CSV（RFC 4180），每次返回一条记录。
+ * 支持引号内的分隔符、换行和""转义，接受CRLF、LF和CR换行，并跳过开头的UTF-8 BOM。
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean emptyAsNull;
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+
+    public CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    // 为true时没有引号的空字段读取为null，""读取为空字符串
+    public void setEmptyAsNull(boolean emptyAsNull) {
+        this.emptyAsNull = emptyAsNull;
+    }
+
+    // 读取下一条记录，文件结束时返回null
+    public String[] readRecord() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && buffer[position] == '\uFEFF') {
+                position++;
+            }
+        }
+        if (position >= limit && !fill()) {
+            return null;
+        }
+
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (position >= limit && !fill()) {
+                // 文件结尾没有换行符
+                endField(quoted);
+                break;
+            }
+            char c = buffer[position++];
+            if (inQuotes) {
+                if (c == '"') {
+                    if (position >= limit && !fill()) {
+                        inQuotes = false;
+                    } else if (buffer[position] == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == delimiter) {
+                endField(quoted);
+                quoted = false;
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && (position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                endField(quoted);
+                break;
+            } else if (c == '"' && field.length() == 0 && !quoted) {
+                quoted = true;
+                inQuotes = true;
+            } else {
+                field.append(c);
+            }
+        }
+        return fields.toArray(new String[fields.size()]);
+    }
+
+    private void endField(boolean quoted) {
+        if (emptyAsNull && !quoted && field.length() == 0) {
+            fields.add(null);
+        } else {
+            fields.add(field.toString());
+        }
+        field.setLength(0);
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            position = limit = 0;
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
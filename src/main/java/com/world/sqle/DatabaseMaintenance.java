@@ -0,0 +1,329 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 数据库维护操作：增量回收空闲页、VACUUM INTO、ANALYZE/PRAGMA optimize、完整性检查和WAL检查点。
+ * 在调用线程中同步执行（应在后台线程调用），执行前后记录空闲页数和WAL文件大小以便比较。
+ */
+public class DatabaseMaintenance {
+    // 增量回收时每批释放的页数，批与批之间报告进度并检查是否取消
+    private static final int INCREMENTAL_STEP_PAGES = 256;
+    // 完整性检查最多报告的问题数
+    private static final int MAX_CHECK_MESSAGES = 100;
+
+    public enum Operation {
+        INCREMENTAL_VACUUM("增量回收空闲页"),
+        VACUUM_INTO("VACUUM INTO（压缩复制到新文件）"),
+        VACUUM("完整VACUUM（重建数据库）"),
+        ENABLE_INCREMENTAL("启用增量自动清理（执行一次完整VACUUM）"),
+        ANALYZE("ANALYZE（收集全部统计信息）"),
+        OPTIMIZE("PRAGMA optimize（按需更新统计信息）"),
+        QUICK_CHECK("快速检查(quick_check)"),
+        INTEGRITY_CHECK("完整性检查(integrity_check)"),
+        CHECKPOINT_PASSIVE("WAL检查点(PASSIVE)"),
+        CHECKPOINT_TRUNCATE("WAL检查点(TRUNCATE)");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    public interface Listener {
+        // percent小于0表示进度未知
+        void progress(String message, int percent);
+
+        boolean isCancelled();
+    }
+
+    // 数据库文件的空间使用情况
+    public static final class Stats {
+        private long pageSize;
+        private long pageCount;
+        private long freelistCount;
+        private int autoVacuum;
+        private String journalMode;
+        private long fileBytes;
+        private long walBytes;
+
+        public long getPageSize() {
+            return pageSize;
+        }
+
+        public long getPageCount() {
+            return pageCount;
+        }
+
+        public long getFreelistCount() {
+            return freelistCount;
+        }
+
+        public long getFreelistBytes() {
+            return freelistCount * pageSize;
+        }
+
+        // 0: NONE，1: FULL，2: INCREMENTAL
+        public int getAutoVacuum() {
+            return autoVacuum;
+        }
+
+        public String getJournalMode() {
+            return journalMode;
+        }
+
+        public long getFileBytes() {
+            return fileBytes;
+        }
+
+        public long getWalBytes() {
+            return walBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("文件 %s，%d 页（每页 %d 字节），空闲页 %d（%s），WAL %s，日志模式 %s，自动清理 %s",
+                    PerformancePanel.formatBytes(fileBytes), pageCount, pageSize, freelistCount,
+                    PerformancePanel.formatBytes(getFreelistBytes()), PerformancePanel.formatBytes(walBytes), journalMode,
+                    autoVacuum == 2 ? "INCREMENTAL" : autoVacuum == 1 ? "FULL" : "NONE");
+        }
+    }
+
+    // 一次维护操作的结果
+    public static final class Report {
+        private final Operation operation;
+        private final Stats before;
+        private Stats after;
+        private final List<String> messages = new ArrayList<>();
+        private long nanos;
+
+        Report(Operation operation, Stats before) {
+            this.operation = operation;
+            this.before = before;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        public Stats getBefore() {
+            return before;
+        }
+
+        public Stats getAfter() {
+            return after;
+        }
+
+        public List<String> getMessages() {
+            return messages;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(operation).append(String.format("（用时 %.1f 秒）%n", nanos / 1e9));
+            for (String message : messages) {
+                text.append("  ").append(message).append('\n');
+            }
+            text.append("执行前: ").append(before).append('\n');
+            text.append("执行后: ").append(after).append('\n');
+            return text.toString();
+        }
+    }
+
+    private final Connection connection;
+    private final File databaseFile;
+    private Statement statement;
+    private int incrementalPages = 1000;
+    private File vacuumTarget;
+
+    public DatabaseMaintenance(Connection connection, File databaseFile) {
+        this.connection = connection;
+        this.databaseFile = databaseFile;
+    }
+
+    // 设置执行语句使用的Statement（例如可以被取消的Statement），不设置时自行创建
+    public void setStatement(Statement statement) {
+        this.statement = statement;
+    }
+
+    // 增量回收最多释放的页数，0表示释放全部空闲页
+    public void setIncrementalPages(int incrementalPages) {
+        this.incrementalPages = incrementalPages;
+    }
+
+    // VACUUM INTO的目标文件，必须不存在
+    public void setVacuumTarget(File vacuumTarget) {
+        this.vacuumTarget = vacuumTarget;
+    }
+
+    public static Stats readStats(Connection connection, File databaseFile) throws SQLException {
+        Stats stats = new Stats();
+        Statement stmt = connection.createStatement();
+        try {
+            stats.pageSize = queryLong(stmt, "PRAGMA page_size");
+            stats.pageCount = queryLong(stmt, "PRAGMA page_count");
+            stats.freelistCount = queryLong(stmt, "PRAGMA freelist_count");
+            stats.autoVacuum = (int) queryLong(stmt, "PRAGMA auto_vacuum");
+            ResultSet resultSet = stmt.executeQuery("PRAGMA journal_mode");
+            try {
+                stats.journalMode = resultSet.next() ? resultSet.getString(1) : "";
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        stats.fileBytes = databaseFile.length();
+        stats.walBytes = new File(databaseFile.getPath() + "-wal").length();
+        return stats;
+    }
+
+    public Report run(Operation operation, Listener listener) throws SQLException {
+        long start = System.nanoTime();
+        Report report = new Report(operation, readStats(connection, databaseFile));
+        boolean ownStatement = statement == null;
+        Statement stmt = ownStatement ? connection.createStatement() : statement;
+        try {
+            switch (operation) {
+                case INCREMENTAL_VACUUM:
+                    incrementalVacuum(stmt, report, listener);
+                    break;
+                case VACUUM_INTO:
+                    if (vacuumTarget == null) {
+                        throw new SQLException("没有指定VACUUM INTO的目标文件");
+                    }
+                    if (vacuumTarget.exists()) {
+                        throw new SQLException("目标文件已存在: " + vacuumTarget.getAbsolutePath());
+                    }
+                    progress(listener, "正在复制到 " + vacuumTarget.getName(), -1);
+                    stmt.execute("VACUUM INTO " + SqlUtil.quoteLiteral(vacuumTarget.getAbsolutePath()));
+                    report.messages.add("已写入 " + vacuumTarget.getAbsolutePath() + "（"
+                            + PerformancePanel.formatBytes(vacuumTarget.length()) + "）");
+                    break;
+                case VACUUM:
+                    progress(listener, "正在重建数据库", -1);
+                    stmt.execute("VACUUM");
+                    break;
+                case ENABLE_INCREMENTAL:
+                    // 已有数据的数据库修改auto_vacuum后要VACUUM重建才会生效
+                    progress(listener, "正在重建数据库以启用增量自动清理", -1);
+                    stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                    stmt.execute("VACUUM");
+                    break;
+                case ANALYZE:
+                    progress(listener, "正在收集统计信息", -1);
+                    stmt.execute("ANALYZE");
+                    break;
+                case OPTIMIZE:
+                    progress(listener, "正在执行PRAGMA optimize", -1);
+                    collectRows(stmt, "PRAGMA optimize", report, "已执行: ");
+                    break;
+                case QUICK_CHECK:
+                case INTEGRITY_CHECK:
+                    progress(listener, "正在检查数据库", -1);
+                    String pragma = operation == Operation.QUICK_CHECK ? "quick_check" : "integrity_check";
+                    collectRows(stmt, "PRAGMA " + pragma + "(" + MAX_CHECK_MESSAGES + ")", report, "");
+                    if (report.messages.size() == 1 && "ok".equals(report.messages.get(0))) {
+                        report.messages.set(0, "检查通过，没有发现问题");
+                    }
+                    break;
+                case CHECKPOINT_PASSIVE:
+                case CHECKPOINT_TRUNCATE:
+                    checkpoint(stmt, operation == Operation.CHECKPOINT_TRUNCATE ? "TRUNCATE" : "PASSIVE", report);
+                    break;
+                default:
+                    throw new IllegalArgumentException(operation.name());
+            }
+        } finally {
+            if (ownStatement) {
+                stmt.close();
+            }
+        }
+        report.after = readStats(connection, databaseFile);
+        report.nanos = System.nanoTime() - start;
+        return report;
+    }
+
+    // 分批执行PRAGMA incremental_vacuum；数据库没有启用INCREMENTAL自动清理时该PRAGMA不起作用
+    private void incrementalVacuum(Statement stmt, Report report, Listener listener) throws SQLException {
+        if (report.before.autoVacuum != 2) {
+            report.messages.add("数据库没有启用增量自动清理（auto_vacuum=INCREMENTAL），无法增量回收；"
+                    + "请先执行\"" + Operation.ENABLE_INCREMENTAL + "\"");
+            return;
+        }
+        long target = incrementalPages > 0 ? Math.min(incrementalPages, report.before.freelistCount) : report.before.freelistCount;
+        long freed = 0;
+        while (freed < target) {
+            if (listener != null && listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("增量回收已取消");
+            }
+            int pages = (int) Math.min(INCREMENTAL_STEP_PAGES, target - freed);
+            // executeUpdate执行到语句结束；execute每次只释放一页
+            stmt.executeUpdate("PRAGMA incremental_vacuum(" + pages + ")");
+            freed += pages;
+            progress(listener, "已回收 " + freed + " / " + target + " 页", (int) (freed * 100 / target));
+        }
+        report.messages.add("回收了 " + freed + " 个空闲页");
+    }
+
+    private void checkpoint(Statement stmt, String mode, Report report) throws SQLException {
+        if (!"wal".equalsIgnoreCase(report.before.journalMode)) {
+            report.messages.add("数据库不是WAL模式，不需要检查点");
+            return;
+        }
+        ResultSet resultSet = stmt.executeQuery("PRAGMA wal_checkpoint(" + mode + ")");
+        try {
+            if (resultSet.next()) {
+                boolean busy = resultSet.getInt(1) != 0;
+                report.messages.add(String.format("WAL中共 %d 页，已写回数据库 %d 页%s", resultSet.getInt(2), resultSet.getInt(3),
+                        busy ? "（有其他连接正在读写，检查点未能全部完成）" : ""));
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    private static void collectRows(Statement stmt, String sql, Report report, String prefix) throws SQLException {
+        ResultSet resultSet = stmt.executeQuery(sql);
+        try {
+            while (resultSet.next()) {
+                report.messages.add(prefix + resultSet.getString(1));
+            }
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    private static void progress(Listener listener, String message, int percent) {
+        if (listener != null) {
+            listener.progress(message, percent);
+        }
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        ResultSet resultSet = stmt.executeQuery(sql);
+        try {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } finally {
+            resultSet.close();
+        }
+    }
+}
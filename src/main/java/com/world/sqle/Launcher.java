@@ -0,0 +1,15 @@
+package com.world.sqle;
+
+/**
+ * jar的入口：没有参数时启动图形界面，有参数时以命令行模式运行（见SQLiteCli）。
+ * 本类不引用任何AWT/Swing类，命令行模式不会初始化图形环境。
+ */
+public class Launcher {
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            SQLiteEditor.main(args);
+        } else {
+            SQLiteCli.main(args);
+        }
+    }
+}
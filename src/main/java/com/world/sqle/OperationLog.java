@@ -0,0 +1,170 @@
+package com.world.sqle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultCaret;
+import javax.swing.text.Element;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 操作日志：任意线程都可以调用append，新条目先放入有界缓冲区，由Swing定时器按固定帧率合并追加到文本区域，
+ * 文本区域只保留最近的maxLines行。每条日志同时在后台线程中写入SLF4J日志文件，便于事后分析。
+ */
+public class OperationLog {
+    public static final int DEFAULT_MAX_LINES = 1000;
+    // 每秒最多刷新界面约20次
+    private static final int FLUSH_INTERVAL_MS = 50;
+    // 后台写文件的队列上限，超过时丢弃新条目而不阻塞调用线程
+    private static final int MAX_QUEUED = 10000;
+    // 每次启动时轮转日志文件，保留最近MAX_LOG_FILES次运行的日志
+    private static final int MAX_LOG_FILES = 5;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    private final JTextArea area;
+    private final int maxLines;
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private boolean flushScheduled;
+    private final Timer flushTimer;
+    private final Logger logger = LoggerFactory.getLogger("operations");
+    private final ExecutorService fileWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(MAX_QUEUED), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "operation-log");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    public OperationLog(JTextArea area) {
+        this(area, DEFAULT_MAX_LINES);
+    }
+
+    public OperationLog(JTextArea area, int maxLines) {
+        this.area = area;
+        this.maxLines = maxLines;
+        // 滚动由flush统一处理，追加文本时不移动光标
+        ((DefaultCaret) area.getCaret()).setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
+        flushTimer = new Timer(FLUSH_INTERVAL_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                flush();
+            }
+        });
+        flushTimer.setRepeats(false);
+        // 退出时把队列中剩余的条目写入文件
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                fileWriter.shutdown();
+                try {
+                    fileWriter.awaitTermination(2, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "operation-log-shutdown"));
+    }
+
+    // 可在任意线程调用
+    public void append(final String message) {
+        String line = "[" + LocalTime.now().format(TIME_FORMAT) + "] " + message;
+        boolean schedule;
+        synchronized (pending) {
+            // 界面来不及刷新时只保留最新的maxLines行
+            if (pending.size() >= maxLines) {
+                pending.pollFirst();
+            }
+            pending.addLast(line);
+            schedule = !flushScheduled;
+            flushScheduled = true;
+        }
+        if (schedule) {
+            if (SwingUtilities.isEventDispatchThread()) {
+                flushTimer.start();
+            } else {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        flushTimer.start();
+                    }
+                });
+            }
+        }
+        fileWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                logger.info(message);
+            }
+        });
+    }
+
+    // 在事件调度线程中把缓冲的条目一次追加到文本区域，并删除超出maxLines的旧行
+    private void flush() {
+        StringBuilder text = new StringBuilder();
+        synchronized (pending) {
+            for (String line : pending) {
+                text.append(line).append('\n');
+            }
+            pending.clear();
+            flushScheduled = false;
+        }
+        if (text.length() == 0) {
+            return;
+        }
+        area.append(text.toString());
+        Element root = area.getDocument().getDefaultRootElement();
+        // 文本以换行结尾，最后一个元素是空行
+        int excess = root.getElementCount() - 1 - maxLines;
+        if (excess > 0) {
+            try {
+                area.getDocument().remove(0, root.getElement(excess).getStartOffset());
+            } catch (BadLocationException ex) {
+                // 偏移量取自文档本身，不会越界
+            }
+        }
+        area.setCaretPosition(area.getDocument().getLength());
+    }
+
+    /**
+     * 配置slf4j-simple把日志写入用户目录下的文件。slf4j-simple打开文件时会清空内容，因此先把上次运行的日志轮转为.1、.2……
+     * 必须在第一次使用SLF4J（包括SQLite驱动加载）之前调用；已经通过系统属性指定了日志文件时不做修改。
+     */
+    public static File configureFileLog() {
+        String configured = System.getProperty("org.slf4j.simpleLogger.logFile");
+        if (configured != null) {
+            return new File(configured);
+        }
+        File directory = new File(System.getProperty("user.home"), ".sqlite-editor");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return null;
+        }
+        File file = new File(directory, "operations.log");
+        if (file.length() > 0) {
+            new File(directory, "operations.log." + MAX_LOG_FILES).delete();
+            for (int i = MAX_LOG_FILES - 1; i >= 1; i--) {
+                new File(directory, "operations.log." + i).renameTo(new File(directory, "operations.log." + (i + 1)));
+            }
+            file.renameTo(new File(directory, "operations.log.1"));
+        }
+        System.setProperty("org.slf4j.simpleLogger.logFile", file.getAbsolutePath());
+        if (System.getProperty("org.slf4j.simpleLogger.showDateTime") == null) {
+            System.setProperty("org.slf4j.simpleLogger.showDateTime", "true");
+            System.setProperty("org.slf4j.simpleLogger.dateTimeFormat", "yyyy-MM-dd HH:mm:ss.SSS");
+        }
+        return file;
+    }
+}
@@ -0,0 +1,596 @@
+package com.world.sqle;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * 按需分页加载的查询结果表格模型。
+ * 只缓存可见区域附近的若干页数据，超出上限的页按LRU淘汰，内存占用与结果集大小无关。
+ * 指定了只读连接池时，后续页面从池中借用连接读取，可以与主连接上的操作并行。
+ * 语句中的参数占位符在每次读取时按相同的值重新绑定。
+ * 打开时只读取第一页就显示，不先统计行数：第一页满页时行数暂为已读取的行数加一（最后一行显示为加载中），
+ * 滚动到末尾时加载下一页并随之增加；有只读连接池且数据库为WAL模式时同时在后台统计总行数，统计完成后一次更新为实际行数。
+ * 回滚日志模式下统计期间持有的共享锁会让主连接的提交失败，因此不在后台统计；结果被替换时中断正在进行的统计。
+ */
+public class PagedResultTableModel extends AbstractTableModel {
+    public static final int PAGE_SIZE = 500;
+    // 最多缓存的页数
+    private static final int MAX_CACHED_PAGES = 40;
+    // 访问某页时顺带预取前后相邻的页数
+    private static final int PREFETCH_PAGES = 1;
+
+    // 尚未加载的单元格显示的占位值
+    public static final Object LOADING = new Object() {
+        @Override
+        public String toString() {
+            return "…";
+        }
+    };
+
+    // 每次执行结果都可能不同的函数，调用了这些函数的查询不使用结果缓存
+    private static final Set<String> VOLATILE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "random", "randomblob", "changes", "total_changes", "last_insert_rowid"));
+    // 不带参数或以'now'为时间参数时取当前时间的日期函数
+    private static final Set<String> DATE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "date", "time", "datetime", "julianday", "unixepoch", "strftime"));
+    private static final Set<String> CURRENT_TIME_KEYWORDS = new HashSet<>(Arrays.asList(
+            "current_date", "current_time", "current_timestamp"));
+
+    // 页面加载或统计行数失败时在事件调度线程回调
+    public interface ErrorHandler {
+        void pageLoadFailed(SQLException ex);
+    }
+
+    private final ReadConnectionPool pool;
+    private final PreparedStatementCache statementCache;
+    private final String sql;
+    private final Object[] parameters;
+    private final String pageSql;
+    // 第一页读取后确定
+    private String[] columnNames;
+    private final Executor loader;
+    private final ErrorHandler errorHandler;
+    // open()中读取第一页所用的时间
+    private long firstPageNanos;
+    private long firstPageBytes;
+    // 行数和页面的缓存，为null时不缓存；cacheVersion为打开时的数据库版本
+    private ResultCache resultCache;
+    private String cacheVersion;
+    private boolean fromCache;
+
+    // 只在事件调度线程访问
+    private final Map<Integer, ColumnarResultStore> pages = new LinkedHashMap<Integer, ColumnarResultStore>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, ColumnarResultStore> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loadingPages = new HashSet<>();
+    // 行数还没有确定时是已知的最少行数加一
+    private int rowCount;
+    private boolean rowCountKnown;
+    private int lastAccessedPage = -1;
+    private volatile boolean disposed;
+    // 正在执行的后台统计语句，dispose()时中断
+    private volatile Statement countStatement;
+
+    private PagedResultTableModel(ReadConnectionPool pool, PreparedStatementCache statementCache,
+                                  String sql, Object[] parameters, Executor loader, ErrorHandler errorHandler) {
+        this.pool = pool;
+        this.statementCache = statementCache;
+        this.sql = sql;
+        this.parameters = parameters != null ? parameters : new Object[0];
+        this.pageSql = pageSql(sql);
+        this.loader = loader;
+        this.errorHandler = errorHandler;
+    }
+
+    // 判断语句能否包装成子查询分页读取：只支持单条SELECT/WITH/VALUES语句，跳过开头的注释
+    public static boolean isPageable(String sql) {
+        String keyword = null;
+        boolean ended = false;
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            SqlLexer.TokenType type = token.getType();
+            if (type == SqlLexer.TokenType.WHITESPACE || type == SqlLexer.TokenType.COMMENT) {
+                continue;
+            }
+            if (type == SqlLexer.TokenType.SEMICOLON) {
+                ended = keyword != null;
+            } else if (ended) {
+                // 分号之后还有其他语句
+                return false;
+            } else if (keyword == null) {
+                keyword = token.getText().toUpperCase(Locale.ROOT);
+            }
+        }
+        return "SELECT".equals(keyword) || "WITH".equals(keyword) || "VALUES".equals(keyword);
+    }
+
+    // 判断查询结果能否缓存：调用了随机数、连接状态或当前时间函数的查询每次执行结果都可能不同
+    public static boolean isCacheable(String sql) {
+        List<SqlLexer.Token> tokens = new ArrayList<>();
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            if (token.getType() != SqlLexer.TokenType.WHITESPACE && token.getType() != SqlLexer.TokenType.COMMENT) {
+                tokens.add(token);
+            }
+        }
+        for (int i = 0; i < tokens.size(); i++) {
+            SqlLexer.Token token = tokens.get(i);
+            if (token.getType() != SqlLexer.TokenType.WORD) {
+                continue;
+            }
+            String name = token.getText().toLowerCase(Locale.ROOT);
+            if (CURRENT_TIME_KEYWORDS.contains(name)) {
+                return false;
+            }
+            boolean call = i + 1 < tokens.size() && tokens.get(i + 1).getText().equals("(");
+            if (!call) {
+                continue;
+            }
+            if (VOLATILE_FUNCTIONS.contains(name)) {
+                return false;
+            }
+            if (DATE_FUNCTIONS.contains(name) && readsCurrentTime(tokens, i + 1, name.equals("strftime") ? 1 : 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // open指向函数调用的左括号；时间参数（strftime的第一个参数是格式）缺省或为'now'时取当前时间
+    private static boolean readsCurrentTime(List<SqlLexer.Token> tokens, int open, int timeArgument) {
+        int depth = 0;
+        int arguments = 0;
+        for (int i = open; i < tokens.size(); i++) {
+            SqlLexer.Token token = tokens.get(i);
+            String text = token.getText();
+            if (text.equals("(")) {
+                depth++;
+            } else if (text.equals(")")) {
+                if (--depth == 0) {
+                    // 参数个数不超过时间参数的位置，说明没有给出时间
+                    return i == open + 1 || arguments < timeArgument;
+                }
+            } else if (depth == 1 && text.equals(",")) {
+                arguments++;
+            } else if (token.getType() == SqlLexer.TokenType.STRING && text.equalsIgnoreCase("'now'")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 去掉末尾的分号和注释，语句可以放进子查询的括号中（行注释会把右括号注释掉）
+    public static String stripTrailingSemicolons(String sql) {
+        int end = 0;
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            SqlLexer.TokenType type = token.getType();
+            if (type != SqlLexer.TokenType.WHITESPACE && type != SqlLexer.TokenType.COMMENT
+                    && type != SqlLexer.TokenType.SEMICOLON) {
+                end = token.getEnd();
+            }
+        }
+        return sql.substring(0, end).trim();
+    }
+
+    // LIMIT和OFFSET的占位符编号排在语句自身的参数之后
+    private static String pageSql(String body) {
+        return "SELECT * FROM (" + body + ") LIMIT ? OFFSET ?";
+    }
+
+    // 在主连接的工作线程调用：读取列名并同步加载第一页，语句从statementCache中获取。
+    // pool为null时后续页面也在主连接上读取，loader必须是主连接的工作线程；这时不在后台统计行数，以免长时间占用主连接；
+    // 不是WAL模式时也不在后台统计
+    public static PagedResultTableModel open(ReadConnectionPool pool,
+                                             PreparedStatementCache statementCache, String sql, Object[] parameters,
+                                             Executor loader, ErrorHandler errorHandler) throws SQLException {
+        return open(pool, statementCache, null, null, sql, parameters, loader, errorHandler);
+    }
+
+    // resultCache不为null时先从缓存中查找行数和页面，cacheVersion是当前的数据库版本；isCacheable()为false的语句不使用缓存
+    public static PagedResultTableModel open(ReadConnectionPool pool, PreparedStatementCache statementCache,
+                                             ResultCache resultCache, String cacheVersion, String sql, Object[] parameters,
+                                             Executor loader, ErrorHandler errorHandler) throws SQLException {
+        String body = stripTrailingSemicolons(sql);
+        long start = System.nanoTime();
+        PagedResultTableModel model = new PagedResultTableModel(pool, statementCache, body, parameters, loader, errorHandler);
+        if (!isCacheable(body)) {
+            resultCache = null;
+        }
+        model.resultCache = resultCache;
+        model.cacheVersion = cacheVersion;
+
+        Object cachedCount = resultCache != null ? resultCache.get(model.cacheKey("count"), cacheVersion) : null;
+        Object cachedPage = resultCache != null ? resultCache.get(model.cacheKey("page:0"), cacheVersion) : null;
+        ColumnarResultStore page;
+        if (cachedPage != null) {
+            page = (ColumnarResultStore) cachedPage;
+            model.columnNames = page.getColumnNames();
+            model.fromCache = cachedCount != null;
+        } else {
+            PreparedStatement pageStmt = statementCache.prepare(model.pageSql);
+            ResultSet firstPage = model.executePage(pageStmt, 0);
+            try {
+                ResultSetMetaData metaData = firstPage.getMetaData();
+                String[] columnNames = new String[metaData.getColumnCount()];
+                for (int i = 0; i < columnNames.length; i++) {
+                    columnNames[i] = metaData.getColumnName(i + 1);
+                }
+                model.columnNames = columnNames;
+                page = ColumnarResultStore.read(firstPage, PAGE_SIZE);
+            } finally {
+                firstPage.close();
+            }
+            model.cachePage(0, page);
+        }
+        model.pages.put(0, page);
+        model.firstPageNanos = System.nanoTime() - start;
+        model.firstPageBytes = page.estimatedBytes();
+
+        if (cachedCount != null) {
+            model.rowCount = (Integer) cachedCount;
+            model.rowCountKnown = true;
+        } else {
+            model.growRowCount(0, page);
+            if (!model.rowCountKnown && pool != null && isWal(statementCache)) {
+                model.countInBackground();
+            }
+        }
+        return model;
+    }
+
+    // 只有WAL模式下读取不阻塞其他连接的提交
+    private static boolean isWal(PreparedStatementCache statementCache) throws SQLException {
+        ResultSet resultSet = statementCache.prepare("PRAGMA journal_mode").executeQuery();
+        try {
+            return resultSet.next() && "wal".equalsIgnoreCase(resultSet.getString(1));
+        } finally {
+            resultSet.close();
+        }
+    }
+
+    private ResultSet executePage(PreparedStatement stmt, int pageIndex) throws SQLException {
+        PreparedStatementCache.bind(stmt, parameters);
+        int count = stmt.getParameterMetaData().getParameterCount();
+        stmt.setInt(count - 1, PAGE_SIZE);
+        stmt.setLong(count, (long) pageIndex * PAGE_SIZE);
+        return stmt.executeQuery();
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    public Object[] getParameters() {
+        return parameters.clone();
+    }
+
+    // 行数和第一页都来自结果缓存
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public long getFirstPageNanos() {
+        return firstPageNanos;
+    }
+
+    // 第一页在内存中的估算大小
+    public long getFirstPageBytes() {
+        return firstPageBytes;
+    }
+
+    // 总行数已经确定；否则getRowCount()是已知的最少行数加一
+    public boolean isRowCountKnown() {
+        return rowCountKnown;
+    }
+
+    // 已经确定存在的行数
+    public int getKnownRowCount() {
+        return rowCountKnown ? rowCount : rowCount - 1;
+    }
+
+    // 当前已缓存在内存中的行数
+    public int getLoadedRowCount() {
+        int loaded = 0;
+        for (ColumnarResultStore page : pages.values()) {
+            loaded += page.getRowCount();
+        }
+        return loaded;
+    }
+
+    // 结果被替换后调用，丢弃之后返回的页面，中断后台统计以释放只读连接
+    public void dispose() {
+        disposed = true;
+        pages.clear();
+        loadingPages.clear();
+        cancelCount();
+    }
+
+    private void cancelCount() {
+        Statement stmt = countStatement;
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException ex) {
+                // 语句已经结束
+            }
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        if (pageIndex != lastAccessedPage) {
+            lastAccessedPage = pageIndex;
+            prefetchAround(pageIndex);
+        }
+
+        ColumnarResultStore page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return LOADING;
+        }
+        int offset = row - pageIndex * PAGE_SIZE;
+        if (offset >= page.getRowCount()) {
+            return null;
+        }
+        return page.getValue(offset, column);
+    }
+
+    // 读取已缓存的值，不触发页面加载；未加载时返回LOADING
+    public Object peekValueAt(int row, int column) {
+        int pageIndex = row / PAGE_SIZE;
+        ColumnarResultStore page = pages.get(pageIndex);
+        if (page == null) {
+            return LOADING;
+        }
+        int offset = row - pageIndex * PAGE_SIZE;
+        return offset < page.getRowCount() ? page.getValue(offset, column) : null;
+    }
+
+    private void prefetchAround(int pageIndex) {
+        int lastPage = (rowCount - 1) / PAGE_SIZE;
+        for (int p = Math.max(0, pageIndex - PREFETCH_PAGES); p <= Math.min(lastPage, pageIndex + PREFETCH_PAGES); p++) {
+            if (!pages.containsKey(p)) {
+                requestPage(p);
+            }
+        }
+    }
+
+    private void requestPage(final int pageIndex) {
+        if (disposed || !loadingPages.add(pageIndex)) {
+            return;
+        }
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (disposed) {
+                    return;
+                }
+                try {
+                    final ColumnarResultStore page = loadPage(pageIndex);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            pageLoaded(pageIndex, page);
+                        }
+                    });
+                } catch (final SQLException ex) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadingPages.remove(pageIndex);
+                            if (!disposed && errorHandler != null) {
+                                errorHandler.pageLoadFailed(ex);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private void pageLoaded(int pageIndex, ColumnarResultStore page) {
+        loadingPages.remove(pageIndex);
+        if (disposed) {
+            return;
+        }
+        pages.put(pageIndex, page);
+        int firstRow = pageIndex * PAGE_SIZE;
+        int lastRow = Math.min(rowCount, firstRow + PAGE_SIZE) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+        if (!rowCountKnown) {
+            setRowCount(pageIndex, page);
+        }
+    }
+
+    // 行数还没有确定时，根据读到的页面修正：不满一页说明已到末尾，满页时末尾保留一行占位，滚动到该行时加载下一页
+    private void growRowCount(int pageIndex, ColumnarResultStore page) {
+        int rows = pageIndex * PAGE_SIZE + page.getRowCount();
+        if (page.getRowCount() < PAGE_SIZE) {
+            rowCount = rows;
+            rowCountKnown = true;
+        } else {
+            rowCount = Math.max(rowCount, rows + 1);
+        }
+    }
+
+    private void setRowCount(int pageIndex, ColumnarResultStore page) {
+        int oldCount = rowCount;
+        growRowCount(pageIndex, page);
+        fireRowCountChanged(oldCount);
+        if (rowCountKnown && resultCache != null) {
+            resultCache.put(cacheKey("count"), cacheVersion, rowCount, ResultCache.SCALAR_BYTES);
+        }
+    }
+
+    private void fireRowCountChanged(int oldCount) {
+        if (rowCount > oldCount) {
+            fireTableRowsInserted(oldCount, rowCount - 1);
+        } else if (rowCount < oldCount) {
+            fireTableRowsDeleted(rowCount, oldCount - 1);
+        }
+    }
+
+    // 在只读连接上完整执行一次查询统计行数，不影响已显示的页面
+    private void countInBackground() {
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (disposed) {
+                    return;
+                }
+                try {
+                    final long count = countRows();
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (disposed || rowCountKnown) {
+                                return;
+                            }
+                            int oldCount = rowCount;
+                            rowCount = (int) Math.min(count, Integer.MAX_VALUE);
+                            rowCountKnown = true;
+                            fireRowCountChanged(oldCount);
+                            if (resultCache != null) {
+                                resultCache.put(cacheKey("count"), cacheVersion, rowCount, ResultCache.SCALAR_BYTES);
+                            }
+                        }
+                    });
+                } catch (final SQLException ex) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            // 行数仍随页面加载增加
+                            if (!disposed && errorHandler != null) {
+                                errorHandler.pageLoadFailed(ex);
+                            }
+                        }
+                    });
+                }
+            }
+        });
+    }
+
+    private long countRows() throws SQLException {
+        Connection readConnection;
+        try {
+            readConnection = pool.borrow();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("统计行数已中断", ex);
+        }
+        try {
+            PreparedStatement stmt = readConnection.prepareStatement("SELECT COUNT(*) FROM (" + sql + ")");
+            countStatement = stmt;
+            try {
+                // 在设置countStatement之前调用的dispose()中断不到这条语句
+                if (disposed) {
+                    throw new SQLException("统计行数已取消");
+                }
+                PreparedStatementCache.bind(stmt, parameters);
+                ResultSet resultSet = stmt.executeQuery();
+                try {
+                    resultSet.next();
+                    return resultSet.getLong(1);
+                } finally {
+                    resultSet.close();
+                }
+            } finally {
+                countStatement = null;
+                stmt.close();
+            }
+        } finally {
+            pool.release(readConnection);
+        }
+    }
+
+    private String cacheKey(String part) {
+        return ResultCache.key(sql, parameters, part);
+    }
+
+    private void cachePage(int pageIndex, ColumnarResultStore page) {
+        if (resultCache != null) {
+            resultCache.put(cacheKey("page:" + pageIndex), cacheVersion, page, page.estimatedBytes());
+        }
+    }
+
+    // 在加载线程执行，先查找结果缓存
+    private ColumnarResultStore loadPage(int pageIndex) throws SQLException {
+        if (resultCache != null) {
+            Object cached = resultCache.get(cacheKey("page:" + pageIndex), cacheVersion);
+            if (cached != null) {
+                return (ColumnarResultStore) cached;
+            }
+        }
+        ColumnarResultStore page = readPage(pageIndex);
+        cachePage(pageIndex, page);
+        return page;
+    }
+
+    private ColumnarResultStore readPage(int pageIndex) throws SQLException {
+        if (pool == null) {
+            // 加载线程就是主连接的工作线程，可以使用缓存的语句
+            ResultSet resultSet = executePage(statementCache.prepare(pageSql), pageIndex);
+            try {
+                return ColumnarResultStore.read(resultSet, PAGE_SIZE);
+            } finally {
+                resultSet.close();
+            }
+        }
+        Connection readConnection;
+        try {
+            readConnection = pool.borrow();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("加载已中断", ex);
+        }
+        try {
+            PreparedStatement stmt = readConnection.prepareStatement(pageSql);
+            try {
+                ResultSet resultSet = executePage(stmt, pageIndex);
+                try {
+                    return ColumnarResultStore.read(resultSet, PAGE_SIZE);
+                } finally {
+                    resultSet.close();
+                }
+            } finally {
+                stmt.close();
+            }
+        } finally {
+            pool.release(readConnection);
+        }
+    }
+}
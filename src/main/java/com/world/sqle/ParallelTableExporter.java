@@ -0,0 +1,319 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按rowid范围把一张表分成多个分区并行导出。rowid通过SchemaCache.Table.getRowidAlias()选取没有被列名占用的名称，
+ * 视图、WITHOUT ROWID表和rowid、_rowid_、oid都是列名的表不能并行导出。
+ * 每个分区从只读连接池（按当前连接配置打开）借用独立的连接，在各自的工作线程读取、编码，
+ * 最后可以把分区文件按顺序拼接为一个文件（文件头和结尾只写一次）。
+ * 各分区的读取不在同一个快照中，导出前后比较PRAGMA data_version，期间有其他连接提交了修改时导出失败。
+ */
+public class ParallelTableExporter {
+    private final File databaseFile;
+    private final ConnectionProfile profile;
+    private final String tableName;
+    private final int partitions;
+    private final ResultExporter.Format format;
+    private final ResultExporter.Listener listener;
+
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final List<Statement> runningStatements = new CopyOnWriteArrayList<>();
+    private ReadConnectionPool pool;
+    // 读取rowid使用的名称，导出开始时从表结构确定
+    private String rowidAlias;
+
+    public ParallelTableExporter(File databaseFile, ConnectionProfile profile, String tableName, int partitions,
+                                 ResultExporter.Format format, ResultExporter.Listener listener) {
+        this.databaseFile = databaseFile;
+        this.profile = profile;
+        this.tableName = tableName;
+        this.partitions = Math.max(1, partitions);
+        this.format = format;
+        this.listener = listener;
+    }
+
+    // 导出到output；stitch为false时每个分区写入单独的完整文件（output.part1.csv ...）。返回导出的行数
+    public long export(File output, boolean stitch) throws Exception {
+        // 每个分区一个连接，另一个连接在整个导出期间检查数据库是否被修改
+        pool = new ReadConnectionPool(databaseFile, profile, partitions + 1);
+        Connection guard = borrow();
+        try {
+            long dataVersion = dataVersion(guard);
+            rowidAlias = rowidAlias(guard);
+            long rows = export(guard, output, stitch);
+            if (dataVersion(guard) != dataVersion) {
+                deleteOutput(output, stitch);
+                throw new SQLException("导出期间数据库被其他连接修改，各分区的数据可能不一致，请重新导出");
+            }
+            return rows;
+        } finally {
+            pool.release(guard);
+            pool.close();
+        }
+    }
+
+    // 删除导出的文件（包括分区文件）
+    public void deleteOutput(File output, boolean stitch) {
+        output.delete();
+        for (int i = 1; i <= partitions; i++) {
+            partFile(output, i).delete();
+        }
+    }
+
+    private long export(Connection guard, File output, boolean stitch) throws Exception {
+        long[] range = rowidRange(guard);
+        if (range == null) {
+            // 空表只写文件头和结尾
+            writeFrame(guard, output, null);
+            return 0;
+        }
+
+        // 按rowid等宽划分，最后一个分区包含上界；rowid接近long的边界时差值会溢出，用BigInteger计算
+        long min = range[0];
+        long max = range[1];
+        BigInteger span = BigInteger.valueOf(max).subtract(BigInteger.valueOf(min)).add(BigInteger.ONE);
+        int count = span.min(BigInteger.valueOf(partitions)).intValue();
+        List<File> partFiles = new ArrayList<>();
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final long from = partitionStart(min, span, i, count);
+            final long to = i == count - 1 ? max : partitionStart(min, span, i + 1, count) - 1;
+            final File partFile = partFile(output, i + 1);
+            final boolean complete = !stitch;
+            partFiles.add(partFile);
+            tasks.add(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    return exportPartition(from, to, partFile, complete);
+                }
+            });
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(count);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            for (Callable<Long> task : tasks) {
+                futures.add(workers.submit(task));
+            }
+            long rows = 0;
+            for (Future<Long> future : futures) {
+                rows += waitFor(future);
+            }
+            if (stitch) {
+                writeFrame(guard, output, partFiles);
+            }
+            return rows;
+        } catch (Exception ex) {
+            // 任一分区失败或被取消时中止其余分区，并删除不完整的文件
+            cancelAll(futures);
+            workers.shutdownNow();
+            workers.awaitTermination(5, TimeUnit.SECONDS);
+            for (File partFile : partFiles) {
+                partFile.delete();
+            }
+            throw ex;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    // 第index个分区的起始rowid：min + span * index / count
+    private static long partitionStart(long min, BigInteger span, int index, int count) {
+        return BigInteger.valueOf(min).add(span.multiply(BigInteger.valueOf(index)).divide(BigInteger.valueOf(count)))
+                .longValue();
+    }
+
+    private Connection borrow() throws SQLException {
+        try {
+            return pool.borrow();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("导出已中断", ex);
+        }
+    }
+
+    // 其他连接提交修改后，同一连接上读到的值会变化
+    private static long dataVersion(Connection connection) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("PRAGMA data_version");
+            resultSet.next();
+            return resultSet.getLong(1);
+        } finally {
+            stmt.close();
+        }
+    }
+
+    public static File partFile(File output, int index) {
+        String name = output.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        return new File(output.getParentFile(), base + ".part" + index + extension);
+    }
+
+    private long waitFor(Future<Long> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void cancelAll(List<Future<Long>> futures) {
+        for (Statement stmt : runningStatements) {
+            try {
+                stmt.cancel();
+            } catch (SQLException ex) {
+                // 语句可能已经执行完毕
+            }
+        }
+        for (Future<Long> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    // 与TableBrowserModel相同：名为rowid的普通列不是真正的rowid，可能为NULL或重复，按它分区会漏掉或重复导出行
+    private String rowidAlias(Connection connection) throws SQLException {
+        SchemaCache.Table table = new SchemaCache().refresh(connection).getTable(tableName);
+        if (table == null) {
+            throw new SQLException("表不存在: " + tableName);
+        }
+        String alias = table.getRowidAlias();
+        if (alias == null) {
+            throw new SQLException("表没有可用于分区的rowid（视图、WITHOUT ROWID表，或rowid、_rowid_、oid都是列名），不能并行导出: " + tableName);
+        }
+        return alias;
+    }
+
+    // 返回表的最小和最大rowid，空表返回null
+    private long[] rowidRange(Connection connection) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("SELECT min(" + rowidAlias + "), max(" + rowidAlias + ") FROM "
+                    + SqlUtil.quoteIdentifier(tableName));
+            if (!resultSet.next() || resultSet.getObject(1) == null) {
+                return null;
+            }
+            return new long[]{resultSet.getLong(1), resultSet.getLong(2)};
+        } finally {
+            stmt.close();
+        }
+    }
+
+    // complete为true时写入文件头和结尾，否则只写数据，稍后拼接
+    private long exportPartition(long from, long to, File partFile, boolean complete) throws Exception {
+        Connection connection = borrow();
+        PreparedStatement stmt = null;
+        try {
+            // rowid范围条件使用表B树的范围扫描
+            stmt = connection.prepareStatement("SELECT * FROM " + SqlUtil.quoteIdentifier(tableName)
+                    + " WHERE " + rowidAlias + " BETWEEN ? AND ? ORDER BY " + rowidAlias);
+            runningStatements.add(stmt);
+            stmt.setLong(1, from);
+            stmt.setLong(2, to);
+            ResultSet resultSet = stmt.executeQuery();
+
+            Utf8ChannelWriter writer = new Utf8ChannelWriter(FileChannel.open(partFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+            try {
+                return newExporter(new PartitionListener()).export(ResultExporter.fromResultSet(resultSet), writer, format, complete, complete);
+            } finally {
+                writer.close();
+                resultSet.close();
+            }
+        } finally {
+            if (stmt != null) {
+                runningStatements.remove(stmt);
+                stmt.close();
+            }
+            pool.release(connection);
+        }
+    }
+
+    private ResultExporter newExporter(ResultExporter.Listener exportListener) {
+        ResultExporter exporter = new ResultExporter(exportListener);
+        exporter.setTableName(tableName);
+        return exporter;
+    }
+
+    // 写入文件头，按分区顺序追加各分区文件的内容，再写入结尾；完成后删除分区文件
+    private void writeFrame(Connection connection, File output, List<File> partFiles) throws SQLException, IOException {
+        Statement stmt = connection.createStatement();
+        try {
+            // 只用于获取列名和类型
+            ResultSet resultSet = stmt.executeQuery("SELECT * FROM " + SqlUtil.quoteIdentifier(tableName) + " LIMIT 0");
+            FileChannel target = FileChannel.open(output.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            Utf8ChannelWriter writer = new Utf8ChannelWriter(target);
+            try {
+                ResultExporter exporter = newExporter(null);
+                ResultExporter.Source source = ResultExporter.fromResultSet(resultSet);
+                exporter.writeHeader(source, writer, format);
+                writer.flush();
+                if (partFiles != null) {
+                    for (File partFile : partFiles) {
+                        append(partFile, target);
+                        partFile.delete();
+                    }
+                }
+                exporter.writeFooter(source, writer, format);
+            } finally {
+                writer.close();
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static void append(File partFile, FileChannel target) throws IOException {
+        FileChannel source = FileChannel.open(partFile.toPath(), StandardOpenOption.READ);
+        try {
+            long position = 0;
+            long size = source.size();
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    // 把各分区的进度汇总后报告给外部监听器
+    private class PartitionListener implements ResultExporter.Listener {
+        private long lastRows;
+        private long lastBytes;
+
+        @Override
+        public void progress(long rows, long bytes) {
+            long allRows = totalRows.addAndGet(rows - lastRows);
+            long allBytes = totalBytes.addAndGet(bytes - lastBytes);
+            lastRows = rows;
+            lastBytes = bytes;
+            if (listener != null) {
+                listener.progress(allRows, allBytes);
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return listener != null && listener.isCancelled();
+        }
+    }
+}
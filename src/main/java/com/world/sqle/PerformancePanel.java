@@ -0,0 +1,171 @@
+package com.world.sqle;
+
+import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.List;
+
+/**
+ * "性能"标签页：按SQL指纹列出查询的耗时百分位数、行/秒和读取的数据量，
+ * 选中一行后在下方显示各阶段（执行、读取结果、构建模型、渲染等）的耗时分布。
+ */
+public class PerformancePanel extends JPanel {
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final QueryMetrics metrics;
+    private final DefaultTableModel summaryModel;
+    private final JTable summaryTable;
+    private final JTextArea detailArea;
+    private List<QueryMetrics.Profile> profiles;
+
+    public PerformancePanel(QueryMetrics metrics) {
+        super(new BorderLayout());
+        this.metrics = metrics;
+
+        summaryModel = new DefaultTableModel(new Object[]{"SQL指纹", "次数", "p50(ms)", "p95(ms)", "p99(ms)", "最大(ms)",
+                "执行p50", "读取p50", "模型p50", "渲染p50", "行/秒", "读取数据"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        summaryTable = new JTable(summaryModel);
+        summaryTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        summaryTable.getColumnModel().getColumn(0).setPreferredWidth(400);
+        summaryTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                if (!e.getValueIsAdjusting()) {
+                    showDetail();
+                }
+            }
+        });
+
+        detailArea = new JTextArea(9, 80);
+        detailArea.setEditable(false);
+        detailArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+        JButton refreshButton = new JButton("刷新");
+        JButton clearButton = new JButton("清空统计");
+        refreshButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refresh();
+            }
+        });
+        clearButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                PerformancePanel.this.metrics.clear();
+                refresh();
+            }
+        });
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.add(refreshButton);
+        toolbar.add(clearButton);
+        toolbar.add(new JLabel("按总耗时p95从高到低排列；读取数据为结果在内存中的估算大小"));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JScrollPane(summaryTable), new JScrollPane(detailArea));
+        splitPane.setResizeWeight(0.7);
+        add(toolbar, BorderLayout.NORTH);
+        add(splitPane, BorderLayout.CENTER);
+
+        // 切换到该标签页时刷新
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentShown(ComponentEvent e) {
+                refresh();
+            }
+        });
+    }
+
+    // 标签页可见时刷新，在事件调度线程调用
+    public void refreshIfShowing() {
+        if (isShowing()) {
+            refresh();
+        }
+    }
+
+    public void refresh() {
+        String selected = null;
+        int selectedRow = summaryTable.getSelectedRow();
+        if (selectedRow >= 0 && profiles != null && selectedRow < profiles.size()) {
+            selected = profiles.get(selectedRow).getFingerprint();
+        }
+
+        profiles = metrics.snapshot();
+        summaryModel.setRowCount(0);
+        int reselect = -1;
+        for (int i = 0; i < profiles.size(); i++) {
+            QueryMetrics.Profile profile = profiles.get(i);
+            LatencyHistogram total = profile.getHistogram(QueryMetrics.Phase.TOTAL);
+            summaryModel.addRow(new Object[]{profile.getFingerprint(), profile.getCount(),
+                    millis(total.getPercentileNanos(50)), millis(total.getPercentileNanos(95)),
+                    millis(total.getPercentileNanos(99)), millis(total.getMaxNanos()),
+                    median(profile, QueryMetrics.Phase.EXECUTE), median(profile, QueryMetrics.Phase.FETCH),
+                    median(profile, QueryMetrics.Phase.MODEL), median(profile, QueryMetrics.Phase.RENDER),
+                    profile.getRowsPerSecond(), formatBytes(profile.getBytes())});
+            if (profile.getFingerprint().equals(selected)) {
+                reselect = i;
+            }
+        }
+        if (reselect >= 0) {
+            summaryTable.setRowSelectionInterval(reselect, reselect);
+        } else {
+            showDetail();
+        }
+    }
+
+    private void showDetail() {
+        int row = summaryTable.getSelectedRow();
+        if (row < 0 || profiles == null || row >= profiles.size()) {
+            detailArea.setText("选择一条语句查看各阶段的耗时分布");
+            return;
+        }
+        QueryMetrics.Profile profile = profiles.get(row);
+        StringBuilder text = new StringBuilder();
+        text.append(profile.getFingerprint()).append("\n\n");
+        text.append(String.format("%-10s%10s%12s%12s%12s%12s%12s%n", "阶段", "次数", "平均(ms)", "p50(ms)", "p95(ms)", "p99(ms)", "最大(ms)"));
+        for (QueryMetrics.Phase phase : QueryMetrics.Phase.values()) {
+            LatencyHistogram histogram = profile.getHistogram(phase);
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            text.append(String.format("%-10s%10d%12s", phase, histogram.getCount(), millis(histogram.getMeanNanos())));
+            for (double percentile : PERCENTILES) {
+                text.append(String.format("%12s", millis(histogram.getPercentileNanos(percentile))));
+            }
+            text.append(String.format("%12s%n", millis(histogram.getMaxNanos())));
+        }
+        text.append(String.format("%n共 %d 行，%d 行/秒，读取数据 %s", profile.getRows(), profile.getRowsPerSecond(),
+                formatBytes(profile.getBytes())));
+        detailArea.setText(text.toString());
+        detailArea.setCaretPosition(0);
+    }
+
+    private static String median(QueryMetrics.Profile profile, QueryMetrics.Phase phase) {
+        LatencyHistogram histogram = profile.getHistogram(phase);
+        return histogram.getCount() == 0 ? "" : millis(histogram.getPercentileNanos(50));
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format("%.1f KB", bytes / 1024.0);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
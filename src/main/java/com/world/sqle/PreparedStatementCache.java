@@ -0,0 +1,151 @@
+package com.world.sqle;
+
+import java.sql.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按SQL文本缓存一个连接上的PreparedStatement，按LRU淘汰并关闭最久未用的语句。
+ * 重复执行同一条语句时跳过解析和生成执行计划；数据库结构（schema_version）变化后清空缓存。
+ * 只能在使用该连接的工作线程中调用，统计数据可以在任意线程读取。
+ */
+public class PreparedStatementCache {
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final class CachedStatement {
+        final PreparedStatement statement;
+        // 第一次准备语句所用的时间，命中时视为节省的时间
+        final long prepareNanos;
+
+        CachedStatement(PreparedStatement statement, long prepareNanos) {
+            this.statement = statement;
+            this.prepareNanos = prepareNanos;
+        }
+    }
+
+    private final Connection connection;
+    private final Map<String, CachedStatement> statements;
+    private int schemaVersion = -1;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile int size;
+
+    public PreparedStatementCache(Connection connection) {
+        this(connection, DEFAULT_CAPACITY);
+    }
+
+    public PreparedStatementCache(Connection connection, final int capacity) {
+        this.connection = connection;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > capacity) {
+                    closeQuietly(eldest.getValue().statement);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // 返回缓存的语句（已清除上次绑定的参数），没有时准备新语句并放入缓存。调用方不能关闭返回的语句
+    public PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null) {
+            hits.incrementAndGet();
+            savedNanos.addAndGet(cached.prepareNanos);
+            cached.statement.clearParameters();
+            return cached.statement;
+        }
+        long start = System.nanoTime();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        misses.incrementAndGet();
+        statements.put(sql, new CachedStatement(statement, System.nanoTime() - start));
+        size = statements.size();
+        return statement;
+    }
+
+    // 检查schema_version，数据库结构变化时关闭并丢弃所有缓存的语句
+    public void validateSchema() throws SQLException {
+        int version;
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("PRAGMA schema_version");
+            try {
+                version = resultSet.next() ? resultSet.getInt(1) : 0;
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        if (version != schemaVersion) {
+            if (schemaVersion >= 0 && !statements.isEmpty()) {
+                invalidations.incrementAndGet();
+            }
+            clear();
+            schemaVersion = version;
+        }
+    }
+
+    public void clear() {
+        for (CachedStatement cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+        size = 0;
+    }
+
+    // 按顺序绑定参数，null绑定为NULL
+    public static void bind(PreparedStatement stmt, Object[] parameters) throws SQLException {
+        if (parameters == null) {
+            return;
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            Object value = parameters[i];
+            if (value == null) {
+                stmt.setNull(i + 1, Types.NULL);
+            } else if (value instanceof Long || value instanceof Integer) {
+                stmt.setLong(i + 1, ((Number) value).longValue());
+            } else if (value instanceof Double) {
+                stmt.setDouble(i + 1, (Double) value);
+            } else if (value instanceof byte[]) {
+                stmt.setBytes(i + 1, (byte[]) value);
+            } else {
+                stmt.setString(i + 1, value.toString());
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getSavedNanos() {
+        return savedNanos.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ex) {
+            // 忽略关闭时的错误
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.world.sqle;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按SQL指纹（去掉字面量和注释、统一大小写后的语句）汇总查询各阶段的耗时直方图、行数和读取的数据量。
+ * 记录和读取都不加锁，可以在任意线程调用。
+ */
+public class QueryMetrics {
+    // 最多单独统计的指纹数，超出后归入OTHER
+    public static final int MAX_FINGERPRINTS = 200;
+    public static final String OTHER = "(其他语句)";
+
+    public enum Phase {
+        QUEUE("排队"), PREPARE("准备"), EXECUTE("执行"), FETCH("读取结果"), MODEL("构建模型"), RENDER("渲染"), TOTAL("总计");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // 一次执行的各阶段耗时，在执行过程中逐步填写
+    public static final class Sample {
+        private final long[] nanos = new long[Phase.values().length];
+        private long rows;
+        private long bytes;
+
+        public void set(Phase phase, long elapsedNanos) {
+            nanos[phase.ordinal()] = elapsedNanos;
+        }
+
+        public long get(Phase phase) {
+            return nanos[phase.ordinal()];
+        }
+
+        public void setRows(long rows) {
+            this.rows = rows;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public void setBytes(long bytes) {
+            this.bytes = bytes;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        // 日志中显示的耗时明细，省略为0的阶段
+        public String describe() {
+            StringBuilder text = new StringBuilder();
+            for (Phase phase : Phase.values()) {
+                long value = nanos[phase.ordinal()];
+                if (value > 0) {
+                    if (text.length() > 0) {
+                        text.append("，");
+                    }
+                    text.append(phase).append(' ').append(String.format("%.1f ms", value / 1e6));
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    // 同一指纹的累计统计
+    public static final class Profile {
+        private final String fingerprint;
+        private final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+        private final AtomicLong rows = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        // 执行和读取结果所用的时间，用于计算行/秒
+        private final AtomicLong fetchNanos = new AtomicLong();
+        private volatile long lastSeen;
+
+        Profile(String fingerprint) {
+            this.fingerprint = fingerprint;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+        }
+
+        void record(Sample sample) {
+            for (Phase phase : Phase.values()) {
+                long value = sample.get(phase);
+                if (value > 0 || phase == Phase.TOTAL) {
+                    histograms[phase.ordinal()].record(value);
+                }
+            }
+            rows.addAndGet(sample.rows);
+            bytes.addAndGet(sample.bytes);
+            fetchNanos.addAndGet(sample.get(Phase.EXECUTE) + sample.get(Phase.FETCH));
+            lastSeen = System.currentTimeMillis();
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public long getCount() {
+            return histograms[Phase.TOTAL.ordinal()].getCount();
+        }
+
+        public LatencyHistogram getHistogram(Phase phase) {
+            return histograms[phase.ordinal()];
+        }
+
+        public long getRows() {
+            return rows.get();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getRowsPerSecond() {
+            long nanos = fetchNanos.get();
+            return nanos <= 0 ? 0 : rows.get() * 1000000000L / nanos;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+    }
+
+    private final ConcurrentMap<String, Profile> profiles = new ConcurrentHashMap<>();
+
+    public void record(String sql, Sample sample) {
+        String fingerprint = fingerprint(sql);
+        Profile profile = profiles.get(fingerprint);
+        if (profile == null) {
+            if (profiles.size() >= MAX_FINGERPRINTS) {
+                fingerprint = OTHER;
+            }
+            Profile created = new Profile(fingerprint);
+            profile = profiles.putIfAbsent(fingerprint, created);
+            if (profile == null) {
+                profile = created;
+            }
+        }
+        profile.record(sample);
+    }
+
+    // 按总耗时的p95从高到低排序
+    public List<Profile> snapshot() {
+        List<Profile> list = new ArrayList<>(profiles.values());
+        Collections.sort(list, new Comparator<Profile>() {
+            @Override
+            public int compare(Profile a, Profile b) {
+                return Long.compare(b.getHistogram(Phase.TOTAL).getPercentileNanos(95),
+                        a.getHistogram(Phase.TOTAL).getPercentileNanos(95));
+            }
+        });
+        return list;
+    }
+
+    public void clear() {
+        profiles.clear();
+    }
+
+    // 语句指纹：字面量和参数替换为?，去掉注释，合并空白，关键字和标识符转为大写，连续的?列表合并为一个
+    public static String fingerprint(String sql) {
+        StringBuilder text = new StringBuilder();
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            switch (token.getType()) {
+                case COMMENT:
+                case WHITESPACE:
+                    if (text.length() > 0 && text.charAt(text.length() - 1) != ' ') {
+                        text.append(' ');
+                    }
+                    break;
+                case STRING:
+                case NUMBER:
+                case PARAMETER:
+                    text.append('?');
+                    break;
+                case WORD:
+                    text.append(token.getText().toUpperCase(Locale.ROOT));
+                    break;
+                default:
+                    text.append(token.getText());
+                    break;
+            }
+            if (text.length() > 2000) {
+                break;
+            }
+        }
+        String result = text.toString().trim();
+        while (result.endsWith(";")) {
+            result = result.substring(0, result.length() - 1).trim();
+        }
+        return result.replaceAll("\\?(\\s*,\\s*\\?)+", "?, ...");
+    }
+}
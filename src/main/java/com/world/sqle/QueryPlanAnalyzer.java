@@ -0,0 +1,493 @@
+package com.world.sqle;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 执行EXPLAIN QUERY PLAN并分析执行计划：标出对大表的全表扫描和临时B树排序，
+ * 根据语句中WHERE/ON条件和ORDER BY/GROUP BY中的列为被扫描的表推荐索引。
+ * 列的识别基于词法分析而不是完整的语法解析，只推荐确实存在于表中、且没有被已有索引覆盖的列。
+ */
+public class QueryPlanAnalyzer {
+    // 行数达到该值的表上的全表扫描视为问题
+    public static final long LARGE_TABLE_ROWS = 10000;
+    private static final int MAX_INDEX_COLUMNS = 4;
+
+    private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "SELECT", "FROM", "WHERE", "AND", "OR", "NOT", "NULL", "IN", "IS", "LIKE", "GLOB", "BETWEEN", "EXISTS",
+            "JOIN", "INNER", "LEFT", "RIGHT", "FULL", "OUTER", "CROSS", "NATURAL", "ON", "USING", "AS", "ORDER", "GROUP",
+            "BY", "HAVING", "LIMIT", "OFFSET", "ASC", "DESC", "UNION", "ALL", "INTERSECT", "EXCEPT", "DISTINCT", "CASE",
+            "WHEN", "THEN", "ELSE", "END", "WITH", "VALUES", "COLLATE", "ESCAPE", "INDEXED", "UPDATE", "DELETE", "SET",
+            "INSERT", "INTO", "REPLACE", "RETURNING", "WINDOW", "OVER", "PARTITION", "TRUE", "FALSE", "MATCH", "REGEXP"));
+
+    // 执行计划中的一步
+    public static final class PlanNode {
+        private final int id;
+        private final int parent;
+        private final String detail;
+        private final List<PlanNode> children = new ArrayList<>();
+        private String warning;
+
+        PlanNode(int id, int parent, String detail) {
+            this.id = id;
+            this.parent = parent;
+            this.detail = detail;
+        }
+
+        public String getDetail() {
+            return detail;
+        }
+
+        public List<PlanNode> getChildren() {
+            return children;
+        }
+
+        // 需要注意的问题，没有时为null
+        public String getWarning() {
+            return warning;
+        }
+
+        @Override
+        public String toString() {
+            return warning != null ? detail + "  ⚠ " + warning : detail;
+        }
+    }
+
+    // 推荐的索引
+    public static final class Recommendation {
+        private final String table;
+        private final List<String> columns;
+        private final String sql;
+
+        Recommendation(String table, List<String> columns, String sql) {
+            this.table = table;
+            this.columns = columns;
+            this.sql = sql;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public List<String> getColumns() {
+            return columns;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        @Override
+        public String toString() {
+            return sql;
+        }
+    }
+
+    // 分析结果
+    public static final class Plan {
+        private final List<PlanNode> roots = new ArrayList<>();
+        private final List<String> warnings = new ArrayList<>();
+        private final List<Recommendation> recommendations = new ArrayList<>();
+
+        public List<PlanNode> getRoots() {
+            return roots;
+        }
+
+        public List<String> getWarnings() {
+            return warnings;
+        }
+
+        public List<Recommendation> getRecommendations() {
+            return recommendations;
+        }
+    }
+
+    // 语句中引用列的方式
+    private static final int EQUALITY = 0;
+    private static final int RANGE = 1;
+    private static final int ORDERING = 2;
+
+    private static final class ColumnUse {
+        final String qualifier;
+        final String column;
+        final int kind;
+
+        ColumnUse(String qualifier, String column, int kind) {
+            this.qualifier = qualifier;
+            this.column = column;
+            this.kind = kind;
+        }
+    }
+
+    private QueryPlanAnalyzer() {
+    }
+
+    public static Plan explain(Connection connection, String sql, Object[] parameters) throws SQLException {
+        String body = PagedResultTableModel.stripTrailingSemicolons(sql);
+        Plan plan = new Plan();
+        Map<Integer, PlanNode> nodes = new HashMap<>();
+        List<PlanNode> ordered = new ArrayList<>();
+        PreparedStatement stmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + body);
+        try {
+            PreparedStatementCache.bind(stmt, parameters);
+            ResultSet resultSet = stmt.executeQuery();
+            try {
+                while (resultSet.next()) {
+                    PlanNode node = new PlanNode(resultSet.getInt(1), resultSet.getInt(2), resultSet.getString(4));
+                    nodes.put(node.id, node);
+                    ordered.add(node);
+                }
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        for (PlanNode node : ordered) {
+            PlanNode parent = nodes.get(node.parent);
+            if (parent != null && parent != node) {
+                parent.children.add(node);
+            } else {
+                plan.roots.add(node);
+            }
+        }
+
+        List<SqlLexer.Token> tokens = significantTokens(body);
+        Map<String, String> aliases = tableAliases(tokens);
+        List<ColumnUse> uses = columnUses(tokens);
+        Map<String, Long> rowCounts = new HashMap<>();
+        Set<String> recommended = new HashSet<>();
+
+        for (PlanNode node : ordered) {
+            String detail = node.detail;
+            if (detail.startsWith("USE TEMP B-TREE")) {
+                node.warning = "结果需要额外排序";
+                plan.warnings.add(detail + "：没有可用的索引提供所需顺序，需要在临时B树中排序");
+                continue;
+            }
+            if (!detail.startsWith("SCAN ")) {
+                continue;
+            }
+            String[] words = detail.split("\\s+");
+            String alias = words.length > 1 ? words[1] : "";
+            String table = aliases.containsKey(alias.toLowerCase(Locale.ROOT)) ? aliases.get(alias.toLowerCase(Locale.ROOT)) : alias;
+            List<String> tableColumns = tableColumns(connection, table);
+            if (tableColumns.isEmpty()) {
+                // 子查询、视图展开后的临时结果或虚拟表
+                continue;
+            }
+            Long rows = rowCounts.get(table);
+            if (rows == null) {
+                rows = estimateRowCount(connection, table);
+                rowCounts.put(table, rows);
+            }
+            boolean usingIndex = detail.contains(" USING ");
+            if (rows < LARGE_TABLE_ROWS) {
+                continue;
+            }
+            node.warning = usingIndex ? "完整扫描索引，约 " + rows + " 行" : "全表扫描，约 " + rows + " 行";
+            plan.warnings.add(detail + "：" + node.warning);
+
+            Recommendation recommendation = recommend(connection, table, alias, tableColumns, uses, new HashSet<>(aliases.values()).size() <= 1);
+            if (recommendation != null && recommended.add(recommendation.sql)) {
+                plan.recommendations.add(recommendation);
+            }
+        }
+        return plan;
+    }
+
+    // 等值条件的列在前，然后是一个范围条件的列；没有范围条件时再加上排序/分组的列
+    private static Recommendation recommend(Connection connection, String table, String alias, List<String> tableColumns,
+                                            List<ColumnUse> uses, boolean singleTable) throws SQLException {
+        Map<String, String> byLowerName = new HashMap<>();
+        for (String column : tableColumns) {
+            byLowerName.put(column.toLowerCase(Locale.ROOT), column);
+        }
+        LinkedHashSet<String> columns = new LinkedHashSet<>();
+        boolean rangeAdded = false;
+        for (int kind = EQUALITY; kind <= ORDERING && !rangeAdded; kind++) {
+            for (ColumnUse use : uses) {
+                if (use.kind != kind || columns.size() >= MAX_INDEX_COLUMNS) {
+                    continue;
+                }
+                // 不带表名的列只在单表查询中归属到该表
+                boolean sameTable = use.qualifier != null
+                        ? use.qualifier.equalsIgnoreCase(alias) || use.qualifier.equalsIgnoreCase(table) : singleTable;
+                String column = byLowerName.get(use.column.toLowerCase(Locale.ROOT));
+                if (!sameTable || column == null) {
+                    continue;
+                }
+                if (columns.add(column) && kind == RANGE) {
+                    // 范围条件之后的列无法继续利用索引
+                    rangeAdded = true;
+                    break;
+                }
+            }
+        }
+        if (columns.isEmpty() || coveredByExistingIndex(connection, table, new ArrayList<>(columns))) {
+            return null;
+        }
+        List<String> list = new ArrayList<>(columns);
+        StringBuilder name = new StringBuilder("idx_").append(table);
+        StringBuilder columnList = new StringBuilder();
+        for (String column : list) {
+            name.append('_').append(column);
+            if (columnList.length() > 0) {
+                columnList.append(", ");
+            }
+            columnList.append(SqlUtil.quoteIdentifier(column));
+        }
+        String indexName = name.toString().replaceAll("[^\\p{L}\\p{N}_]", "_");
+        String sql = "CREATE INDEX " + SqlUtil.quoteIdentifier(indexName) + " ON " + SqlUtil.quoteIdentifier(table) + " (" + columnList + ")";
+        return new Recommendation(table, list, sql);
+    }
+
+    // 已有索引的前几列与推荐的列相同时不再推荐
+    private static boolean coveredByExistingIndex(Connection connection, String table, List<String> columns) throws SQLException {
+        Statement stmt = connection.createStatement();
+        // 索引列查询使用独立的Statement，避免关闭外层的索引列表结果集
+        Statement indexStmt = connection.createStatement();
+        try {
+            ResultSet indexes = stmt.executeQuery("PRAGMA index_list(" + SqlUtil.quoteIdentifier(table) + ")");
+            try {
+                while (indexes.next()) {
+                    String indexName = indexes.getString("name");
+                    ResultSet indexColumns = indexStmt.executeQuery("PRAGMA index_info(" + SqlUtil.quoteIdentifier(indexName) + ")");
+                    List<String> existing = new ArrayList<>();
+                    try {
+                        while (indexColumns.next()) {
+                            existing.add(String.valueOf(indexColumns.getString("name")).toLowerCase(Locale.ROOT));
+                        }
+                    } finally {
+                        indexColumns.close();
+                    }
+                    if (existing.size() >= columns.size()) {
+                        boolean covered = true;
+                        for (int i = 0; i < columns.size() && covered; i++) {
+                            covered = existing.get(i).equals(columns.get(i).toLowerCase(Locale.ROOT));
+                        }
+                        if (covered) {
+                            return true;
+                        }
+                    }
+                }
+            } finally {
+                indexes.close();
+            }
+        } finally {
+            indexStmt.close();
+            stmt.close();
+        }
+        return false;
+    }
+
+    private static List<String> tableColumns(Connection connection, String table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("PRAGMA table_info(" + SqlUtil.quoteIdentifier(table) + ")");
+            try {
+                while (resultSet.next()) {
+                    columns.add(resultSet.getString("name"));
+                }
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        return columns;
+    }
+
+    // 优先使用ANALYZE收集的统计，其次用max(rowid)估算，不对大表执行COUNT(*)
+    public static long estimateRowCount(Connection connection, String table) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            try {
+                // 统计值的第一个数是表（或索引）的行数
+                ResultSet stat = stmt.executeQuery("SELECT stat FROM sqlite_stat1 WHERE tbl = " + SqlUtil.quoteLiteral(table)
+                        + " ORDER BY idx IS NOT NULL LIMIT 1");
+                try {
+                    if (stat.next() && stat.getString(1) != null) {
+                        return Long.parseLong(stat.getString(1).split(" ")[0]);
+                    }
+                } finally {
+                    stat.close();
+                }
+            } catch (SQLException | NumberFormatException ex) {
+                // 没有执行过ANALYZE
+            }
+            String query;
+            try {
+                ResultSet probe = stmt.executeQuery("SELECT max(rowid) FROM " + SqlUtil.quoteIdentifier(table));
+                try {
+                    return probe.next() ? probe.getLong(1) : 0;
+                } finally {
+                    probe.close();
+                }
+            } catch (SQLException ex) {
+                // WITHOUT ROWID表
+                query = "SELECT COUNT(*) FROM " + SqlUtil.quoteIdentifier(table);
+            }
+            ResultSet count = stmt.executeQuery(query);
+            try {
+                return count.next() ? count.getLong(1) : 0;
+            } finally {
+                count.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static List<SqlLexer.Token> significantTokens(String sql) {
+        List<SqlLexer.Token> tokens = new ArrayList<>();
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            if (token.getType() != SqlLexer.TokenType.WHITESPACE && token.getType() != SqlLexer.TokenType.COMMENT) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isName(SqlLexer.Token token) {
+        return token.getType() == SqlLexer.TokenType.IDENTIFIER
+                || token.getType() == SqlLexer.TokenType.WORD && !KEYWORDS.contains(upper(token));
+    }
+
+    private static String upper(SqlLexer.Token token) {
+        return token.getText().toUpperCase(Locale.ROOT);
+    }
+
+    private static String name(SqlLexer.Token token) {
+        String text = token.getText();
+        if (token.getType() == SqlLexer.TokenType.IDENTIFIER && text.length() >= 2) {
+            char quote = text.charAt(0);
+            String inner = text.substring(1, text.length() - 1);
+            return quote == '[' ? inner : inner.replace(String.valueOf(quote) + quote, String.valueOf(quote));
+        }
+        return text;
+    }
+
+    // FROM/JOIN后的表名及其别名（小写别名 -> 表名），表名自身也作为别名
+    private static Map<String, String> tableAliases(List<SqlLexer.Token> tokens) {
+        Map<String, String> aliases = new LinkedHashMap<>();
+        boolean inFrom = false;
+        for (int i = 0; i < tokens.size(); i++) {
+            SqlLexer.Token token = tokens.get(i);
+            String word = upper(token);
+            if (token.getType() == SqlLexer.TokenType.WORD && (word.equals("FROM") || word.equals("JOIN")
+                    || word.equals("UPDATE") || word.equals("INTO"))) {
+                inFrom = true;
+                continue;
+            }
+            if (!inFrom) {
+                continue;
+            }
+            if (token.getText().equals(",")) {
+                continue;
+            }
+            if (!isName(token)) {
+                inFrom = false;
+                continue;
+            }
+            // schema.table
+            if (i + 2 < tokens.size() && tokens.get(i + 1).getText().equals(".") && isName(tokens.get(i + 2))) {
+                i += 2;
+                token = tokens.get(i);
+            }
+            String table = name(token);
+            aliases.put(table.toLowerCase(Locale.ROOT), table);
+            int next = i + 1;
+            if (next < tokens.size() && upper(tokens.get(next)).equals("AS")) {
+                next++;
+            }
+            if (next < tokens.size() && isName(tokens.get(next))) {
+                aliases.put(name(tokens.get(next)).toLowerCase(Locale.ROOT), table);
+                i = next;
+            }
+            // 逗号分隔的下一个表
+            inFrom = i + 1 < tokens.size() && tokens.get(i + 1).getText().equals(",");
+        }
+        return aliases;
+    }
+
+    // WHERE/ON/HAVING条件中与值比较的列，以及ORDER BY/GROUP BY中的列
+    private static List<ColumnUse> columnUses(List<SqlLexer.Token> tokens) {
+        List<ColumnUse> uses = new ArrayList<>();
+        int clause = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            SqlLexer.Token token = tokens.get(i);
+            String word = token.getType() == SqlLexer.TokenType.WORD ? upper(token) : "";
+            if (word.equals("WHERE") || word.equals("ON") || word.equals("HAVING")) {
+                clause = EQUALITY;
+                continue;
+            }
+            if ((word.equals("ORDER") || word.equals("GROUP")) && i + 1 < tokens.size() && upper(tokens.get(i + 1)).equals("BY")) {
+                clause = ORDERING;
+                i++;
+                continue;
+            }
+            if (word.equals("SELECT") || word.equals("FROM") || word.equals("LIMIT") || word.equals("JOIN")
+                    || word.equals("UNION") || word.equals("SET") || word.equals("RETURNING") || word.equals("WINDOW")) {
+                clause = -1;
+                continue;
+            }
+            if (clause < 0 || !isName(token)) {
+                continue;
+            }
+            // 函数调用不是列
+            if (i + 1 < tokens.size() && tokens.get(i + 1).getText().equals("(")) {
+                continue;
+            }
+            String qualifier = null;
+            String column = name(token);
+            int last = i;
+            if (i + 2 < tokens.size() && tokens.get(i + 1).getText().equals(".") && isName(tokens.get(i + 2))) {
+                qualifier = column;
+                column = name(tokens.get(i + 2));
+                last = i + 2;
+            }
+            if (clause == ORDERING) {
+                uses.add(new ColumnUse(qualifier, column, ORDERING));
+            } else {
+                int kind = comparisonKind(last + 1 < tokens.size() ? tokens.get(last + 1) : null,
+                        i > 0 ? tokens.get(i - 1) : null);
+                if (kind >= 0) {
+                    uses.add(new ColumnUse(qualifier, column, kind));
+                }
+            }
+            i = last;
+        }
+        return uses;
+    }
+
+    // 列后（或列前）的比较运算决定能否用于索引查找
+    private static int comparisonKind(SqlLexer.Token next, SqlLexer.Token previous) {
+        String after = next != null ? upper(next) : "";
+        String before = previous != null ? previous.getText() : "";
+        if (after.equals("=") || after.equals("==") || after.equals("IN") || after.equals("IS")
+                || before.equals("=") || before.equals("==")) {
+            return EQUALITY;
+        }
+        if (after.equals("<") || after.equals(">") || after.equals("<=") || after.equals(">=") || after.equals("BETWEEN")
+                || after.equals("LIKE") || after.equals("GLOB")
+                || before.equals("<") || before.equals(">") || before.equals("<=") || before.equals(">=")) {
+            return RANGE;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,98 @@
+package com.world.sqle;
+
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 与主连接并存的只读连接池。
+ * 结果分页、表结构读取和导出等后台读取借用池中的连接，可以彼此并行执行，也不占用用户正在编辑的主连接；
+ * WAL模式下读连接之间、读连接与写连接之间互不阻塞。连接在第一次借用时才打开，最多maxSize个。
+ */
+public class ReadConnectionPool {
+    public static final int DEFAULT_SIZE = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private final File databaseFile;
+    private final ConnectionProfile profile;
+    private final int maxSize;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger opened = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ReadConnectionPool(File databaseFile, ConnectionProfile profile, int maxSize) {
+        this.databaseFile = databaseFile;
+        this.profile = profile;
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    // 按连接配置打开只读连接（日志模式只能由读写连接修改）
+    public static Connection openReadOnly(File databaseFile, ConnectionProfile profile) throws SQLException {
+        SQLiteConfig config = profile != null ? profile.toConfig(false) : new SQLiteConfig();
+        config.setReadOnly(true);
+        return DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath(), config.toProperties());
+    }
+
+    // 借用一个连接，池中的连接都在使用时等待归还；用完后必须调用release
+    public Connection borrow() throws SQLException, InterruptedException {
+        while (true) {
+            if (closed) {
+                throw new SQLException("连接池已关闭");
+            }
+            Connection connection = idle.poll();
+            if (connection != null) {
+                return connection;
+            }
+            if (opened.incrementAndGet() <= maxSize) {
+                try {
+                    return openReadOnly(databaseFile, profile);
+                } catch (SQLException ex) {
+                    opened.decrementAndGet();
+                    throw ex;
+                }
+            }
+            opened.decrementAndGet();
+            connection = idle.poll(100, TimeUnit.MILLISECONDS);
+            if (connection != null) {
+                return connection;
+            }
+        }
+    }
+
+    public void release(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        if (closed || !idle.offer(connection)) {
+            closeQuietly(connection);
+        }
+    }
+
+    // 关闭空闲连接；正在使用的连接在归还时关闭
+    public void close() {
+        closed = true;
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            closeQuietly(connection);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private void closeQuietly(Connection connection) {
+        opened.decrementAndGet();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // 忽略关闭时的错误
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.world.sqle;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 只读查询结果的缓存，按估算的内存大小限制总量，超出时按LRU淘汰。
+ * 键为规范化的SQL文本、绑定的参数和结果的部分（行数或某一页）；每个条目记录写入时的数据库版本
+ * （PRAGMA data_version、schema_version和本程序的写操作计数），版本不同时视为失效。
+ * 缓存的ColumnarResultStore写入后不再修改，可以被多个表格模型共享。所有方法都是线程安全的。
+ */
+public class ResultCache {
+    public static final long DEFAULT_CAPACITY_BYTES = 64L * 1024 * 1024;
+    // 行数等标量值的估算大小
+    public static final long SCALAR_BYTES = 64;
+
+    private static final class Entry {
+        final String version;
+        final Object value;
+        final long bytes;
+
+        Entry(String version, Object value, long bytes) {
+            this.version = version;
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long capacityBytes;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ResultCache() {
+        this(DEFAULT_CAPACITY_BYTES);
+    }
+
+    public ResultCache(long capacityBytes) {
+        this.capacityBytes = capacityBytes;
+    }
+
+    // 缓存键：去掉注释、合并空白后的SQL，加上带类型的参数值和结果的部分
+    public static String key(String sql, Object[] parameters, String part) {
+        StringBuilder key = new StringBuilder();
+        for (SqlLexer.Token token : SqlLexer.tokenize(sql)) {
+            SqlLexer.TokenType type = token.getType();
+            if (type == SqlLexer.TokenType.WHITESPACE || type == SqlLexer.TokenType.COMMENT) {
+                if (key.length() > 0 && key.charAt(key.length() - 1) != ' ') {
+                    key.append(' ');
+                }
+            } else if (type != SqlLexer.TokenType.SEMICOLON) {
+                key.append(token.getText());
+            }
+        }
+        key.append('\u0000');
+        if (parameters != null) {
+            for (Object value : parameters) {
+                if (value == null) {
+                    key.append("null");
+                } else if (value instanceof byte[]) {
+                    key.append("blob:").append(ResultExporter.toHex((byte[]) value));
+                } else {
+                    key.append(value.getClass().getSimpleName().toLowerCase(Locale.ROOT)).append(':').append(value);
+                }
+                key.append('\u0000');
+            }
+        }
+        return key.append(part).toString();
+    }
+
+    // 版本不同的条目被移除并返回null
+    public synchronized Object get(String key, String version) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (!entry.version.equals(version)) {
+            remove(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    // 超过总容量四分之一的结果不缓存
+    public synchronized void put(String key, String version, Object value, long bytes) {
+        if (bytes > capacityBytes / 4) {
+            return;
+        }
+        remove(key);
+        entries.put(key, new Entry(version, value, bytes));
+        sizeBytes += bytes;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (sizeBytes > capacityBytes && iterator.hasNext()) {
+            sizeBytes -= iterator.next().bytes;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    private void remove(String key) {
+        Entry old = entries.remove(key);
+        if (old != null) {
+            sizeBytes -= old.bytes;
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
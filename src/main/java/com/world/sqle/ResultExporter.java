@@ -0,0 +1,468 @@
+package com.world.sqle;
+
+import javax.swing.table.TableModel;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 把查询结果逐行写出为CSV、JSON Lines、SQL INSERT语句或二进制列存格式，不在内存中保留结果。
+ * 数据源可以是正在读取的ResultSet，也可以是已经加载到内存的表格模型。
+ */
+public class ResultExporter {
+    // 每写出多少行报告一次进度
+    private static final int PROGRESS_INTERVAL = 4096;
+    // SQL导出时每条INSERT语句包含的行数
+    private static final int ROWS_PER_INSERT = 500;
+
+    public enum Format {
+        CSV("csv", "CSV文件"),
+        JSONL("jsonl", "JSON Lines文件"),
+        SQL("sql", "SQL INSERT语句"),
+        BINARY(BinaryResultFormat.EXTENSION, "二进制列存文件");
+
+        private final String extension;
+        private final String description;
+
+        Format(String extension, String description) {
+            this.extension = extension;
+            this.description = description;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        public static Format forFileName(String fileName) {
+            String lower = fileName.toLowerCase(Locale.ROOT);
+            for (Format format : values()) {
+                if (lower.endsWith("." + format.extension)) {
+                    return format;
+                }
+            }
+            return CSV;
+        }
+    }
+
+    // 导出进度回调，在导出线程中调用
+    public interface Listener {
+        void progress(long rows, long bytes);
+
+        boolean isCancelled();
+    }
+
+    // 逐行读取的数据源
+    public interface Source {
+        int getColumnCount() throws SQLException;
+
+        String getColumnName(int column) throws SQLException;
+
+        // java.sql.Types中的类型
+        int getColumnType(int column) throws SQLException;
+
+        boolean next() throws SQLException;
+
+        Object getValue(int column) throws SQLException;
+    }
+
+    private final Listener listener;
+    private String tableName = "exported";
+
+    public ResultExporter(Listener listener) {
+        this.listener = listener;
+    }
+
+    // SQL格式中INSERT语句的目标表名
+    public void setTableName(String tableName) {
+        this.tableName = tableName;
+    }
+
+    // 导出全部行并返回行数；取消时抛出CancellationException
+    public long export(Source source, Utf8ChannelWriter writer, Format format) throws SQLException, IOException {
+        return export(source, writer, format, true, true);
+    }
+
+    // header/footer为false时只写数据行，用于分区导出后拼接成一个文件
+    public long export(Source source, Utf8ChannelWriter writer, Format format, boolean header, boolean footer)
+            throws SQLException, IOException {
+        RowWriter rowWriter = createRowWriter(format, source, writer);
+        if (header) {
+            rowWriter.header();
+        }
+
+        long rows = 0;
+        while (source.next()) {
+            rowWriter.row();
+            rows++;
+            if (rows % PROGRESS_INTERVAL == 0) {
+                reportProgress(rows, writer);
+            }
+        }
+        rowWriter.finish(footer);
+        writer.flush();
+        if (listener != null) {
+            listener.progress(rows, writer.getBytesWritten());
+        }
+        return rows;
+    }
+
+    public void writeHeader(Source source, Utf8ChannelWriter writer, Format format) throws SQLException, IOException {
+        createRowWriter(format, source, writer).header();
+    }
+
+    public void writeFooter(Source source, Utf8ChannelWriter writer, Format format) throws SQLException, IOException {
+        createRowWriter(format, source, writer).finish(true);
+    }
+
+    private void reportProgress(long rows, Utf8ChannelWriter writer) {
+        if (listener == null) {
+            return;
+        }
+        if (listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("导出已取消");
+        }
+        listener.progress(rows, writer.getBytesWritten());
+    }
+
+    private RowWriter createRowWriter(Format format, Source source, Utf8ChannelWriter writer) throws SQLException {
+        switch (format) {
+            case JSONL:
+                return new JsonLinesWriter(source, writer);
+            case SQL:
+                return new SqlInsertWriter(source, writer, tableName);
+            case BINARY:
+                return new BinaryWriter(source, writer);
+            default:
+                return new CsvWriter(source, writer);
+        }
+    }
+
+    private abstract static class RowWriter {
+        final Source source;
+        final Utf8ChannelWriter writer;
+        final int columnCount;
+
+        RowWriter(Source source, Utf8ChannelWriter writer) throws SQLException {
+            this.source = source;
+            this.writer = writer;
+            this.columnCount = source.getColumnCount();
+        }
+
+        void header() throws SQLException, IOException {
+        }
+
+        abstract void row() throws SQLException, IOException;
+
+        // 写出缓冲的数据；footer为true时同时写入格式的结尾
+        void finish(boolean footer) throws IOException {
+        }
+    }
+
+    private static final class CsvWriter extends RowWriter {
+        CsvWriter(Source source, Utf8ChannelWriter writer) throws SQLException {
+            super(source, writer);
+        }
+
+        @Override
+        void header() throws SQLException, IOException {
+            // 写入列名
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) writer.write(',');
+                writeField(source.getColumnName(i));
+            }
+            writer.write("\r\n");
+        }
+
+        @Override
+        void row() throws SQLException, IOException {
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) writer.write(',');
+                writeField(source.getValue(i));
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(Object value) throws IOException {
+            writer.write('"');
+            if (value instanceof byte[]) {
+                writer.write(toHex((byte[]) value));
+            } else if (value != null) {
+                String text = value.toString();
+                if (text.indexOf('"') >= 0) {
+                    text = text.replace("\"", "\"\"");
+                }
+                writer.write(text);
+            }
+            writer.write('"');
+        }
+    }
+
+    // 每行一个JSON对象，BLOB写为十六进制字符串
+    private static final class JsonLinesWriter extends RowWriter {
+        private final String[] keys;
+
+        JsonLinesWriter(Source source, Utf8ChannelWriter writer) throws SQLException {
+            super(source, writer);
+            keys = new String[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                keys[i] = jsonString(source.getColumnName(i)) + ":";
+            }
+        }
+
+        @Override
+        void row() throws SQLException, IOException {
+            writer.write('{');
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) writer.write(',');
+                writer.write(keys[i]);
+                Object value = source.getValue(i);
+                if (value == null) {
+                    writer.write("null");
+                } else if (value instanceof Double || value instanceof Float) {
+                    double d = ((Number) value).doubleValue();
+                    writer.write(Double.isNaN(d) || Double.isInfinite(d) ? "null" : value.toString());
+                } else if (value instanceof Number) {
+                    writer.write(value.toString());
+                } else if (value instanceof byte[]) {
+                    writer.write('"');
+                    writer.write(toHex((byte[]) value));
+                    writer.write('"');
+                } else {
+                    writer.write(jsonString(value.toString()));
+                }
+            }
+            writer.write("}\n");
+        }
+
+        private static String jsonString(String text) {
+            StringBuilder builder = new StringBuilder(text.length() + 2);
+            builder.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                switch (c) {
+                    case '"':
+                        builder.append("\\\"");
+                        break;
+                    case '\\':
+                        builder.append("\\\\");
+                        break;
+                    case '\n':
+                        builder.append("\\n");
+                        break;
+                    case '\r':
+                        builder.append("\\r");
+                        break;
+                    case '\t':
+                        builder.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            builder.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            builder.append(c);
+                        }
+                }
+            }
+            return builder.append('"').toString();
+        }
+    }
+
+    // 多行VALUES的INSERT语句，整个文件包在一个事务中以便快速导入
+    private static final class SqlInsertWriter extends RowWriter {
+        private final String insertPrefix;
+        private int rowsInStatement;
+
+        SqlInsertWriter(Source source, Utf8ChannelWriter writer, String tableName) throws SQLException {
+            super(source, writer);
+            StringBuilder prefix = new StringBuilder("INSERT INTO ").append(SqlUtil.quoteIdentifier(tableName)).append(" (");
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) prefix.append(", ");
+                prefix.append(SqlUtil.quoteIdentifier(source.getColumnName(i)));
+            }
+            insertPrefix = prefix.append(") VALUES\n").toString();
+        }
+
+        @Override
+        void header() throws IOException {
+            writer.write("BEGIN TRANSACTION;\n");
+        }
+
+        @Override
+        void row() throws SQLException, IOException {
+            if (rowsInStatement == 0) {
+                writer.write(insertPrefix);
+            } else {
+                writer.write(",\n");
+            }
+            writer.write('(');
+            for (int i = 0; i < columnCount; i++) {
+                if (i > 0) writer.write(", ");
+                writeValue(source.getValue(i));
+            }
+            writer.write(')');
+            if (++rowsInStatement == ROWS_PER_INSERT) {
+                writer.write(";\n");
+                rowsInStatement = 0;
+            }
+        }
+
+        private void writeValue(Object value) throws IOException {
+            if (value == null) {
+                writer.write("NULL");
+            } else if (value instanceof Double || value instanceof Float) {
+                double d = ((Number) value).doubleValue();
+                writer.write(Double.isNaN(d) ? "NULL" : Double.isInfinite(d) ? (d > 0 ? "9e999" : "-9e999") : value.toString());
+            } else if (value instanceof Number) {
+                writer.write(value.toString());
+            } else if (value instanceof byte[]) {
+                writer.write("X'");
+                writer.write(toHex((byte[]) value));
+                writer.write('\'');
+            } else {
+                writer.write(SqlUtil.quoteLiteral(value.toString()));
+            }
+        }
+
+        @Override
+        void finish(boolean footer) throws IOException {
+            if (rowsInStatement > 0) {
+                writer.write(";\n");
+                rowsInStatement = 0;
+            }
+            if (footer) {
+                writer.write("COMMIT;\n");
+            }
+        }
+    }
+
+    // 按行组缓冲为列存后写出
+    private static final class BinaryWriter extends RowWriter {
+        private final String[] names;
+        private final int[] types;
+        private final Object[] row;
+        private ColumnarResultStore group;
+
+        BinaryWriter(Source source, Utf8ChannelWriter writer) throws SQLException {
+            super(source, writer);
+            names = new String[columnCount];
+            types = new int[columnCount];
+            row = new Object[columnCount];
+            for (int i = 0; i < columnCount; i++) {
+                names[i] = source.getColumnName(i);
+                types[i] = source.getColumnType(i);
+            }
+        }
+
+        @Override
+        void header() throws IOException {
+            BinaryResultFormat.writeHeader(writer, names, types);
+        }
+
+        @Override
+        void row() throws SQLException, IOException {
+            if (group == null) {
+                group = new ColumnarResultStore(names, types, BinaryResultFormat.GROUP_SIZE);
+            }
+            for (int i = 0; i < columnCount; i++) {
+                row[i] = source.getValue(i);
+            }
+            group.appendRow(row);
+            if (group.getRowCount() == BinaryResultFormat.GROUP_SIZE) {
+                BinaryResultFormat.writeGroup(writer, group);
+                group = null;
+            }
+        }
+
+        @Override
+        void finish(boolean footer) throws IOException {
+            if (group != null) {
+                BinaryResultFormat.writeGroup(writer, group);
+                group = null;
+            }
+            if (footer) {
+                BinaryResultFormat.writeEnd(writer);
+            }
+        }
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] digits = "0123456789ABCDEF".toCharArray();
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = digits[(bytes[i] >> 4) & 0x0F];
+            hex[i * 2 + 1] = digits[bytes[i] & 0x0F];
+        }
+        return new String(hex);
+    }
+
+    public static Source fromResultSet(final ResultSet resultSet) throws SQLException {
+        final ResultSetMetaData metaData = resultSet.getMetaData();
+        return new Source() {
+            @Override
+            public int getColumnCount() throws SQLException {
+                return metaData.getColumnCount();
+            }
+
+            @Override
+            public String getColumnName(int column) throws SQLException {
+                return metaData.getColumnName(column + 1);
+            }
+
+            @Override
+            public int getColumnType(int column) throws SQLException {
+                return metaData.getColumnType(column + 1);
+            }
+
+            @Override
+            public boolean next() throws SQLException {
+                return resultSet.next();
+            }
+
+            @Override
+            public Object getValue(int column) throws SQLException {
+                return resultSet.getObject(column + 1);
+            }
+        };
+    }
+
+    // 已完整加载的表格模型，模型在导出期间不能被修改
+    public static Source fromTableModel(final TableModel model) {
+        return new Source() {
+            private int row = -1;
+
+            @Override
+            public int getColumnCount() {
+                return model.getColumnCount();
+            }
+
+            @Override
+            public String getColumnName(int column) {
+                return model.getColumnName(column);
+            }
+
+            @Override
+            public int getColumnType(int column) {
+                return Types.OTHER;
+            }
+
+            @Override
+            public boolean next() {
+                row++;
+                return row < model.getRowCount();
+            }
+
+            @Override
+            public Object getValue(int column) {
+                return model.getValueAt(row, column);
+            }
+        };
+    }
+}
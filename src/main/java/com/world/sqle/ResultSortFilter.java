@@ -0,0 +1,261 @@
+package com.world.sqle;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 结果表格的排序和筛选条件。
+ * 有SQL来源的结果把条件改写为外层查询 SELECT * FROM (原语句) WHERE ... ORDER BY n，由SQLite执行（可以使用索引），
+ * 结果仍按页读取；只在内存中的结果用ColumnarResultStore.sortRows并行排序，筛选逐行判断。
+ * 筛选条件的写法：IS NULL、IS NOT NULL、以=、!=、<>、<、<=、>、>=开头的比较，其余文本按包含（LIKE）匹配。
+ */
+public class ResultSortFilter {
+    // 包装原语句的CTE名称，不与语句中引用的表重名（CTE引用自身会被当作递归查询）
+    private static final String WRAPPED_NAME = "sqle_filtered_result";
+
+    private int sortColumn = -1;
+    private boolean ascending = true;
+    private final Map<Integer, Filter> filters = new TreeMap<>();
+
+    // 一列的筛选条件
+    public static final class Filter {
+        private final String text;
+        // SQL运算符，LIKE表示包含匹配
+        private final String operator;
+        // 绑定的参数值，IS NULL/IS NOT NULL时为null
+        private final Object value;
+
+        private Filter(String text, String operator, Object value) {
+            this.text = text;
+            this.operator = operator;
+            this.value = value;
+        }
+
+        static Filter parse(String text) {
+            String trimmed = text.trim();
+            String upper = trimmed.toUpperCase(Locale.ROOT).replaceAll("\\s+", " ");
+            if (upper.equals("IS NULL") || upper.equals("IS NOT NULL")) {
+                return new Filter(trimmed, upper, null);
+            }
+            for (String operator : new String[]{"<=", ">=", "!=", "<>", "==", "=", "<", ">"}) {
+                if (trimmed.startsWith(operator)) {
+                    String operand = trimmed.substring(operator.length()).trim();
+                    String sqlOperator = operator.equals("==") ? "=" : operator.equals("<>") ? "!=" : operator;
+                    return new Filter(trimmed, sqlOperator, parseValue(operand));
+                }
+            }
+            return new Filter(trimmed, "LIKE", trimmed);
+        }
+
+        // 数字按数值比较，与SQLite中数值和文本的比较规则一致
+        private static Object parseValue(String operand) {
+            if (operand.length() >= 2 && operand.startsWith("'") && operand.endsWith("'")) {
+                return operand.substring(1, operand.length() - 1).replace("''", "'");
+            }
+            try {
+                return Long.valueOf(operand);
+            } catch (NumberFormatException ex) {
+                // 不是整数
+            }
+            try {
+                return Double.valueOf(operand);
+            } catch (NumberFormatException ex) {
+                return operand;
+            }
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        String toSql(String column) {
+            if (value == null) {
+                return column + " " + operator;
+            }
+            if (operator.equals("LIKE")) {
+                return column + " LIKE ? ESCAPE '\\'";
+            }
+            return column + " " + operator + " ?";
+        }
+
+        Object parameter() {
+            if (operator.equals("LIKE")) {
+                return "%" + ((String) value).replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            }
+            return value;
+        }
+
+        // 在内存中判断，与SQL中的结果一致：NULL只满足IS NULL，LIKE只对ASCII字母不区分大小写
+        boolean matches(Object cell) {
+            if (value == null) {
+                return operator.equals("IS NULL") == (cell == null);
+            }
+            if (cell == null) {
+                return false;
+            }
+            if (operator.equals("LIKE")) {
+                String cellText = cell instanceof byte[] ? new String((byte[]) cell, java.nio.charset.StandardCharsets.UTF_8)
+                        : String.valueOf(cell);
+                return asciiLower(cellText).contains(asciiLower((String) value));
+            }
+            int compared = ColumnarResultStore.compareValues(cell, value);
+            switch (operator) {
+                case "=": return compared == 0;
+                case "!=": return compared != 0;
+                case "<": return compared < 0;
+                case "<=": return compared <= 0;
+                case ">": return compared > 0;
+                default: return compared >= 0;
+            }
+        }
+
+        private static String asciiLower(String text) {
+            char[] chars = text.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] >= 'A' && chars[i] <= 'Z') {
+                    chars[i] += 'a' - 'A';
+                }
+            }
+            return new String(chars);
+        }
+    }
+
+    public boolean isEmpty() {
+        return sortColumn < 0 && filters.isEmpty();
+    }
+
+    public int getSortColumn() {
+        return sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // 点击表头：其他列或未排序时按升序，升序改为降序，降序时取消排序
+    public void toggleSort(int column) {
+        if (column != sortColumn) {
+            sortColumn = column;
+            ascending = true;
+        } else if (ascending) {
+            ascending = false;
+        } else {
+            sortColumn = -1;
+            ascending = true;
+        }
+    }
+
+    // text为空时清除该列的筛选
+    public void setFilter(int column, String text) {
+        if (text == null || text.trim().isEmpty()) {
+            filters.remove(column);
+        } else {
+            filters.put(column, Filter.parse(text));
+        }
+    }
+
+    // 没有筛选时返回null
+    public Filter getFilter(int column) {
+        return filters.get(column);
+    }
+
+    public void clear() {
+        sortColumn = -1;
+        ascending = true;
+        filters.clear();
+    }
+
+    public ResultSortFilter copy() {
+        ResultSortFilter copy = new ResultSortFilter();
+        copy.sortColumn = sortColumn;
+        copy.ascending = ascending;
+        copy.filters.putAll(filters);
+        return copy;
+    }
+
+    // 把条件改写为外层查询；ORDER BY使用列序号，结果中有同名列时也能排序。
+    // 有筛选时用带列名表的CTE按位置把各列命名为c1、c2…，同名列（子查询中第二个id会变成"id:1"）也能分别筛选，
+    // 外层再按原来的列名输出
+    public String wrap(String body, String[] columnNames) {
+        if (isEmpty()) {
+            return body;
+        }
+        StringBuilder sql;
+        if (filters.isEmpty()) {
+            sql = new StringBuilder("SELECT * FROM (").append(body).append(")");
+        } else {
+            sql = new StringBuilder("WITH ").append(WRAPPED_NAME).append("(");
+            for (int i = 0; i < columnNames.length; i++) {
+                sql.append(i > 0 ? ", " : "").append(positionalName(i));
+            }
+            sql.append(") AS (").append(body).append(") SELECT ");
+            for (int i = 0; i < columnNames.length; i++) {
+                sql.append(i > 0 ? ", " : "").append(positionalName(i)).append(" AS ").append(SqlUtil.quoteIdentifier(columnNames[i]));
+            }
+            sql.append(" FROM ").append(WRAPPED_NAME);
+        }
+        String separator = " WHERE ";
+        for (Map.Entry<Integer, Filter> entry : filters.entrySet()) {
+            sql.append(separator).append(entry.getValue().toSql(positionalName(entry.getKey())));
+            separator = " AND ";
+        }
+        if (sortColumn >= 0) {
+            sql.append(" ORDER BY ").append(sortColumn + 1).append(ascending ? " ASC" : " DESC");
+        }
+        return sql.toString();
+    }
+
+    private static String positionalName(int column) {
+        return "c" + (column + 1);
+    }
+
+    // 原语句的参数在前，筛选条件的参数在后
+    public Object[] parameters(Object[] base) {
+        List<Object> parameters = new ArrayList<>(Arrays.asList(base != null ? base : new Object[0]));
+        for (Filter filter : filters.values()) {
+            if (filter.value != null) {
+                parameters.add(filter.parameter());
+            }
+        }
+        return parameters.toArray();
+    }
+
+    // 内存中的结果：返回筛选并排序后的行号；没有条件时返回null，表示按原顺序显示全部行
+    public int[] rowOrder(ColumnarResultStore store) {
+        if (isEmpty()) {
+            return null;
+        }
+        int[] rows = new int[store.getRowCount()];
+        int count = 0;
+        for (int row = 0; row < rows.length; row++) {
+            boolean matches = true;
+            for (Map.Entry<Integer, Filter> entry : filters.entrySet()) {
+                if (!entry.getValue().matches(store.getValue(row, entry.getKey()))) {
+                    matches = false;
+                    break;
+                }
+            }
+            if (matches) {
+                rows[count++] = row;
+            }
+        }
+        rows = count == rows.length ? rows : Arrays.copyOf(rows, count);
+        return sortColumn >= 0 ? store.sortRows(rows, sortColumn, ascending) : rows;
+    }
+
+    // 表头上显示的标记，例如" ▲"、" ▼ [筛选]"
+    public String describeColumn(int column) {
+        StringBuilder text = new StringBuilder();
+        if (column == sortColumn) {
+            text.append(ascending ? " ▲" : " ▼");
+        }
+        if (filters.containsKey(column)) {
+            text.append(" [").append(filters.get(column).getText()).append(']');
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,312 @@
+package com.world.sqle;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 命令行（无界面）模式：对数据库依次执行SQL文件、SQL语句或CSV导入，查询结果以CSV、JSON Lines或SQL INSERT格式
+ * 流式写到标准输出或文件；执行统计和错误写到标准错误。
+ * 与图形界面共用连接配置、脚本执行、导入和导出引擎，但不加载任何AWT/Swing类，可以在没有显示器的服务器和定时任务中使用。
+ * 退出码：0成功，1执行失败，2参数错误。
+ */
+public class SQLiteCli {
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "用法: java -jar sqle.jar [选项] <数据库文件> [SQL语句]\n"
+            + "  -c, --command <SQL>       执行SQL语句，可重复\n"
+            + "  -f, --file <文件>         逐条执行SQL文件，\"-\"表示从标准输入读取\n"
+            + "      --import <CSV文件>    把CSV文件导入到--table指定的表（表不存在时自动创建）\n"
+            + "  -o, --output <文件>       查询结果写入文件，默认写到标准输出\n"
+            + "      --format <格式>       查询结果格式: csv、jsonl、sql、sqlb（只能保存一个查询结果），默认按输出文件扩展名，否则为csv\n"
+            + "      --no-header           CSV不输出列名行\n"
+            + "      --table <表名>        导入的目标表；SQL格式中INSERT语句的表名\n"
+            + "      --delimiter <字符>    导入CSV的分隔符，默认逗号，\"\\t\"表示制表符\n"
+            + "      --fast                导入期间关闭同步写入（synchronous=OFF）\n"
+            + "      --profile <配置>      连接配置: saved（默认，使用为该数据库保存的配置）、default、read_heavy、bulk_load\n"
+            + "      --continue-on-error   语句出错时继续执行后面的语句\n"
+            + "      --no-batch            不把连续的INSERT/UPDATE/DELETE合并为一个事务\n"
+            + "  -q, --quiet               不输出执行统计\n"
+            + "  -h, --help                显示本帮助\n"
+            + "按参数顺序执行-c、-f和--import；数据库文件之后的参数作为一条SQL语句最后执行。";
+
+    // 按参数顺序执行的操作
+    private static final String[] PROFILE_NAMES = {"saved", "default", "read_heavy", "bulk_load"};
+
+    private static final class Job {
+        final String option;
+        final String value;
+
+        Job(String option, String value) {
+            this.option = option;
+            this.value = value;
+        }
+    }
+
+    private File database;
+    private final List<Job> jobs = new ArrayList<>();
+    private File output;
+    private ResultExporter.Format format;
+    private boolean header = true;
+    private String tableName;
+    private char delimiter = ',';
+    private boolean fastImport;
+    private String profileName = "saved";
+    private boolean stopOnError = true;
+    private boolean batch = true;
+    private boolean quiet;
+    // --continue-on-error时出错的语句数，决定退出码
+    private long failedStatements;
+    // 已写出的查询结果数，二进制格式的文件只能包含一个
+    private int resultSets;
+
+    private final PrintStream err = System.err;
+
+    public static void main(String[] args) {
+        System.exit(new SQLiteCli().run(args));
+    }
+
+    public int run(String[] args) {
+        try {
+            if (!parse(args)) {
+                err.println(USAGE);
+                return EXIT_OK;
+            }
+        } catch (IllegalArgumentException ex) {
+            err.println("参数错误: " + ex.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+
+        Utf8ChannelWriter writer = null;
+        Connection connection = null;
+        try {
+            connection = openConnection();
+            FileOutputStream out = output != null ? new FileOutputStream(output) : new FileOutputStream(FileDescriptor.out);
+            writer = new Utf8ChannelWriter(out.getChannel());
+            for (Job job : jobs) {
+                if (job.option.equals("--import")) {
+                    importCsv(connection, new File(job.value));
+                } else {
+                    runScript(connection, job, writer);
+                }
+            }
+            return failedStatements > 0 ? EXIT_FAILED : EXIT_OK;
+        } catch (SQLException ex) {
+            err.println("错误: " + ex.getMessage());
+            return EXIT_FAILED;
+        } catch (Exception ex) {
+            err.println("错误: " + (ex.getMessage() != null ? ex.getMessage() : ex.toString()));
+            return EXIT_FAILED;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ex) {
+                    // 标准输出可能已被关闭（例如管道的读取端提前退出）
+                }
+            }
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    // 忽略关闭错误
+                }
+            }
+        }
+    }
+
+    // 返回false表示只需显示帮助
+    private boolean parse(String[] args) {
+        String trailingSql = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                return false;
+            } else if (arg.equals("-c") || arg.equals("--command")) {
+                jobs.add(new Job("-c", value(args, ++i, arg)));
+            } else if (arg.equals("-f") || arg.equals("--file")) {
+                jobs.add(new Job("-f", value(args, ++i, arg)));
+            } else if (arg.equals("--import")) {
+                jobs.add(new Job("--import", value(args, ++i, arg)));
+            } else if (arg.equals("-o") || arg.equals("--output")) {
+                output = new File(value(args, ++i, arg));
+            } else if (arg.equals("--format")) {
+                format = parseFormat(value(args, ++i, arg));
+            } else if (arg.equals("--no-header")) {
+                header = false;
+            } else if (arg.equals("--table")) {
+                tableName = value(args, ++i, arg);
+            } else if (arg.equals("--delimiter")) {
+                String text = value(args, ++i, arg);
+                text = text.equals("\\t") ? "\t" : text;
+                if (text.length() != 1) {
+                    throw new IllegalArgumentException("分隔符必须是一个字符: " + text);
+                }
+                delimiter = text.charAt(0);
+            } else if (arg.equals("--fast")) {
+                fastImport = true;
+            } else if (arg.equals("--profile")) {
+                profileName = value(args, ++i, arg).toLowerCase(Locale.ROOT);
+            } else if (arg.equals("--continue-on-error")) {
+                stopOnError = false;
+            } else if (arg.equals("--no-batch")) {
+                batch = false;
+            } else if (arg.equals("-q") || arg.equals("--quiet")) {
+                quiet = true;
+            } else if (arg.startsWith("-") && !arg.equals("-")) {
+                throw new IllegalArgumentException("未知选项: " + arg);
+            } else if (database == null) {
+                database = new File(arg);
+            } else if (trailingSql == null) {
+                trailingSql = arg;
+            } else {
+                throw new IllegalArgumentException("多余的参数: " + arg + "（多条语句请用分号分隔或使用-c）");
+            }
+        }
+        if (database == null) {
+            throw new IllegalArgumentException("没有指定数据库文件");
+        }
+        if (trailingSql != null) {
+            jobs.add(new Job("-c", trailingSql));
+        }
+        if (jobs.isEmpty()) {
+            throw new IllegalArgumentException("没有要执行的语句、SQL文件或导入");
+        }
+        for (Job job : jobs) {
+            if (job.option.equals("--import") && tableName == null) {
+                throw new IllegalArgumentException("--import需要用--table指定目标表");
+            }
+        }
+        if (format == null) {
+            format = output != null ? ResultExporter.Format.forFileName(output.getName()) : ResultExporter.Format.CSV;
+        }
+        if (format == ResultExporter.Format.BINARY && output == null) {
+            throw new IllegalArgumentException("二进制列存格式只能写入文件（使用-o）");
+        }
+        if (!Arrays.asList(PROFILE_NAMES).contains(profileName)) {
+            throw new IllegalArgumentException("未知的连接配置: " + profileName);
+        }
+        return true;
+    }
+
+    private static String value(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException(option + " 缺少参数值");
+        }
+        return args[index];
+    }
+
+    private static ResultExporter.Format parseFormat(String name) {
+        for (ResultExporter.Format format : ResultExporter.Format.values()) {
+            if (format.getExtension().equalsIgnoreCase(name) || format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("不支持的格式: " + name);
+    }
+
+    private Connection openConnection() throws SQLException {
+        ConnectionProfile profile;
+        if (profileName.equals("saved")) {
+            profile = ConnectionProfile.load(database);
+        } else if (profileName.equals("default")) {
+            profile = ConnectionProfile.preset(ConnectionProfile.Preset.DEFAULT);
+        } else if (profileName.equals("read_heavy")) {
+            profile = ConnectionProfile.preset(ConnectionProfile.Preset.READ_HEAVY);
+        } else if (profileName.equals("bulk_load")) {
+            profile = ConnectionProfile.preset(ConnectionProfile.Preset.BULK_LOAD);
+        } else {
+            throw new SQLException("未知的连接配置: " + profileName);
+        }
+        Connection connection = profile.open(database);
+        connection.setAutoCommit(true);
+        return connection;
+    }
+
+    private void runScript(Connection connection, Job job, final Utf8ChannelWriter writer) throws SQLException, IOException {
+        SqlScriptReader reader;
+        if (job.option.equals("-f")) {
+            InputStreamReader input = job.value.equals("-")
+                    ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                    : new InputStreamReader(new FileInputStream(job.value), StandardCharsets.UTF_8);
+            reader = new SqlScriptReader(input);
+        } else {
+            reader = new SqlScriptReader(new java.io.StringReader(job.value));
+        }
+
+        final ResultExporter exporter = new ResultExporter(null);
+        if (tableName != null) {
+            exporter.setTableName(tableName);
+        }
+        ScriptRunner runner = new ScriptRunner(connection, new ScriptRunner.Listener() {
+            @Override
+            public void statementFinished(ScriptRunner.StatementResult result) {
+                if (result.getError() != null) {
+                    err.println("第 " + result.getLine() + " 行: " + result.getError());
+                }
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return false;
+            }
+        });
+        runner.setBatchTransactions(batch);
+        runner.setStopOnError(stopOnError);
+        // 查询结果直接从ResultSet写出，不在内存中保留
+        runner.setResultHandler(new ScriptRunner.ResultHandler() {
+            @Override
+            public long handle(ResultSet resultSet) throws SQLException, IOException {
+                // 读取二进制文件时在第一个结束标记处停止，之后写入的结果无法读出
+                if (format == ResultExporter.Format.BINARY && resultSets > 0) {
+                    throw new SQLException("二进制列存格式的文件只能保存一个查询结果，后面的查询请分别执行并写入其他文件");
+                }
+                resultSets++;
+                boolean withHeader = header || format != ResultExporter.Format.CSV;
+                return exporter.export(ResultExporter.fromResultSet(resultSet), writer, format, withHeader, true);
+            }
+        });
+        try {
+            ScriptRunner.Summary summary = runner.run(reader);
+            if (!quiet) {
+                err.println(String.format("%s: 执行 %d 条语句（失败 %d），影响 %d 行，用时 %.2f 秒",
+                        job.option.equals("-f") ? job.value : "SQL", summary.getStatements(), summary.getFailed(),
+                        summary.getRowsAffected(), summary.getNanos() / 1e9));
+            }
+            failedStatements += summary.getFailed();
+        } finally {
+            if (runner.isOpenTransactionRolledBack()) {
+                err.println("脚本结束时事务没有提交，已回滚");
+            }
+            reader.close();
+        }
+    }
+
+    private void importCsv(Connection connection, File file) throws Exception {
+        CsvImporter importer = new CsvImporter(connection, null);
+        importer.setDelimiter(delimiter);
+        importer.setFastMode(fastImport);
+        long start = System.nanoTime();
+        long rows = importer.importFile(file, tableName);
+        if (!quiet) {
+            long nanos = Math.max(1, System.nanoTime() - start);
+            err.println(String.format("%s: 导入 %d 行到 %s，用时 %.2f 秒（%d 行/秒）", file.getName(), rows, tableName,
+                    nanos / 1e9, rows * 1000000000L / nanos));
+        }
+    }
+}
@@ -0,0 +1,3595 @@
+package com.world.sqle;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class SQLiteEditor extends JFrame {
+    private JTabbedPane tabbedPane;
+    private JTextArea sqlQueryArea;
+    private JButton executeButton;
+    private JButton explainButton;
+    private JButton openButton;
+    private JButton newButton;
+    private JButton saveButton;
+    private JButton beginTransactionButton;
+    private JButton commitButton;
+    private JButton rollbackButton;
+    private JButton exportButton;
+    private JButton cancelButton;
+    private JSpinner timeoutSpinner;
+    private JProgressBar busyIndicator;
+    private JLabel statementCacheLabel;
+    // 查询各阶段耗时统计，显示在"性能"标签页
+    private final QueryMetrics queryMetrics = new QueryMetrics();
+    private PerformancePanel performancePanel;
+    // 查询参数面板，SQL中有占位符时显示
+    private static final String[] PARAMETER_TYPES = {"自动", "文本", "整数", "实数", "NULL"};
+    // 连接配置中不修改数据库原有日志模式或同步级别的选项
+    private static final String KEEP_SETTING = "不修改";
+    private DefaultTableModel parameterModel;
+    private JTable parameterTable;
+    private JPanel parameterPanel;
+    private javax.swing.Timer parameterTimer;
+    // 脚本执行选项
+    private JCheckBoxMenuItem scriptBatchMenuItem;
+    private JCheckBoxMenuItem scriptStopOnErrorMenuItem;
+    // 空闲维护：没有操作超过IDLE_DELAY_MS后执行一次optimize、检查点和增量回收
+    private static final int IDLE_CHECK_INTERVAL_MS = 30000;
+    private static final long IDLE_DELAY_MS = 120000;
+    private JCheckBoxMenuItem idleMaintenanceMenuItem;
+    private javax.swing.Timer idleMaintenanceTimer;
+    private DatabaseTask<?> idleMaintenanceTask;
+    private long lastActivityMillis = System.currentTimeMillis();
+    private boolean idleMaintenanceDone;
+    // 增量回收每次最多释放的页数，在维护对话框中设置
+    private int maintenancePages = 1000;
+    private JTable resultTable;
+    private ColumnWidthSizer columnSizer;
+    // 表列表的数据模型在启动时创建，下拉框随表结构标签页延迟创建
+    private final DefaultComboBoxModel<String> tableNamesModel = new DefaultComboBoxModel<>();
+    private JComboBox<String> tablesComboBox;
+    private JPanel tablesPanel;
+    private JPanel performanceTab;
+    private JTextArea tableStructureArea;
+    private JTextArea logArea;
+    // 操作日志：合并刷新到logArea并限制行数，同时写入日志文件
+    private OperationLog operationLog;
+    private Connection connection;
+    private TableModel tableModel;
+    // 结果表格的排序和筛选；分页结果按resultSourceSql改写后重新查询，为null时在内存中排序
+    private ResultSortFilter resultSortFilter = new ResultSortFilter();
+    private String resultSourceSql;
+    private Object[] resultSourceParameters;
+    private File currentDatabase;
+    private ConnectionProfile connectionProfile;
+    // 主连接上的预编译语句缓存，只在databaseExecutor线程中使用
+    private PreparedStatementCache statementCache;
+    // 数据库结构缓存，schema_version变化时重新读取
+    private SchemaCache schemaCache = new SchemaCache();
+    // 只读查询的结果缓存；PRAGMA data_version只反映其他连接的修改，本程序在主连接上的写操作另行计数
+    private final ResultCache resultCache = new ResultCache();
+    private volatile long localWriteCount;
+    private boolean inTransaction = false;
+    private JScrollPane logScrollPane;
+    
+    // 后台数据库任务：所有任务在同一个工作线程上串行执行，避免并发使用同一连接
+    private final ExecutorService databaseExecutor = Executors.newSingleThreadExecutor(daemonThreads("sqlite-worker"));
+    // 只读连接池上的读取任务（分页、表结构、导出）在这些线程中执行，可以与主连接上的任务并行
+    private final ExecutorService readerExecutor = Executors.newFixedThreadPool(ReadConnectionPool.DEFAULT_SIZE, daemonThreads("sqlite-reader"));
+    private ReadConnectionPool readPool;
+    // 每次打开数据库时加一，ReadTask据此丢弃切换数据库之前开始的读取结果
+    private int databaseGeneration;
+    // 全库搜索的FTS5索引，第一次打开搜索窗口（或索引文件已存在）时开始在后台建立
+    private SearchIndex searchIndex;
+    private final ScheduledExecutorService timeoutScheduler = Executors.newSingleThreadScheduledExecutor(daemonThreads("sqlite-timeout"));
+    private DatabaseTask<?> runningTask;
+    private ScheduledFuture<?> runningTimeout;
+    private volatile Statement runningStatement;
+    
+    // 启动计时：main开始执行的时间和本机库的加载耗时（未加载完成时为-1），用于记录首帧和首次查询的时间
+    private static long startNanos = System.nanoTime();
+    private static volatile long nativeLoadNanos = -1;
+    private boolean firstQueryRecorded;
+    
+    public SQLiteEditor() {
+        super("SQLite 数据库编辑器");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(1000, 700);
+        
+        // 设置中文字体
+        setUIFonts();
+        
+        // 初始化UI组件
+        initComponents();
+        
+        // 添加事件监听器
+        addEventListeners();
+        
+        // 居中显示
+        setLocationRelativeTo(null);
+        
+        // 窗口显示后排队的事件在首次绘制之后执行，此时记录启动耗时
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        logStartupTime();
+                    }
+                });
+            }
+        });
+    }
+    
+    private void logStartupTime() {
+        long frameMillis = (System.nanoTime() - startNanos) / 1000000;
+        long jvmMillis = java.lang.management.ManagementFactory.getRuntimeMXBean().getUptime();
+        long nativeNanos = nativeLoadNanos;
+        log("启动完成: 首帧 " + frameMillis + " ms（JVM启动后 " + jvmMillis + " ms），"
+                + (nativeNanos >= 0 ? "SQLite本机库加载 " + nativeNanos / 1000000 + " ms" : "SQLite本机库仍在后台加载"));
+    }
+    
+    private void setUIFonts() {
+        // 设置全局字体，确保中文正常显示
+        Font font = new Font("微软雅黑", Font.PLAIN, 12);
+        UIManager.put("Label.font", font);
+        UIManager.put("Button.font", font);
+        UIManager.put("TextField.font", font);
+        UIManager.put("TextArea.font", font);
+        UIManager.put("ComboBox.font", font);
+        UIManager.put("Table.font", font);
+        UIManager.put("TableHeader.font", font);
+    }
+    
+    private void initComponents() {
+        tabbedPane = new JTabbedPane();
+        
+        // 查询标签页
+        JPanel queryPanel = new JPanel(new BorderLayout());
+        
+        // 工具栏
+        JToolBar toolbar = new JToolBar();
+        toolbar.setLayout(new FlowLayout(FlowLayout.LEFT));
+        openButton = new JButton("打开数据库");
+        newButton = new JButton("新建数据库");
+        saveButton = new JButton("保存");
+        executeButton = new JButton("执行查询");
+        explainButton = new JButton("解释");
+        explainButton.setToolTipText("显示查询的执行计划，标出大表上的全表扫描并推荐索引");
+        beginTransactionButton = new JButton("开始事务");
+        commitButton = new JButton("提交事务");
+        rollbackButton = new JButton("回滚事务");
+        exportButton = new JButton("导出结果");
+        cancelButton = new JButton("取消");
+        cancelButton.setToolTipText("中止正在执行的数据库操作");
+        timeoutSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 86400, 5));
+        timeoutSpinner.setToolTipText("单次查询的超时时间（秒），0表示不限制");
+        busyIndicator = new JProgressBar();
+        busyIndicator.setIndeterminate(true);
+        busyIndicator.setStringPainted(true);
+        busyIndicator.setVisible(false);
+        statementCacheLabel = new JLabel();
+        
+        executeButton.setEnabled(false);
+        explainButton.setEnabled(false);
+        saveButton.setEnabled(false);
+        beginTransactionButton.setEnabled(false);
+        commitButton.setEnabled(false);
+        rollbackButton.setEnabled(false);
+        exportButton.setEnabled(false);
+        cancelButton.setEnabled(false);
+        
+        toolbar.add(openButton);
+        toolbar.add(newButton);
+        toolbar.add(saveButton);
+        toolbar.addSeparator();
+        toolbar.add(beginTransactionButton);
+        toolbar.add(commitButton);
+        toolbar.add(rollbackButton);
+        toolbar.addSeparator();
+        toolbar.add(executeButton);
+        toolbar.add(explainButton);
+        toolbar.add(cancelButton);
+        toolbar.add(exportButton);
+        toolbar.addSeparator();
+        toolbar.add(new JLabel("超时(秒): "));
+        toolbar.add(timeoutSpinner);
+        toolbar.add(busyIndicator);
+        toolbar.add(statementCacheLabel);
+        
+        // SQL查询区域
+        sqlQueryArea = new JTextArea(5, 80);
+        sqlQueryArea.setLineWrap(false);
+        sqlQueryArea.setWrapStyleWord(true);
+        sqlQueryArea.setFont(new Font("Consolas", Font.PLAIN, 12));
+        sqlQueryArea.setToolTipText("输入SQL查询语句，支持Ctrl+Enter执行");
+        
+        // 添加快捷键支持
+        InputMap inputMap = sqlQueryArea.getInputMap(JComponent.WHEN_FOCUSED);
+        ActionMap actionMap = sqlQueryArea.getActionMap();
+        inputMap.put(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, KeyEvent.CTRL_DOWN_MASK), "executeQuery");
+        actionMap.put("executeQuery", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                executeQuery();
+            }
+        });
+        
+        JScrollPane scrollPane = new JScrollPane(sqlQueryArea);
+        
+        // 参数面板：SQL中包含?、?NNN、:name、@name或$name占位符时显示
+        parameterModel = new DefaultTableModel(new Object[]{"参数", "值", "类型"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column > 0;
+            }
+        };
+        parameterTable = new JTable(parameterModel);
+        parameterTable.getColumnModel().getColumn(2).setCellEditor(new DefaultCellEditor(new JComboBox<>(PARAMETER_TYPES)));
+        parameterTable.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        JScrollPane parameterScrollPane = new JScrollPane(parameterTable);
+        parameterScrollPane.setPreferredSize(new Dimension(280, 0));
+        parameterPanel = new JPanel(new BorderLayout());
+        parameterPanel.setBorder(BorderFactory.createTitledBorder("查询参数"));
+        parameterPanel.add(parameterScrollPane, BorderLayout.CENTER);
+        parameterPanel.setVisible(false);
+        
+        // 输入停顿后再重新识别占位符
+        parameterTimer = new javax.swing.Timer(300, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateParameterPanel();
+            }
+        });
+        parameterTimer.setRepeats(false);
+        sqlQueryArea.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                parameterTimer.restart();
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                parameterTimer.restart();
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+        
+        // 结果表格
+        tableModel = createMaterializedModel();
+        resultTable = new JTable(tableModel);
+        resultTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        columnSizer = new ColumnWidthSizer(resultTable);
+        columnSizer.attach(tableModel);
+        resultTable.getTableHeader().setReorderingAllowed(false); // 禁止列拖拽
+        installSortFilterHeader();
+        
+        // 设置表格渲染器，使结果更易读
+        resultTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, 
+                                                           boolean isSelected, boolean hasFocus, 
+                                                           int row, int column) {
+                Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+                if (value instanceof Number) {
+                    setHorizontalAlignment(JLabel.RIGHT);
+                } else {
+                    setHorizontalAlignment(JLabel.LEFT);
+                }
+                return c;
+            }
+        });
+        
+        JScrollPane tableScrollPane = new JScrollPane(resultTable);
+        
+        // 日志区域
+        logArea = new JTextArea(3, 80);
+        logArea.setEditable(false);
+        logArea.setFont(new Font("Consolas", Font.PLAIN, 11));
+        logArea.setForeground(Color.BLUE);
+        logScrollPane = new JScrollPane(logArea);
+        operationLog = new OperationLog(logArea);
+        logScrollPane.setBorder(BorderFactory.createTitledBorder("操作日志"));
+        
+        // 组装查询面板
+        JPanel centerPanel = new JPanel(new BorderLayout());
+        centerPanel.add(scrollPane, BorderLayout.CENTER);
+        centerPanel.add(parameterPanel, BorderLayout.EAST);
+        centerPanel.add(logScrollPane, BorderLayout.SOUTH);
+        
+        queryPanel.add(toolbar, BorderLayout.NORTH);
+        queryPanel.add(centerPanel, BorderLayout.CENTER);
+        queryPanel.add(tableScrollPane, BorderLayout.SOUTH);
+        
+        // 表结构和性能标签页在第一次切换到时才创建，启动时只放入空面板
+        tablesPanel = new JPanel(new BorderLayout());
+        performanceTab = new JPanel(new BorderLayout());
+        
+        // 添加标签页
+        tabbedPane.addTab("SQL查询", queryPanel);
+        tabbedPane.addTab("表结构", tablesPanel);
+        tabbedPane.addTab("性能", performanceTab);
+        
+        // 添加菜单栏
+        JMenuBar menuBar = new JMenuBar();
+        
+        // 文件菜单
+        JMenu fileMenu = new JMenu("文件");
+        JMenuItem openMenuItem = new JMenuItem("打开数据库");
+        JMenuItem newMenuItem = new JMenuItem("新建数据库");
+        JMenuItem saveMenuItem = new JMenuItem("保存");
+        JMenuItem exportMenuItem = new JMenuItem("导出结果");
+        JMenuItem exportQueryMenuItem = new JMenuItem("流式导出查询...");
+        JMenuItem openBinaryMenuItem = new JMenuItem("打开二进制结果...");
+        JMenuItem importCsvMenuItem = new JMenuItem("导入CSV...");
+        JMenuItem runSqlFileMenuItem = new JMenuItem("执行SQL文件...");
+        runSqlFileMenuItem.setToolTipText("从磁盘逐条读取并执行SQL文件（例如数据库转储），不载入编辑器，内存占用与文件大小无关");
+        exportQueryMenuItem.setToolTipText("直接执行SQL查询区域中的SELECT语句并写入文件，不加载到结果表格");
+        JMenuItem exitMenuItem = new JMenuItem("退出");
+        
+        saveMenuItem.setEnabled(false);
+        exportMenuItem.setEnabled(false);
+        
+        fileMenu.add(openMenuItem);
+        fileMenu.add(newMenuItem);
+        fileMenu.add(saveMenuItem);
+        fileMenu.add(exportMenuItem);
+        fileMenu.add(exportQueryMenuItem);
+        fileMenu.add(openBinaryMenuItem);
+        fileMenu.add(importCsvMenuItem);
+        fileMenu.add(runSqlFileMenuItem);
+        fileMenu.addSeparator();
+        fileMenu.add(exitMenuItem);
+        menuBar.add(fileMenu);
+        
+        // 数据库菜单
+        JMenu dbMenu = new JMenu("数据库");
+        JMenuItem beginTxMenuItem = new JMenuItem("开始事务");
+        JMenuItem commitTxMenuItem = new JMenuItem("提交事务");
+        JMenuItem rollbackTxMenuItem = new JMenuItem("回滚事务");
+        JMenuItem maintenanceMenuItem = new JMenuItem("数据库维护...");
+        maintenanceMenuItem.setToolTipText("回收空闲页、VACUUM INTO、更新统计信息、完整性检查和WAL检查点");
+        JMenuItem profileMenuItem = new JMenuItem("连接配置...");
+        profileMenuItem.setToolTipText("设置日志模式、同步级别、缓存和内存映射等性能参数，按数据库文件保存");
+        
+        beginTxMenuItem.setEnabled(false);
+        commitTxMenuItem.setEnabled(false);
+        rollbackTxMenuItem.setEnabled(false);
+        
+        dbMenu.add(beginTxMenuItem);
+        dbMenu.add(commitTxMenuItem);
+        dbMenu.add(rollbackTxMenuItem);
+        dbMenu.addSeparator();
+        dbMenu.add(maintenanceMenuItem);
+        dbMenu.add(profileMenuItem);
+        JMenuItem searchMenuItem = new JMenuItem("全库搜索...");
+        searchMenuItem.setToolTipText("在所有表的文本列中查找内容，使用后台维护的全文索引（保存在数据库旁的" + SearchIndex.FILE_SUFFIX + "文件中）");
+        dbMenu.add(searchMenuItem);
+        dbMenu.addSeparator();
+        scriptBatchMenuItem = new JCheckBoxMenuItem("脚本中连续的DML合并为一个事务", true);
+        scriptBatchMenuItem.setToolTipText("自动提交模式下把连续的INSERT/UPDATE/DELETE放在一个事务中提交，大幅减少磁盘同步次数");
+        scriptStopOnErrorMenuItem = new JCheckBoxMenuItem("脚本出错时停止执行", true);
+        dbMenu.add(scriptBatchMenuItem);
+        dbMenu.add(scriptStopOnErrorMenuItem);
+        dbMenu.addSeparator();
+        idleMaintenanceMenuItem = new JCheckBoxMenuItem("空闲时自动维护", false);
+        idleMaintenanceMenuItem.setToolTipText("一段时间没有操作后自动执行PRAGMA optimize、WAL检查点和增量回收空闲页");
+        dbMenu.add(idleMaintenanceMenuItem);
+        menuBar.add(dbMenu);
+        
+        // 帮助菜单
+        JMenu helpMenu = new JMenu("帮助");
+        JMenuItem aboutMenuItem = new JMenuItem("关于");
+        JMenuItem helpMenuItem = new JMenuItem("使用帮助");
+        helpMenu.add(helpMenuItem);
+        helpMenu.addSeparator();
+        helpMenu.add(aboutMenuItem);
+        menuBar.add(helpMenu);
+        
+        // 数据库菜单事件
+        beginTxMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                beginTransaction();
+            }
+        });
+        
+        commitTxMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                commitTransaction();
+            }
+        });
+        
+        rollbackTxMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                rollbackTransaction();
+            }
+        });
+        
+        maintenanceMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showMaintenanceDialog();
+            }
+        });
+        
+        searchMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showSearchDialog();
+            }
+        });
+        
+        idleMaintenanceTimer = new javax.swing.Timer(IDLE_CHECK_INTERVAL_MS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                runIdleMaintenance();
+            }
+        });
+        idleMaintenanceMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (idleMaintenanceMenuItem.isSelected()) {
+                    idleMaintenanceTimer.start();
+                } else {
+                    idleMaintenanceTimer.stop();
+                }
+            }
+        });
+        
+        profileMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showConnectionProfileDialog();
+            }
+        });
+        
+        // 文件菜单事件
+        saveMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveDatabase();
+            }
+        });
+        
+        exportMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportResults();
+            }
+        });
+        
+        exportQueryMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportQueryResults();
+            }
+        });
+        
+        openBinaryMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openBinaryResults();
+            }
+        });
+        
+        importCsvMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importCsv();
+            }
+        });
+        
+        runSqlFileMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                runSqlFile();
+            }
+        });
+        
+        // 帮助菜单事件
+        helpMenuItem.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showHelpDialog();
+            }
+        });
+        
+        setJMenuBar(menuBar);
+        
+        // 主面板
+        setContentPane(tabbedPane);
+    }
+    
+    // 创建表结构标签页的内容，只在第一次显示时执行
+    private void buildTablesTab() {
+        if (tablesComboBox != null) {
+            return;
+        }
+        tablesComboBox = new JComboBox<>(tableNamesModel);
+        JButton refreshButton = new JButton("刷新表列表");
+        JButton viewStructureButton = new JButton("查看表结构");
+        JButton viewDataButton = new JButton("查看表数据");
+        JButton parallelExportButton = new JButton("并行导出");
+        parallelExportButton.setToolTipText("按rowid分区，使用多个只读连接并行导出整张表");
+        
+        JPanel tablesToolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        tablesToolbar.add(new JLabel("选择表: "));
+        tablesToolbar.add(tablesComboBox);
+        tablesToolbar.add(refreshButton);
+        tablesToolbar.add(viewStructureButton);
+        tablesToolbar.add(viewDataButton);
+        tablesToolbar.add(parallelExportButton);
+        
+        tableStructureArea = new JTextArea();
+        tableStructureArea.setEditable(false);
+        tableStructureArea.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        JScrollPane structureScrollPane = new JScrollPane(tableStructureArea);
+        
+        tablesPanel.add(tablesToolbar, BorderLayout.NORTH);
+        tablesPanel.add(structureScrollPane, BorderLayout.CENTER);
+        tablesPanel.revalidate();
+        
+        refreshButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refreshTableList();
+            }
+        });
+        
+        viewStructureButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                viewTableStructure();
+            }
+        });
+        
+        viewDataButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                viewTableData();
+            }
+        });
+        
+        parallelExportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportTableParallel();
+            }
+        });
+    }
+    
+    // 创建性能标签页的内容，只在第一次显示时执行
+    private void buildPerformanceTab() {
+        if (performancePanel != null) {
+            return;
+        }
+        performancePanel = new PerformancePanel(queryMetrics);
+        performanceTab.add(performancePanel, BorderLayout.CENTER);
+        performanceTab.revalidate();
+        performancePanel.refresh();
+    }
+    
+    private void addEventListeners() {
+        // 打开数据库按钮事件
+        openButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                openDatabase();
+            }
+        });
+        
+        // 新建数据库按钮事件
+        newButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                newDatabase();
+            }
+        });
+        
+        // 保存按钮事件
+        saveButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                saveDatabase();
+            }
+        });
+        
+        // 执行查询按钮事件
+        executeButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                executeQuery();
+            }
+        });
+        
+        explainButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                explainQuery();
+            }
+        });
+        
+        // 取消按钮事件
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancelRunningTask();
+            }
+        });
+        
+        // 开始事务按钮事件
+        beginTransactionButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                beginTransaction();
+            }
+        });
+        
+        // 提交事务按钮事件
+        commitButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                commitTransaction();
+            }
+        });
+        
+        // 回滚事务按钮事件
+        rollbackButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                rollbackTransaction();
+            }
+        });
+        
+        // 导出结果按钮事件
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportResults();
+            }
+        });
+        
+        // 次要标签页第一次切换到时创建；切换到表结构标签页时检查结构是否变化（包括其他进程所做的修改）
+        tabbedPane.addChangeListener(new javax.swing.event.ChangeListener() {
+            @Override
+            public void stateChanged(javax.swing.event.ChangeEvent e) {
+                Component selected = tabbedPane.getSelectedComponent();
+                if (selected == tablesPanel) {
+                    buildTablesTab();
+                    refreshTableList();
+                } else if (selected == performanceTab) {
+                    buildPerformanceTab();
+                }
+            }
+        });
+        
+        // 添加菜单栏事件
+        JMenuBar menuBar = getJMenuBar();
+        if (menuBar != null && menuBar.getMenuCount() > 0) {
+            JMenu fileMenu = menuBar.getMenu(0);
+            if (fileMenu != null && fileMenu.getItemCount() > 0) {
+                // 打开数据库菜单项
+                JMenuItem openMenuItem = fileMenu.getItem(0);
+                if (openMenuItem != null) {
+                    openMenuItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            openDatabase();
+                        }
+                    });
+                }
+                
+                // 新建数据库菜单项
+                JMenuItem newMenuItem = fileMenu.getItem(1);
+                if (newMenuItem != null) {
+                    newMenuItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            newDatabase();
+                        }
+                    });
+                }
+                
+                // 退出菜单项（文件菜单的最后一项）
+                JMenuItem exitMenuItem = fileMenu.getItem(fileMenu.getItemCount() - 1);
+                if (exitMenuItem != null) {
+                    exitMenuItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            dispose();
+                            System.exit(0);
+                        }
+                    });
+                }
+            }
+            
+            // 关于菜单项（帮助菜单的最后一项）
+            JMenu helpMenu = menuBar.getMenu(menuBar.getMenuCount() - 1);
+            if (helpMenu != null && helpMenu.getItemCount() > 0) {
+                JMenuItem aboutMenuItem = helpMenu.getItem(helpMenu.getItemCount() - 1);
+                if (aboutMenuItem != null) {
+                    aboutMenuItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent e) {
+                            showAboutDialog();
+                        }
+                    });
+                }
+            }
+        }
+    }
+    
+    private void openDatabase() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("SQLite数据库文件 (*.db)", "db"));
+        
+        int returnValue = fileChooser.showOpenDialog(this);
+        if (returnValue == JFileChooser.APPROVE_OPTION) {
+            File selectedFile = fileChooser.getSelectedFile();
+            connectToDatabase(selectedFile);
+        }
+    }
+    
+    private void newDatabase() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("SQLite数据库文件 (*.db)", "db"));
+        fileChooser.setDialogTitle("新建数据库");
+        
+        int returnValue = fileChooser.showSaveDialog(this);
+        if (returnValue == JFileChooser.APPROVE_OPTION) {
+            File selectedFile = fileChooser.getSelectedFile();
+            // 确保文件有.db扩展名
+            if (!selectedFile.getName().endsWith(".db")) {
+                selectedFile = new File(selectedFile.getAbsolutePath() + ".db");
+            }
+            
+            // 如果文件已存在，询问是否覆盖
+            if (selectedFile.exists()) {
+                int overwrite = JOptionPane.showConfirmDialog(this, "文件已存在，是否覆盖？", "确认覆盖", JOptionPane.YES_NO_OPTION);
+                if (overwrite != JOptionPane.YES_OPTION) {
+                    return;
+                }
+            }
+            
+            connectToDatabase(selectedFile);
+        }
+    }
+    
+    private void connectToDatabase(File file) {
+        if (isBusy()) {
+            JOptionPane.showMessageDialog(this, "请等待当前操作完成或先取消", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        try {
+            // 关闭之前的连接
+            if (readPool != null) {
+                readPool.close();
+                readPool = null;
+            }
+            if (searchIndex != null) {
+                searchIndex.close();
+                searchIndex = null;
+            }
+            if (connection != null) {
+                connection.close();
+            }
+            
+            databaseGeneration++;
+            
+            // 重置事务状态
+            inTransaction = false;
+            
+            // 清空上一个数据库的查询结果
+            installResultModel(createMaterializedModel());
+            
+            // 按为该文件保存的连接配置建立新连接
+            ConnectionProfile profile = ConnectionProfile.load(file);
+            connection = profile.open(file);
+            connection.setAutoCommit(true); // 默认自动提交
+            currentDatabase = file;
+            connectionProfile = profile;
+            readPool = new ReadConnectionPool(file, profile, ReadConnectionPool.DEFAULT_SIZE);
+            searchIndex = new SearchIndex(file, profile);
+            if (searchIndex.getIndexFile().exists()) {
+                searchIndex.start();
+            }
+            statementCache = new PreparedStatementCache(connection);
+            schemaCache = new SchemaCache();
+            resultCache.clear();
+            updateStatementCacheLabel();
+            
+            setTitle("SQLite 数据库编辑器 - " + file.getName());
+            JOptionPane.showMessageDialog(this, "成功连接到数据库: " + file.getName());
+            
+            // 更新按钮状态
+            updateUIState(true);
+            
+            // 刷新表列表
+            refreshTableList();
+            
+            // 添加日志
+            log("已连接到数据库: " + file.getName());
+            log("连接配置: " + profile);
+            
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "数据库连接错误: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            log("连接失败: " + ex.getMessage());
+            updateUIState(connection != null);
+        }
+    }
+    
+    private void updateUIState(boolean connected) {
+        // 后台任务运行期间禁用会使用连接的操作
+        boolean idle = !isBusy();
+        openButton.setEnabled(idle);
+        newButton.setEnabled(idle);
+        executeButton.setEnabled(connected && idle);
+        // 执行计划在只读连接上读取，不必等待其他任务
+        explainButton.setEnabled(connected);
+        saveButton.setEnabled(connected && idle);
+        beginTransactionButton.setEnabled(connected && idle && !inTransaction);
+        commitButton.setEnabled(connected && idle && inTransaction);
+        rollbackButton.setEnabled(connected && idle && inTransaction);
+        exportButton.setEnabled(connected && tableModel.getRowCount() > 0);
+        cancelButton.setEnabled(!idle);
+        
+        // 更新菜单项状态
+        JMenuBar menuBar = getJMenuBar();
+        if (menuBar != null) {
+            JMenu fileMenu = menuBar.getMenu(0);
+            if (fileMenu != null) {
+                JMenuItem saveMenuItem = fileMenu.getItem(2);
+                JMenuItem exportMenuItem = fileMenu.getItem(3);
+                if (saveMenuItem != null) saveMenuItem.setEnabled(connected && idle);
+                if (exportMenuItem != null) exportMenuItem.setEnabled(connected && tableModel.getRowCount() > 0);
+            }
+            
+            JMenu dbMenu = menuBar.getMenu(1);
+            if (dbMenu != null) {
+                JMenuItem beginTxMenuItem = dbMenu.getItem(0);
+                JMenuItem commitTxMenuItem = dbMenu.getItem(1);
+                JMenuItem rollbackTxMenuItem = dbMenu.getItem(2);
+                if (beginTxMenuItem != null) beginTxMenuItem.setEnabled(connected && idle && !inTransaction);
+                if (commitTxMenuItem != null) commitTxMenuItem.setEnabled(connected && idle && inTransaction);
+                if (rollbackTxMenuItem != null) rollbackTxMenuItem.setEnabled(connected && idle && inTransaction);
+            }
+        }
+    }
+    
+    private void log(String message) {
+        operationLog.append(message);
+    }
+    
+    private void beginTransaction() {
+        try {
+            if (connection != null) {
+                connection.setAutoCommit(false);
+                inTransaction = true;
+                updateUIState(true);
+                log("事务已开始");
+                JOptionPane.showMessageDialog(this, "事务已开始，请执行您的SQL操作，完成后提交或回滚事务。");
+            }
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "开始事务失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            log("开始事务失败: " + ex.getMessage());
+        }
+    }
+    
+    private void commitTransaction() {
+        try {
+            if (connection != null && inTransaction) {
+                connection.commit();
+                connection.setAutoCommit(true);
+                inTransaction = false;
+                localWriteCount++;
+                updateUIState(true);
+                log("事务已提交");
+                JOptionPane.showMessageDialog(this, "事务已成功提交");
+            }
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "提交事务失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            log("提交事务失败: " + ex.getMessage());
+        }
+    }
+    
+    private void rollbackTransaction() {
+        try {
+            if (connection != null && inTransaction) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+                inTransaction = false;
+                localWriteCount++;
+                updateUIState(true);
+                log("事务已回滚");
+                JOptionPane.showMessageDialog(this, "事务已成功回滚");
+            }
+        } catch (SQLException ex) {
+            JOptionPane.showMessageDialog(this, "回滚事务失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            log("回滚事务失败: " + ex.getMessage());
+        }
+    }
+    
+    private void exportResults() {
+        if (tableModel.getRowCount() == 0) {
+            JOptionPane.showMessageDialog(this, "没有可导出的数据", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        
+        File file = chooseExportFile();
+        if (file == null) {
+            return;
+        }
+        
+        if (tableModel instanceof PagedResultTableModel) {
+            // 分页结果只在内存中保留部分数据，重新执行查询并直接从结果集写出全部行
+            PagedResultTableModel pagedModel = (PagedResultTableModel) tableModel;
+            exportQuery(pagedModel.getSql(), pagedModel.getParameters(), file,
+                    pagedModel.isRowCountKnown() ? pagedModel.getRowCount() : -1);
+        } else {
+            // 已完整加载的结果（例如PRAGMA）直接从内存写出，不重新执行语句
+            final TableModel model = tableModel;
+            runTask(new FileExportTask(file, model.getRowCount()) {
+                @Override
+                protected long write(ResultExporter exporter, Utf8ChannelWriter writer) throws Exception {
+                    return exporter.export(ResultExporter.fromTableModel(model), writer, format);
+                }
+            });
+        }
+    }
+    
+    // 直接导出SQL查询区域中的SELECT语句的结果，不先加载到表格中
+    private void exportQueryResults() {
+        String sql = sqlQueryArea.getText().trim();
+        if (sql.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请输入SQL查询语句", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (!PagedResultTableModel.isPageable(sql)) {
+            JOptionPane.showMessageDialog(this, "流式导出只支持单条SELECT语句", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (connection == null || isBusy()) {
+            log("数据库未连接或已有操作正在执行");
+            return;
+        }
+        
+        Object[] parameters = collectParameters();
+        if (parameters == null) {
+            return;
+        }
+        File file = chooseExportFile();
+        if (file != null) {
+            exportQuery(PagedResultTableModel.stripTrailingSemicolons(sql), parameters, file, -1);
+        }
+    }
+    
+    // 选择导出文件，导出格式由文件扩展名决定（CSV、JSON Lines、SQL、二进制列存）
+    private File chooseExportFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("导出结果");
+        fileChooser.setAcceptAllFileFilterUsed(false);
+        for (ResultExporter.Format format : ResultExporter.Format.values()) {
+            fileChooser.addChoosableFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                    format.getDescription() + " (*." + format.getExtension() + ")", format.getExtension()));
+        }
+        fileChooser.setFileFilter(fileChooser.getChoosableFileFilters()[0]);
+        
+        int returnValue = fileChooser.showSaveDialog(this);
+        if (returnValue != JFileChooser.APPROVE_OPTION) {
+            return null;
+        }
+        File file = fileChooser.getSelectedFile();
+        String extension = ((javax.swing.filechooser.FileNameExtensionFilter) fileChooser.getFileFilter()).getExtensions()[0];
+        if (!file.getName().toLowerCase(Locale.ROOT).endsWith("." + extension)) {
+            file = new File(file.getAbsolutePath() + "." + extension);
+        }
+        return file;
+    }
+    
+    // 通过内存映射读取二进制列存文件，显示在结果表格中
+    private void openBinaryResults() {
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("打开二进制结果");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter(
+                "二进制列存文件 (*." + BinaryResultFormat.EXTENSION + ")", BinaryResultFormat.EXTENSION));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = fileChooser.getSelectedFile();
+        
+        runTask(new DatabaseTask<ColumnarResultStore>("读取二进制结果") {
+            @Override
+            protected ColumnarResultStore doInBackground() throws Exception {
+                return BinaryResultFormat.read(file);
+            }
+            
+            @Override
+            protected void succeeded(ColumnarResultStore store) {
+                tabbedPane.setSelectedIndex(0);
+                installResultModel(new ColumnarTableModel(store));
+                autoResizeColumns();
+                updateUIState(connection != null);
+                log("已读取 " + file.getName() + "，共 " + store.getRowCount() + " 行数据");
+            }
+        });
+    }
+    
+    private void exportQuery(final String sql, final Object[] parameters, File file, long totalRows) {
+        log("导出SQL: " + sql);
+        final ReadConnectionPool pool = readPoolForReading();
+        runTask(new FileExportTask(file, totalRows) {
+            @Override
+            protected long write(ResultExporter exporter, Utf8ChannelWriter writer) throws Exception {
+                Connection source = pool != null ? pool.borrow() : connection;
+                try {
+                    // 查询之后表可能已被删除或改名，准备语句失败时也要归还连接
+                    PreparedStatement stmt = source.prepareStatement(sql);
+                    runningStatement = stmt;
+                    try {
+                        PreparedStatementCache.bind(stmt, parameters);
+                        ResultSet resultSet = stmt.executeQuery();
+                        try {
+                            return exporter.export(ResultExporter.fromResultSet(resultSet), writer, format);
+                        } finally {
+                            resultSet.close();
+                        }
+                    } finally {
+                        closeStatement(stmt);
+                    }
+                } finally {
+                    if (pool != null) {
+                        pool.release(source);
+                    }
+                }
+            }
+        });
+    }
+    
+    // 按rowid分区，用多个只读连接并行导出当前选中的表
+    private void exportTableParallel() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        final String tableName = (String) tableNamesModel.getSelectedItem();
+        if (tableName == null || tableName.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请先选择一个表", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        if (inTransaction) {
+            JOptionPane.showMessageDialog(this, "并行导出使用独立的只读连接，看不到未提交的修改，请先提交或回滚事务", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        int cores = Runtime.getRuntime().availableProcessors();
+        JSpinner partitionSpinner = new JSpinner(new SpinnerNumberModel(Math.min(cores, 8), 1, 32, 1));
+        JRadioButton stitchButton = new JRadioButton("合并为一个文件", true);
+        JRadioButton separateButton = new JRadioButton("每个分区一个文件");
+        ButtonGroup group = new ButtonGroup();
+        group.add(stitchButton);
+        group.add(separateButton);
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 1));
+        optionsPanel.add(new JLabel("表: " + tableName));
+        JPanel partitionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        partitionPanel.add(new JLabel("分区数: "));
+        partitionPanel.add(partitionSpinner);
+        optionsPanel.add(partitionPanel);
+        optionsPanel.add(stitchButton);
+        optionsPanel.add(separateButton);
+        // 各分区使用独立的连接，不在同一个快照中读取
+        optionsPanel.add(new JLabel("导出期间数据库被其他程序修改时导出失败，需要重新导出"));
+        
+        int option = JOptionPane.showConfirmDialog(this, optionsPanel, "并行导出表数据", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        final File file = chooseExportFile();
+        if (file == null) {
+            return;
+        }
+        final int partitions = ((Number) partitionSpinner.getValue()).intValue();
+        final boolean stitch = stitchButton.isSelected();
+        final File databaseFile = currentDatabase;
+        final ConnectionProfile profile = connectionProfile;
+        
+        log("并行导出表 " + tableName + "，分区数: " + partitions);
+        runTask(new ExportTask(file, -1) {
+            private ParallelTableExporter exporter;
+            
+            @Override
+            protected long export() throws Exception {
+                exporter = new ParallelTableExporter(databaseFile, profile, tableName, partitions, format, progressListener());
+                return exporter.export(file, stitch);
+            }
+            
+            @Override
+            protected void deleteOutput() {
+                if (exporter != null) {
+                    exporter.deleteOutput(file, stitch);
+                } else {
+                    super.deleteOutput();
+                }
+            }
+        });
+    }
+    
+    // 编辑当前数据库的连接配置，保存后立即应用到当前连接
+    private void showConnectionProfileDialog() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        
+        final JComboBox<ConnectionProfile.Preset> presetBox = new JComboBox<>(ConnectionProfile.Preset.values());
+        final JComboBox<String> journalBox = new JComboBox<>(withKeepSetting(ConnectionProfile.JOURNAL_MODES));
+        final JComboBox<String> synchronousBox = new JComboBox<>(withKeepSetting(ConnectionProfile.SYNCHRONOUS_MODES));
+        final JSpinner cacheSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 16384, 16));
+        final JSpinner mmapSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 65536, 64));
+        final JComboBox<String> tempStoreBox = new JComboBox<>(ConnectionProfile.TEMP_STORES);
+        final JComboBox<Integer> pageSizeBox = new JComboBox<>(ConnectionProfile.PAGE_SIZES);
+        final JSpinner busyTimeoutSpinner = new JSpinner(new SpinnerNumberModel(3000, 0, 600000, 500));
+        
+        final ActionListener showProfile = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                ConnectionProfile.Preset preset = (ConnectionProfile.Preset) presetBox.getSelectedItem();
+                if (preset == ConnectionProfile.Preset.CUSTOM) {
+                    return;
+                }
+                ConnectionProfile profile = ConnectionProfile.preset(preset);
+                journalBox.setSelectedItem(profile.getJournalMode());
+                synchronousBox.setSelectedItem(profile.getSynchronous());
+                cacheSpinner.setValue(profile.getCacheSizeMb());
+                mmapSpinner.setValue(profile.getMmapSizeMb());
+                tempStoreBox.setSelectedItem(profile.getTempStore());
+                pageSizeBox.setSelectedItem(profile.getPageSize());
+                busyTimeoutSpinner.setValue(profile.getBusyTimeoutMs());
+            }
+        };
+        presetBox.addActionListener(showProfile);
+        
+        ConnectionProfile current = connectionProfile != null ? connectionProfile : new ConnectionProfile();
+        presetBox.setSelectedItem(ConnectionProfile.Preset.CUSTOM);
+        journalBox.setSelectedItem(current.getJournalMode() != null ? current.getJournalMode() : KEEP_SETTING);
+        synchronousBox.setSelectedItem(current.getSynchronous() != null ? current.getSynchronous() : KEEP_SETTING);
+        cacheSpinner.setValue(current.getCacheSizeMb());
+        mmapSpinner.setValue(current.getMmapSizeMb());
+        tempStoreBox.setSelectedItem(current.getTempStore());
+        pageSizeBox.setSelectedItem(current.getPageSize());
+        busyTimeoutSpinner.setValue(current.getBusyTimeoutMs());
+        presetBox.setSelectedItem(current.getPreset());
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 8, 4));
+        optionsPanel.add(new JLabel("预设: "));
+        optionsPanel.add(presetBox);
+        optionsPanel.add(new JLabel("日志模式(journal_mode): "));
+        optionsPanel.add(journalBox);
+        optionsPanel.add(new JLabel("同步级别(synchronous): "));
+        optionsPanel.add(synchronousBox);
+        optionsPanel.add(new JLabel("页缓存(MB): "));
+        optionsPanel.add(cacheSpinner);
+        optionsPanel.add(new JLabel("内存映射(MB，0为不使用): "));
+        optionsPanel.add(mmapSpinner);
+        optionsPanel.add(new JLabel("临时存储(temp_store): "));
+        optionsPanel.add(tempStoreBox);
+        optionsPanel.add(new JLabel("页大小(仅新数据库): "));
+        optionsPanel.add(pageSizeBox);
+        optionsPanel.add(new JLabel("忙等待超时(毫秒): "));
+        optionsPanel.add(busyTimeoutSpinner);
+        
+        int option = JOptionPane.showConfirmDialog(this, optionsPanel, "连接配置 - " + currentDatabase.getName(),
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        final ConnectionProfile profile = new ConnectionProfile();
+        profile.setJournalMode(KEEP_SETTING.equals(journalBox.getSelectedItem()) ? null : (String) journalBox.getSelectedItem());
+        profile.setSynchronous(KEEP_SETTING.equals(synchronousBox.getSelectedItem()) ? null : (String) synchronousBox.getSelectedItem());
+        profile.setCacheSizeMb(((Number) cacheSpinner.getValue()).intValue());
+        profile.setMmapSizeMb(((Number) mmapSpinner.getValue()).intValue());
+        profile.setTempStore((String) tempStoreBox.getSelectedItem());
+        profile.setPageSize((Integer) pageSizeBox.getSelectedItem());
+        profile.setBusyTimeoutMs(((Number) busyTimeoutSpinner.getValue()).intValue());
+        try {
+            profile.save(currentDatabase);
+        } catch (java.util.prefs.BackingStoreException ex) {
+            log("保存连接配置失败: " + ex.getMessage());
+        }
+        
+        if (inTransaction) {
+            // 日志模式不能在事务中修改
+            log("连接配置已保存，将在下次打开数据库时生效: " + profile);
+            return;
+        }
+        runTask(new DatabaseTask<Void>("应用连接配置") {
+            @Override
+            protected Void doInBackground() throws Exception {
+                profile.apply(connection);
+                return null;
+            }
+            
+            @Override
+            protected void succeeded(Void result) {
+                connectionProfile = profile;
+                // 只读连接按新的缓存和内存映射设置重新打开
+                if (readPool != null) {
+                    readPool.close();
+                    readPool = new ReadConnectionPool(currentDatabase, profile, ReadConnectionPool.DEFAULT_SIZE);
+                }
+                log("连接配置已应用: " + profile);
+            }
+        });
+    }
+    
+    private static String[] withKeepSetting(String[] options) {
+        String[] items = new String[options.length + 1];
+        items[0] = KEEP_SETTING;
+        System.arraycopy(options, 0, items, 1, options.length);
+        return items;
+    }
+    
+    // 把CSV文件批量导入到新表或已有的表
+    private void importCsv() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        if (inTransaction) {
+            JOptionPane.showMessageDialog(this, "导入会自行提交事务，请先提交或回滚当前事务", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("导入CSV");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("CSV文件 (*.csv, *.txt)", "csv", "txt"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = fileChooser.getSelectedFile();
+        
+        // 目标表可以选择已有的表，也可以输入新表名
+        JComboBox<String> tableBox = new JComboBox<>();
+        for (int i = 0; i < tableNamesModel.getSize(); i++) {
+            tableBox.addItem(tableNamesModel.getElementAt(i));
+        }
+        tableBox.setEditable(true);
+        String baseName = file.getName();
+        int dot = baseName.lastIndexOf('.');
+        tableBox.setSelectedItem(dot > 0 ? baseName.substring(0, dot) : baseName);
+        
+        String[] delimiterNames = {"逗号 (,)", "分号 (;)", "制表符", "竖线 (|)"};
+        final char[] delimiters = {',', ';', '\t', '|'};
+        JComboBox<String> delimiterBox = new JComboBox<>(delimiterNames);
+        if (baseName.toLowerCase(Locale.ROOT).endsWith(".txt")) {
+            delimiterBox.setSelectedIndex(2);
+        }
+        JCheckBox headerBox = new JCheckBox("第一行是列名", true);
+        JCheckBox emptyAsNullBox = new JCheckBox("空字段导入为NULL", true);
+        JCheckBox singleTransactionBox = new JCheckBox("在一个事务中导入（失败时全部回滚）", true);
+        JCheckBox fastModeBox = new JCheckBox("导入期间关闭同步写入（更快，断电时可能损坏数据库）", false);
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 1));
+        optionsPanel.add(new JLabel("文件: " + file.getName()));
+        JPanel tablePanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        tablePanel.add(new JLabel("目标表: "));
+        tablePanel.add(tableBox);
+        optionsPanel.add(tablePanel);
+        JPanel delimiterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        delimiterPanel.add(new JLabel("分隔符: "));
+        delimiterPanel.add(delimiterBox);
+        optionsPanel.add(delimiterPanel);
+        optionsPanel.add(headerBox);
+        optionsPanel.add(emptyAsNullBox);
+        optionsPanel.add(singleTransactionBox);
+        optionsPanel.add(fastModeBox);
+        
+        int option = JOptionPane.showConfirmDialog(this, optionsPanel, "导入CSV", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        Object selectedTable = tableBox.getSelectedItem();
+        final String tableName = selectedTable == null ? "" : selectedTable.toString().trim();
+        if (tableName.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请输入目标表名", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        final char delimiter = delimiters[delimiterBox.getSelectedIndex()];
+        final boolean header = headerBox.isSelected();
+        final boolean emptyAsNull = emptyAsNullBox.isSelected();
+        final boolean fastMode = fastModeBox.isSelected();
+        final boolean singleTransaction = singleTransactionBox.isSelected();
+        
+        log("导入CSV: " + file.getAbsolutePath() + " -> " + tableName);
+        runTask(new ImportTask(tableName) {
+            @Override
+            protected Long doInBackground() throws Exception {
+                CsvImporter importer = new CsvImporter(connection, progressListener());
+                importer.setDelimiter(delimiter);
+                importer.setHeader(header);
+                importer.setEmptyAsNull(emptyAsNull);
+                importer.setFastMode(fastMode);
+                importer.setCommitInterval(singleTransaction ? 0 : 100000);
+                return importer.importFile(file, tableName);
+            }
+        });
+    }
+    
+    // 在后台导入数据，在忙碌指示器上显示进度和速度
+    private abstract class ImportTask extends DatabaseTask<Long> {
+        private final String tableName;
+        private final long startTime = System.nanoTime();
+        private long lastUpdate;
+        
+        ImportTask(String tableName) {
+            super("导入");
+            this.tableName = tableName;
+        }
+        
+        protected CsvImporter.Listener progressListener() {
+            return new CsvImporter.Listener() {
+                @Override
+                public void progress(long rows, long bytesRead, long totalBytes) {
+                    long now = System.nanoTime();
+                    if (now - lastUpdate > 100000000L) {
+                        lastUpdate = now;
+                        showImportProgress(rows, totalBytes > 0 ? (int) Math.min(100, bytesRead * 100 / totalBytes) : -1);
+                    }
+                }
+                
+                @Override
+                public boolean isCancelled() {
+                    return ImportTask.this.isCancelled();
+                }
+            };
+        }
+        
+        private void showImportProgress(long rows, final int percent) {
+            final String text = "导入中: " + rows + " 行，" + rowsPerSecond(rows) + " 行/秒";
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    showTaskProgress(ImportTask.this, text, percent);
+                }
+            });
+        }
+        
+        private long rowsPerSecond(long rows) {
+            long elapsed = Math.max(1, System.nanoTime() - startTime);
+            return rows * 1000000000L / elapsed;
+        }
+        
+        @Override
+        protected void succeeded(Long rows) {
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            refreshTableList(tableName);
+            log(String.format("已导入 %d 行到表 %s（用时 %.1f 秒，%d 行/秒）", rows, tableName, seconds, rowsPerSecond(rows)));
+            JOptionPane.showMessageDialog(SQLiteEditor.this, "已导入 " + rows + " 行到表 " + tableName);
+        }
+    }
+    
+    // 在后台把结果写入文件，在忙碌指示器上显示进度和速度；取消或失败时删除不完整的文件。
+    // 子类实现export写出数据，doInBackground负责清理
+    private abstract class ExportTask extends DatabaseTask<Long> {
+        protected final File file;
+        protected final ResultExporter.Format format;
+        private final long totalRows;
+        private final long startTime = System.nanoTime();
+        private long lastUpdate;
+        private long bytesWritten;
+        
+        ExportTask(File file, long totalRows) {
+            super("导出");
+            this.file = file;
+            this.format = ResultExporter.Format.forFileName(file.getName());
+            this.totalRows = totalRows;
+        }
+        
+        // 写出全部数据并返回行数
+        protected abstract long export() throws Exception;
+        
+        // 删除不完整的输出
+        protected void deleteOutput() {
+            file.delete();
+        }
+        
+        // 进度回调可能来自多个导出线程
+        protected ResultExporter.Listener progressListener() {
+            return new ResultExporter.Listener() {
+                @Override
+                public void progress(long rows, long bytes) {
+                    synchronized (ExportTask.this) {
+                        bytesWritten = bytes;
+                        long now = System.nanoTime();
+                        if (now - lastUpdate > 100000000L) {
+                            lastUpdate = now;
+                            showExportProgress(rows);
+                        }
+                    }
+                }
+                
+                @Override
+                public boolean isCancelled() {
+                    return ExportTask.this.isCancelled();
+                }
+            };
+        }
+        
+        @Override
+        protected final Long doInBackground() throws Exception {
+            try {
+                long rows = export();
+                if (isCancelled()) {
+                    // 写完时已被取消，done()不会报告成功，文件也不保留
+                    throw new CancellationException("导出已取消");
+                }
+                return rows;
+            } catch (Exception ex) {
+                deleteOutput();
+                throw ex;
+            }
+        }
+        
+        private void showExportProgress(long rows) {
+            final String text = "导出中: " + rows + (totalRows > 0 ? " / " + totalRows : "") + " 行，"
+                    + rowsPerSecond(rows) + " 行/秒";
+            final int percent = totalRows > 0 ? (int) Math.min(100, rows * 100 / totalRows) : -1;
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    showTaskProgress(ExportTask.this, text, percent);
+                }
+            });
+        }
+        
+        private long rowsPerSecond(long rows) {
+            long elapsed = Math.max(1, System.nanoTime() - startTime);
+            return rows * 1000000000L / elapsed;
+        }
+        
+        @Override
+        protected void succeeded(Long rows) {
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+            long bytes;
+            synchronized (this) {
+                bytes = bytesWritten;
+            }
+            log(String.format("查询结果已导出到: %s（%d 行，%.1f MB，用时 %.1f 秒，%d 行/秒）",
+                    file.getAbsolutePath(), rows, bytes / 1048576.0, seconds, rowsPerSecond(rows)));
+            JOptionPane.showMessageDialog(SQLiteEditor.this, "数据已成功导出到: " + file.getAbsolutePath());
+        }
+    }
+    
+    // 打开目标文件，由write把数据写入同一个文件
+    private abstract class FileExportTask extends ExportTask {
+        FileExportTask(File file, long totalRows) {
+            super(file, totalRows);
+        }
+        
+        protected abstract long write(ResultExporter exporter, Utf8ChannelWriter writer) throws Exception;
+        
+        @Override
+        protected long export() throws Exception {
+            ResultExporter exporter = new ResultExporter(progressListener());
+            // SQL格式的INSERT语句以文件名作为表名
+            String name = file.getName();
+            exporter.setTableName(name.substring(0, name.length() - format.getExtension().length() - 1));
+            
+            Utf8ChannelWriter writer = new Utf8ChannelWriter(FileChannel.open(file.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE));
+            try {
+                return write(exporter, writer);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+    
+    private void showHelpDialog() {
+        JDialog helpDialog = new JDialog(this, "使用帮助", true);
+        helpDialog.setSize(600, 500);
+        
+        JTextArea helpText = new JTextArea();
+        helpText.setEditable(false);
+        helpText.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        helpText.setLineWrap(true);
+        helpText.setWrapStyleWord(true);
+        
+        String helpContent = "SQLite数据库编辑器使用帮助\n\n"
+                + "1. 基本操作:\n"
+                + "   - 打开数据库: 点击\"打开数据库\"按钮或选择文件菜单中的对应选项\n"
+                + "   - 新建数据库: 点击\"新建数据库\"按钮或选择文件菜单中的对应选项\n"
+                + "   - 执行SQL查询: 在SQL查询区域输入语句，点击\"执行查询\"按钮或按Ctrl+Enter\n"
+                + "   - 排序和筛选结果: 点击列标题按升序、降序排序或取消排序；右键列标题设置筛选条件，SELECT结果改写为SQL重新查询\n"
+                + "   - 取消执行: 查询在后台执行，点击\"取消\"按钮可中止；工具栏可设置超时秒数（0为不限制）\n"
+                + "   - 参数化查询: SQL中可使用?、?NNN、:name、@name、$name占位符，在右侧参数面板中填写值和类型\n"
+                + "   - 重复执行的语句使用缓存的预编译语句，工具栏显示缓存命中次数和节省的时间\n"
+                + "   - 执行脚本: 输入多条以分号分隔的语句时逐条执行，结果表格列出每条语句的耗时和影响行数；\n"
+                + "     数据库菜单中可设置连续的DML合并为一个事务提交、出错时是否停止\n"
+                + "   - 性能统计: \"性能\"标签页按语句指纹列出排队、执行、读取结果、构建模型和渲染各阶段耗时的p50/p95/p99\n"
+                + "   - 解释: 点击\"解释\"按钮显示EXPLAIN QUERY PLAN执行计划树，标出大表上的全表扫描，\n"
+                + "     按WHERE/JOIN/ORDER BY中的列推荐索引，可在后台创建并对比创建前后的查询耗时\n"
+                + "   - 结果缓存: 数据库没有变化时（包括其他程序的修改），重复执行的SELECT查询直接返回缓存的结果\n"
+                + "   - 执行SQL文件: 文件菜单\"执行SQL文件...\"从磁盘逐条读取执行（如恢复转储），不载入编辑器，按已读字节显示进度\n"
+                + "   - 保存数据库: 点击\"保存\"按钮，执行PRAGMA optimize更新统计信息，并把WAL中的内容写回数据库文件\n"
+                + "   - 数据库维护: 数据库菜单\"数据库维护...\"显示空闲页和WAL大小，可增量回收空闲页、VACUUM INTO压缩复制、\n"
+                + "     ANALYZE、完整性检查和WAL检查点；勾选\"空闲时自动维护\"后在空闲时自动执行开销小的维护\n"
+                + "   - 连接配置: 数据库菜单\"连接配置...\"可选择\"读密集分析\"、\"批量导入\"等预设，按数据库文件保存；没有保存过配置时不修改数据库原有的日志模式和同步级别\n\n"
+                + "2. 事务操作:\n"
+                + "   - 开始事务: 点击\"开始事务\"按钮\n"
+                + "   - 提交事务: 执行完SQL操作后，点击\"提交事务\"按钮\n"
+                + "   - 回滚事务: 如果不想保存更改，点击\"回滚事务\"按钮\n\n"
+                + "3. 表操作:\n"
+                + "   - 全库搜索: 数据库菜单\"全库搜索...\"，在所有表的文本列中查找内容；索引在后台建立并随数据变化更新，"
+                + "查找3个及以上字符时使用索引\n"
+                + "   - 查看表结构: 在\"表结构\"标签页选择表，点击\"查看表结构\"\n"
+                + "   - 查看表数据: 在\"表结构\"标签页选择表，点击\"查看表数据\"，在浏览窗口中按rowid/主键翻页\n"
+                + "   - 编辑表数据: 在浏览窗口中双击单元格修改，修改过的单元格高亮显示，点击\"保存修改\"在一个事务中写入\n"
+                + "   - 刷新表列表: 点击\"刷新表列表\"按钮；执行语句后和切换到表结构标签页时，数据库结构有变化（包括其他程序的修改）会自动刷新\n\n"
+                + "4. 数据导入导出:\n"
+                + "   - 导入CSV: 文件菜单\"导入CSV...\"，表不存在时按表头自动创建，在后台批量插入\n"
+                + "   - 将查询结果导出为CSV文件: 执行查询后点击\"导出结果\"按钮\n"
+                + "   - 流式导出: 文件菜单\"流式导出查询...\"直接执行SELECT语句写入文件，不加载到表格\n"
+                + "   - 导出格式由文件类型决定: CSV、JSON Lines、SQL INSERT语句或二进制列存(.sqlb)\n"
+                + "   - 二进制列存文件可通过文件菜单\"打开二进制结果...\"重新载入\n\n"
+                + "5. 快捷键:\n"
+                + "   - Ctrl+Enter: 执行SQL查询\n\n"
+                + "6. 注意事项:\n"
+                + "   - 请确保已正确安装SQLite JDBC驱动\n"
+                + "   - 大型操作建议使用事务功能\n"
+                + "   - 删除大量数据后可在\"数据库维护\"中回收空闲页；启用增量自动清理后无需再做完整VACUUM";
+        
+        helpText.setText(helpContent);
+        helpDialog.add(new JScrollPane(helpText));
+        helpDialog.setLocationRelativeTo(this);
+        helpDialog.setVisible(true);
+    }
+    
+    private void executeQuery() {
+        final String sql = sqlQueryArea.getText().trim();
+        if (sql.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请输入SQL查询语句", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        
+        // 包含多条语句时按脚本逐条执行
+        if (countStatements(sql, 2) > 1) {
+            runScript(sql);
+            return;
+        }
+        
+        final Object[] parameters = collectParameters();
+        if (parameters == null) {
+            return;
+        }
+        
+        log("执行SQL: " + sql + (parameters.length > 0 ? "，参数: " + Arrays.toString(parameters) : ""));
+        final ReadConnectionPool pagePool = readPoolForReading();
+        final long submitTime = System.nanoTime();
+        
+        runTask(new DatabaseTask<QueryResult>("SQL执行", true) {
+            @Override
+            protected QueryResult doInBackground() throws Exception {
+                // 只用作取消句柄：sqlite3_interrupt作用于整个连接，也会中止缓存的预编译语句
+                Statement stmt = openStatement();
+                try {
+                    QueryResult result = new QueryResult();
+                    QueryMetrics.Sample sample = result.sample;
+                    long phaseStart = System.nanoTime();
+                    sample.set(QueryMetrics.Phase.QUEUE, phaseStart - submitTime);
+                    // 数据库结构变化后丢弃缓存的语句
+                    statementCache.validateSchema();
+                    
+                    // 单条SELECT语句按页加载，只读取可见区域的数据
+                    if (PagedResultTableModel.isPageable(sql)) {
+                        try {
+                            // 后续页面从只读连接池读取，不必等待主连接上的任务；
+                            // 数据库没有变化时行数和页面直接从结果缓存返回
+                            PagedResultTableModel pagedModel = PagedResultTableModel.open(pagePool, statementCache,
+                                    resultCache, databaseVersion(), sql, parameters,
+                                    pagePool != null ? readerExecutor : databaseExecutor, pageErrorHandler);
+                            setReadOnly(true);
+                            result.hasResultSet = true;
+                            result.fromCache = pagedModel.isFromCache();
+                            result.model = pagedModel;
+                            result.rowCount = pagedModel.getKnownRowCount();
+                            result.rowCountPending = !pagedModel.isRowCountKnown();
+                            // 分页模型只读取第一页，总行数在后台统计
+                            sample.set(QueryMetrics.Phase.FETCH, pagedModel.getFirstPageNanos());
+                            sample.setRows(Math.min(result.rowCount, PagedResultTableModel.PAGE_SIZE));
+                            sample.setBytes(pagedModel.getFirstPageBytes());
+                            return result;
+                        } catch (SQLException ex) {
+                            // 无法包装为子查询的语句（例如WITH ... DELETE）按普通语句执行
+                            if (isCancelled() || isTimedOut()) {
+                                throw ex;
+                            }
+                        }
+                    }
+                    
+                    // 重复执行的语句直接使用缓存的预编译语句，跳过解析和生成执行计划
+                    phaseStart = System.nanoTime();
+                    PreparedStatement prepared = statementCache.prepare(sql);
+                    PreparedStatementCache.bind(prepared, parameters);
+                    sample.set(QueryMetrics.Phase.PREPARE, System.nanoTime() - phaseStart);
+                    phaseStart = System.nanoTime();
+                    result.hasResultSet = prepared.execute();
+                    sample.set(QueryMetrics.Phase.EXECUTE, System.nanoTime() - phaseStart);
+                    
+                    if (result.hasResultSet) {
+                        // 在后台线程按列读取全部结果，数值列不装箱保存
+                        phaseStart = System.nanoTime();
+                        ResultSet resultSet = prepared.getResultSet();
+                        ColumnarResultStore store = ColumnarResultStore.read(resultSet, -1);
+                        resultSet.close();
+                        sample.set(QueryMetrics.Phase.FETCH, System.nanoTime() - phaseStart);
+                        
+                        phaseStart = System.nanoTime();
+                        result.model = new ColumnarTableModel(store);
+                        result.rowCount = store.getRowCount();
+                        sample.set(QueryMetrics.Phase.MODEL, System.nanoTime() - phaseStart);
+                        sample.setRows(result.rowCount);
+                        sample.setBytes(store.estimatedBytes());
+                    } else {
+                        result.rowsAffected = prepared.getUpdateCount();
+                        sample.setRows(Math.max(0, result.rowsAffected));
+                    }
+                    return result;
+                } finally {
+                    closeStatement(stmt);
+                }
+            }
+            
+            @Override
+            protected void succeeded(final QueryResult result) {
+                if (result.hasResultSet) {
+                    final long renderStart = System.nanoTime();
+                    if (result.model instanceof PagedResultTableModel) {
+                        installResultModel(result.model, PagedResultTableModel.stripTrailingSemicolons(sql), parameters);
+                    } else {
+                        installResultModel(result.model);
+                    }
+                    
+                    // 调整列宽
+                    autoResizeColumns();
+                    
+                    // 更换模型时已请求重绘，这里排在重绘之后执行，渲染时间包含表格的第一次绘制
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            long now = System.nanoTime();
+                            result.sample.set(QueryMetrics.Phase.RENDER, now - renderStart);
+                            recordQueryMetrics(sql, result.sample, now - submitTime);
+                            log("查询完成，返回了" + (result.rowCountPending ? "至少 " : " ") + result.rowCount + " 行数据（" + (result.fromCache ? "来自结果缓存，" : "")
+                                    + result.sample.describe() + "）");
+                        }
+                    });
+                } else {
+                    recordQueryMetrics(sql, result.sample, System.nanoTime() - submitTime);
+                    String message = "操作成功，影响了 " + result.rowsAffected + " 行数据";
+                    if (inTransaction) {
+                        message += "（在事务中，尚未提交）";
+                        log(message);
+                    } else {
+                        JOptionPane.showMessageDialog(SQLiteEditor.this, message);
+                        log(message);
+                    }
+                    
+                    // 数据库结构没有变化时只检查一次schema_version
+                    refreshTableList();
+                }
+                
+                // 更新导出按钮状态
+                updateUIState(true);
+                updateStatementCacheLabel();
+            }
+        });
+    }
+    
+    // 统计文本中的语句数，达到limit后不再继续
+    private static int countStatements(String text, int limit) {
+        SqlScriptReader reader = new SqlScriptReader(new StringReader(text));
+        int count = 0;
+        try {
+            while (count < limit && reader.next() != null) {
+                count++;
+            }
+        } catch (IOException ex) {
+            // 读取字符串不会出错
+        }
+        return count;
+    }
+    
+    // 在主连接上逐条执行脚本，结果表格中列出每条语句的耗时和影响行数
+    private void runScript(String script) {
+        final DefaultTableModel model = createScriptResultModel();
+        installResultModel(model);
+        final boolean batch = scriptBatchMenuItem.isSelected() && !inTransaction;
+        final boolean stopOnError = scriptStopOnErrorMenuItem.isSelected();
+        final SqlScriptReader reader = new SqlScriptReader(new StringReader(script));
+        log("执行SQL脚本" + (batch ? "（连续的DML合并提交）" : ""));
+        
+        runTask(new ScriptTask(model, true) {
+            @Override
+            protected ScriptRunner.Summary doInBackground() throws Exception {
+                // 同时作为取消句柄：sqlite3_interrupt作用于整个连接
+                Statement stmt = openStatement();
+                try {
+                    ScriptRunner runner = new ScriptRunner(connection, progressListener());
+                    runner.setStatement(stmt);
+                    runner.setBatchTransactions(batch);
+                    runner.setStopOnError(stopOnError);
+                    try {
+                        return runner.run(reader);
+                    } finally {
+                        openTransactionRolledBack = runner.isOpenTransactionRolledBack();
+                    }
+                } finally {
+                    closeStatement(stmt);
+                }
+            }
+        });
+    }
+    
+    // 从磁盘流式执行SQL文件：边读边执行，按已读取的字节数显示进度，结果表格只列出出错的语句
+    private void runSqlFile() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("执行SQL文件");
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("SQL文件 (*.sql, *.txt)", "sql", "txt"));
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File file = fileChooser.getSelectedFile();
+        
+        final DefaultTableModel model = createScriptResultModel();
+        installResultModel(model);
+        final boolean batch = scriptBatchMenuItem.isSelected() && !inTransaction;
+        final boolean stopOnError = scriptStopOnErrorMenuItem.isSelected();
+        log("执行SQL文件: " + file.getAbsolutePath() + "（" + file.length() / 1024 + " KB）");
+        
+        runTask(new ScriptTask(model, false) {
+            private volatile FileChannel channel;
+            private long size;
+            
+            @Override
+            protected ScriptRunner.Summary doInBackground() throws Exception {
+                Statement stmt = openStatement();
+                SqlScriptReader reader = null;
+                try {
+                    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+                    size = channel.size();
+                    // SqlScriptReader自带缓冲，逐条读取语句，整个文件不会载入内存
+                    reader = new SqlScriptReader(new InputStreamReader(
+                            java.nio.channels.Channels.newInputStream(channel), "UTF-8"));
+                    ScriptRunner runner = new ScriptRunner(connection, progressListener());
+                    runner.setStatement(stmt);
+                    runner.setBatchTransactions(batch);
+                    runner.setStopOnError(stopOnError);
+                    try {
+                        return runner.run(reader);
+                    } finally {
+                        openTransactionRolledBack = runner.isOpenTransactionRolledBack();
+                    }
+                } finally {
+                    closeStatement(stmt);
+                    // 关闭reader时一并关闭文件；reader还没有创建时直接关闭文件
+                    if (reader != null) {
+                        reader.close();
+                    } else if (channel != null) {
+                        channel.close();
+                    }
+                }
+            }
+            
+            @Override
+            protected int progressPercent() {
+                FileChannel current = channel;
+                if (current == null || size <= 0) {
+                    return -1;
+                }
+                try {
+                    return (int) Math.min(100, current.position() * 100 / size);
+                } catch (IOException ex) {
+                    return -1;
+                }
+            }
+        });
+    }
+    
+    private DefaultTableModel createScriptResultModel() {
+        DefaultTableModel model = createMaterializedModel();
+        model.setColumnIdentifiers(new Object[]{"#", "行号", "语句", "耗时(ms)", "影响行数", "返回行数", "行/秒", "状态"});
+        return model;
+    }
+    
+    // 执行脚本的后台任务：每条语句的结果合并后追加到结果表格，超过上限后不再逐条列出；
+    // listAll为false时只列出出错的语句
+    private abstract class ScriptTask extends DatabaseTask<ScriptRunner.Summary> {
+        private static final int MAX_RESULT_ROWS = 5000;
+        private final DefaultTableModel model;
+        private final boolean listAll;
+        private final java.util.List<Object[]> pending = new ArrayList<>();
+        private final long startTime = System.nanoTime();
+        private long lastUpdate;
+        private int listedRows;
+        private long unlistedRows;
+        private long statements;
+        protected volatile boolean openTransactionRolledBack;
+        
+        ScriptTask(DefaultTableModel model, boolean listAll) {
+            super("脚本执行");
+            this.model = model;
+            this.listAll = listAll;
+        }
+        
+        // 执行进度百分比，小于0表示未知
+        protected int progressPercent() {
+            return -1;
+        }
+        
+        protected ScriptRunner.Listener progressListener() {
+            return new ScriptRunner.Listener() {
+                @Override
+                public void statementFinished(ScriptRunner.StatementResult result) {
+                    addResult(result);
+                }
+                
+                @Override
+                public boolean isCancelled() {
+                    return ScriptTask.this.isCancelled();
+                }
+            };
+        }
+        
+        private void addResult(ScriptRunner.StatementResult result) {
+            synchronized (this) {
+                statements = result.getIndex();
+                boolean listed = listAll || result.getError() != null;
+                if (listed && listedRows >= MAX_RESULT_ROWS) {
+                    unlistedRows++;
+                } else if (listed) {
+                    listedRows++;
+                    pending.add(new Object[]{result.getIndex(), result.getLine(), abbreviate(result.getSql()),
+                            String.format("%.3f", result.getNanos() / 1e6),
+                            result.getRowsAffected() >= 0 ? result.getRowsAffected() : "",
+                            result.getRowsReturned() >= 0 ? result.getRowsReturned() : "",
+                            result.getRowsPerSecond() > 0 ? result.getRowsPerSecond() : "",
+                            result.getError() == null ? "成功" : "错误: " + result.getError()});
+                }
+                long now = System.nanoTime();
+                if (now - lastUpdate < 100000000L && result.getError() == null) {
+                    return;
+                }
+                lastUpdate = now;
+            }
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    flushResults();
+                }
+            });
+        }
+        
+        // 在事件调度线程中把累积的结果追加到表格
+        private void flushResults() {
+            java.util.List<Object[]> rows;
+            long count;
+            synchronized (this) {
+                rows = new ArrayList<>(pending);
+                pending.clear();
+                count = statements;
+            }
+            for (Object[] row : rows) {
+                model.addRow(row);
+            }
+            int percent = progressPercent();
+            showTaskProgress(this, "脚本执行中: 已执行 " + count + " 条语句" + (percent >= 0 ? "（" + percent + "%）" : ""), percent);
+        }
+        
+        private String abbreviate(String sql) {
+            // 先截断再合并空白，避免处理很长的语句
+            String text = (sql.length() > 400 ? sql.substring(0, 400) : sql).replaceAll("\\s+", " ");
+            if (text.length() > 200 || sql.length() > 400) {
+                return text.substring(0, Math.min(200, text.length())) + "...";
+            }
+            return text;
+        }
+        
+        private void finishScript() {
+            flushResults();
+            // 数据库结构没有变化时只检查一次schema_version
+            refreshTableList();
+            if (openTransactionRolledBack) {
+                log("脚本结束时仍有未提交的事务，已回滚");
+            }
+            if (unlistedRows > 0) {
+                log("结果表格最多列出 " + MAX_RESULT_ROWS + " 条语句，另有 " + unlistedRows + " 条未列出");
+            }
+            updateUIState(true);
+        }
+        
+        @Override
+        protected void succeeded(ScriptRunner.Summary summary) {
+            finishScript();
+            double seconds = summary.getNanos() / 1e9;
+            String message = String.format("脚本执行完成：%d 条语句，%d 条出错，影响 %d 行（用时 %.2f 秒，合并提交 %d 个事务）",
+                    summary.getStatements(), summary.getFailed(), summary.getRowsAffected(), seconds, summary.getTransactions());
+            log(message);
+            if (inTransaction) {
+                log("脚本在事务中执行，修改尚未提交");
+            }
+        }
+        
+        @Override
+        protected void failed(Throwable cause) {
+            finishScript();
+            super.failed(cause);
+        }
+        
+        @Override
+        protected void done() {
+            super.done();
+            if (isCancelled()) {
+                finishScript();
+                log(String.format("脚本已取消，已执行 %d 条语句（用时 %.1f 秒）", statements, (System.nanoTime() - startTime) / 1e9));
+            }
+        }
+    }
+    
+    private void recordQueryMetrics(String sql, QueryMetrics.Sample sample, long totalNanos) {
+        sample.set(QueryMetrics.Phase.TOTAL, totalNanos);
+        if (!firstQueryRecorded) {
+            firstQueryRecorded = true;
+            log(String.format("首次查询: 启动后 %d ms，查询用时 %.1f ms", (System.nanoTime() - startNanos) / 1000000, totalNanos / 1e6));
+        }
+        queryMetrics.record(sql, sample);
+        if (performancePanel != null) {
+            performancePanel.refreshIfShowing();
+        }
+    }
+    
+    // 在只读连接上执行EXPLAIN QUERY PLAN，以树形显示执行计划和推荐的索引
+    private void explainQuery() {
+        final String sql = sqlQueryArea.getText().trim();
+        if (sql.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请输入SQL查询语句", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (countStatements(sql, 2) > 1) {
+            JOptionPane.showMessageDialog(this, "只能解释单条语句", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        final Object[] parameters = collectParameters();
+        if (parameters == null) {
+            return;
+        }
+        
+        new ReadTask<QueryPlanAnalyzer.Plan>("获取执行计划") {
+            @Override
+            protected QueryPlanAnalyzer.Plan read(Connection readConnection) throws Exception {
+                return QueryPlanAnalyzer.explain(readConnection, sql, parameters);
+            }
+            
+            @Override
+            protected void succeeded(QueryPlanAnalyzer.Plan plan) {
+                log("执行计划: " + plan.getWarnings().size() + " 个问题，推荐 " + plan.getRecommendations().size() + " 个索引");
+                showPlanDialog(sql, parameters, plan);
+            }
+        }.start();
+    }
+    
+    private void showPlanDialog(final String sql, final Object[] parameters, QueryPlanAnalyzer.Plan plan) {
+        final JDialog dialog = new JDialog(this, "执行计划", false);
+        dialog.setSize(760, 520);
+        
+        final JTree planTree = new JTree();
+        final JTextArea analysisArea = new JTextArea(6, 60);
+        analysisArea.setEditable(false);
+        analysisArea.setLineWrap(true);
+        final DefaultListModel<QueryPlanAnalyzer.Recommendation> recommendationModel = new DefaultListModel<>();
+        final JList<QueryPlanAnalyzer.Recommendation> recommendationList = new JList<>(recommendationModel);
+        recommendationList.setFont(new Font("Consolas", Font.PLAIN, 12));
+        final JButton createIndexButton = new JButton("在后台创建选中的索引并对比耗时");
+        createIndexButton.setEnabled(false);
+        
+        final Runnable[] updater = new Runnable[1];
+        final QueryPlanAnalyzer.Plan[] current = {plan};
+        updater[0] = new Runnable() {
+            @Override
+            public void run() {
+                QueryPlanAnalyzer.Plan shown = current[0];
+                javax.swing.tree.DefaultMutableTreeNode root = new javax.swing.tree.DefaultMutableTreeNode("QUERY PLAN");
+                for (QueryPlanAnalyzer.PlanNode node : shown.getRoots()) {
+                    root.add(planTreeNode(node));
+                }
+                planTree.setModel(new javax.swing.tree.DefaultTreeModel(root));
+                for (int row = 0; row < planTree.getRowCount(); row++) {
+                    planTree.expandRow(row);
+                }
+                
+                StringBuilder analysis = new StringBuilder();
+                if (shown.getWarnings().isEmpty()) {
+                    analysis.append("没有发现大表上的全表扫描或额外排序（行数达到 ")
+                            .append(QueryPlanAnalyzer.LARGE_TABLE_ROWS).append(" 的表视为大表）\n");
+                }
+                for (String warning : shown.getWarnings()) {
+                    analysis.append("⚠ ").append(warning).append("\n");
+                }
+                analysisArea.setText(analysis.toString());
+                
+                recommendationModel.clear();
+                for (QueryPlanAnalyzer.Recommendation recommendation : shown.getRecommendations()) {
+                    recommendationModel.addElement(recommendation);
+                }
+                if (!recommendationModel.isEmpty()) {
+                    recommendationList.setSelectedIndex(0);
+                }
+                createIndexButton.setEnabled(!recommendationModel.isEmpty());
+            }
+        };
+        updater[0].run();
+        
+        createIndexButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                QueryPlanAnalyzer.Recommendation recommendation = recommendationList.getSelectedValue();
+                if (recommendation == null) {
+                    return;
+                }
+                createIndexAndCompare(sql, parameters, recommendation, new PlanCallback() {
+                    @Override
+                    public void planUpdated(QueryPlanAnalyzer.Plan plan) {
+                        current[0] = plan;
+                        updater[0].run();
+                    }
+                });
+            }
+        });
+        
+        JPanel recommendationPanel = new JPanel(new BorderLayout());
+        recommendationPanel.setBorder(BorderFactory.createTitledBorder("推荐的索引"));
+        recommendationPanel.add(new JScrollPane(recommendationList), BorderLayout.CENTER);
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(createIndexButton);
+        recommendationPanel.add(buttonPanel, BorderLayout.SOUTH);
+        
+        JPanel bottomPanel = new JPanel(new GridLayout(2, 1));
+        JScrollPane analysisScrollPane = new JScrollPane(analysisArea);
+        analysisScrollPane.setBorder(BorderFactory.createTitledBorder("分析"));
+        bottomPanel.add(analysisScrollPane);
+        bottomPanel.add(recommendationPanel);
+        
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, new JScrollPane(planTree), bottomPanel);
+        splitPane.setResizeWeight(0.5);
+        dialog.add(splitPane);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    private static javax.swing.tree.DefaultMutableTreeNode planTreeNode(QueryPlanAnalyzer.PlanNode node) {
+        javax.swing.tree.DefaultMutableTreeNode treeNode = new javax.swing.tree.DefaultMutableTreeNode(node);
+        for (QueryPlanAnalyzer.PlanNode child : node.getChildren()) {
+            treeNode.add(planTreeNode(child));
+        }
+        return treeNode;
+    }
+    
+    private interface PlanCallback {
+        void planUpdated(QueryPlanAnalyzer.Plan plan);
+    }
+    
+    // 在主连接上创建索引；查询语句在创建前后各完整执行一次，比较耗时
+    private void createIndexAndCompare(final String sql, final Object[] parameters,
+                                       final QueryPlanAnalyzer.Recommendation recommendation, final PlanCallback callback) {
+        if (connection == null) {
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        if (inTransaction) {
+            JOptionPane.showMessageDialog(this, "请先提交或回滚当前事务再创建索引", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        // 只对查询计时，避免重复执行修改数据的语句
+        final boolean timed = PagedResultTableModel.isPageable(sql);
+        log("创建索引: " + recommendation.getSql());
+        
+        runTask(new DatabaseTask<QueryPlanAnalyzer.Plan>("创建索引") {
+            private long beforeNanos = -1;
+            private long afterNanos = -1;
+            
+            @Override
+            protected QueryPlanAnalyzer.Plan doInBackground() throws Exception {
+                // 同时作为取消句柄
+                Statement stmt = openStatement();
+                try {
+                    if (timed) {
+                        beforeNanos = timeQuery(sql, parameters);
+                    }
+                    stmt.execute(recommendation.getSql());
+                    if (timed) {
+                        afterNanos = timeQuery(sql, parameters);
+                    }
+                    return QueryPlanAnalyzer.explain(connection, sql, parameters);
+                } finally {
+                    closeStatement(stmt);
+                }
+            }
+            
+            @Override
+            protected void succeeded(QueryPlanAnalyzer.Plan plan) {
+                String message = "索引已创建: " + recommendation.getSql();
+                if (timed) {
+                    message += String.format("\n查询耗时: 创建前 %.1f ms，创建后 %.1f ms", beforeNanos / 1e6, afterNanos / 1e6);
+                }
+                log(message.replace('\n', '，'));
+                callback.planUpdated(plan);
+                JOptionPane.showMessageDialog(SQLiteEditor.this, message);
+            }
+        });
+    }
+    
+    // 在主连接上完整执行一次查询并读取所有行，返回耗时（纳秒）
+    private long timeQuery(String sql, Object[] parameters) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = connection.prepareStatement(PagedResultTableModel.stripTrailingSemicolons(sql));
+        try {
+            PreparedStatementCache.bind(stmt, parameters);
+            ResultSet resultSet = stmt.executeQuery();
+            try {
+                while (resultSet.next()) {
+                    // 只计时，不保存结果
+                }
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    // 根据SQL中的占位符更新参数表，保留同名参数已输入的值和类型
+    private void updateParameterPanel() {
+        java.util.List<String> names = SqlLexer.parameterNames(sqlQueryArea.getText());
+        if (parameterTable.isEditing()) {
+            parameterTable.getCellEditor().stopCellEditing();
+        }
+        java.util.List<String> current = new ArrayList<>();
+        Map<String, Object[]> previous = new HashMap<>();
+        for (int row = 0; row < parameterModel.getRowCount(); row++) {
+            String name = (String) parameterModel.getValueAt(row, 0);
+            current.add(name);
+            previous.put(name, new Object[]{parameterModel.getValueAt(row, 1), parameterModel.getValueAt(row, 2)});
+        }
+        if (current.equals(names)) {
+            return;
+        }
+        
+        parameterModel.setRowCount(0);
+        for (String name : names) {
+            Object[] old = previous.get(name);
+            parameterModel.addRow(new Object[]{name, old != null ? old[0] : "", old != null ? old[1] : PARAMETER_TYPES[0]});
+        }
+        if (parameterPanel.isVisible() != !names.isEmpty()) {
+            parameterPanel.setVisible(!names.isEmpty());
+            parameterPanel.getParent().revalidate();
+        }
+    }
+    
+    // 按参数编号返回要绑定的值；值与类型不符时提示并返回null
+    private Object[] collectParameters() {
+        updateParameterPanel();
+        if (parameterTable.isEditing()) {
+            parameterTable.getCellEditor().stopCellEditing();
+        }
+        Object[] values = new Object[parameterModel.getRowCount()];
+        for (int row = 0; row < values.length; row++) {
+            String name = (String) parameterModel.getValueAt(row, 0);
+            Object cell = parameterModel.getValueAt(row, 1);
+            String text = cell == null ? "" : cell.toString();
+            String type = (String) parameterModel.getValueAt(row, 2);
+            try {
+                if ("NULL".equals(type)) {
+                    values[row] = null;
+                } else if ("文本".equals(type)) {
+                    values[row] = text;
+                } else if ("整数".equals(type)) {
+                    values[row] = Long.parseLong(text.trim());
+                } else if ("实数".equals(type)) {
+                    values[row] = Double.parseDouble(text.trim());
+                } else {
+                    values[row] = autoParameterValue(text);
+                }
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(this, "参数 " + name + " 的值不是有效的" + type + ": " + text, "错误", JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+        }
+        return values;
+    }
+    
+    // 自动类型：整数和实数按数值绑定，其余按文本绑定
+    private static Object autoParameterValue(String text) {
+        String trimmed = text.trim();
+        if (!trimmed.isEmpty() && trimmed.matches("[-+]?\\d+")) {
+            try {
+                return Long.parseLong(trimmed);
+            } catch (NumberFormatException ex) {
+                // 超出long范围的整数按文本绑定
+            }
+        }
+        if (trimmed.matches("[-+]?(\\d+\\.?\\d*|\\.\\d+)([eE][-+]?\\d+)?")) {
+            return Double.parseDouble(trimmed);
+        }
+        return text;
+    }
+    
+    // 结果缓存条目的版本：其他连接提交的修改改变data_version，结构修改改变schema_version，
+    // 本程序的写操作由localWriteCount记录。在主连接的工作线程调用
+    private String databaseVersion() throws SQLException {
+        long writes = localWriteCount;
+        Statement stmt = connection.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("SELECT d.data_version, s.schema_version FROM pragma_data_version d, pragma_schema_version s");
+            try {
+                resultSet.next();
+                return resultSet.getLong(1) + ":" + resultSet.getLong(2) + ":" + writes;
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+    
+    private void updateStatementCacheLabel() {
+        PreparedStatementCache cache = statementCache;
+        if (cache == null) {
+            statementCacheLabel.setText("");
+            return;
+        }
+        statementCacheLabel.setText(String.format("语句缓存: 命中 %d 次，节省 %.1f ms；结果缓存: 命中 %d 次",
+                cache.getHits(), cache.getSavedNanos() / 1e6, resultCache.getHits()));
+        statementCacheLabel.setToolTipText("已缓存 " + cache.size() + " 条预编译语句，未命中 " + cache.getMisses()
+                + " 次，因数据库结构变化失效 " + cache.getInvalidations() + " 次；结果缓存 " + resultCache.size()
+                + " 项，约 " + PerformancePanel.formatBytes(resultCache.getSizeBytes()));
+    }
+    
+    private DefaultTableModel createMaterializedModel() {
+        return new DefaultTableModel() {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false; // 表格不可编辑
+            }
+        };
+    }
+    
+    // 替换结果表格的数据模型，并释放旧的分页模型
+    private void installResultModel(TableModel model) {
+        installResultModel(model, null, null);
+    }
+    
+    // sourceSql不为null时表示分页结果的原始语句，排序和筛选改写该语句；新的结果清除之前的排序和筛选
+    private void installResultModel(TableModel model, String sourceSql, Object[] sourceParameters) {
+        resultSortFilter = new ResultSortFilter();
+        resultSourceSql = sourceSql;
+        resultSourceParameters = sourceParameters;
+        replaceResultModel(model);
+    }
+    
+    private void replaceResultModel(TableModel model) {
+        if (tableModel instanceof PagedResultTableModel) {
+            ((PagedResultTableModel) tableModel).dispose();
+        }
+        tableModel = model;
+        resultTable.setModel(model);
+        columnSizer.attach(model);
+    }
+    
+    // 点击表头排序（升序、降序、取消），右键菜单设置筛选条件；表头显示当前的排序方向和筛选条件
+    private void installSortFilterHeader() {
+        final JTableHeader header = resultTable.getTableHeader();
+        final TableCellRenderer defaultRenderer = header.getDefaultRenderer();
+        header.setDefaultRenderer(new TableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                           boolean hasFocus, int row, int column) {
+                String marker = resultSortFilter.describeColumn(table.convertColumnIndexToModel(column));
+                return defaultRenderer.getTableCellRendererComponent(table, marker.isEmpty() ? value : value + marker,
+                        isSelected, hasFocus, row, column);
+            }
+        });
+        header.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                // 拖动列边界调整宽度时不排序
+                if (header.getCursor().getType() == Cursor.E_RESIZE_CURSOR) {
+                    return;
+                }
+                final int column = resultTable.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                if (column < 0 || !isSortable()) {
+                    return;
+                }
+                if (SwingUtilities.isLeftMouseButton(e)) {
+                    ResultSortFilter next = resultSortFilter.copy();
+                    next.toggleSort(column);
+                    applySortFilter(next);
+                } else if (SwingUtilities.isRightMouseButton(e)) {
+                    JPopupMenu menu = new JPopupMenu();
+                    JMenuItem filterItem = new JMenuItem("筛选此列...");
+                    filterItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent event) {
+                            ResultSortFilter.Filter current = resultSortFilter.getFilter(column);
+                            Object text = JOptionPane.showInputDialog(SQLiteEditor.this,
+                                    "筛选 " + tableModel.getColumnName(column) + "（留空清除）：\n"
+                                    + "包含的文本，或 = != < <= > >= 加上值，或 IS NULL / IS NOT NULL",
+                                    "筛选", JOptionPane.PLAIN_MESSAGE, null, null, current != null ? current.getText() : "");
+                            if (text != null) {
+                                ResultSortFilter next = resultSortFilter.copy();
+                                next.setFilter(column, text.toString());
+                                applySortFilter(next);
+                            }
+                        }
+                    });
+                    JMenuItem clearItem = new JMenuItem("清除排序和筛选");
+                    clearItem.setEnabled(!resultSortFilter.isEmpty());
+                    clearItem.addActionListener(new ActionListener() {
+                        @Override
+                        public void actionPerformed(ActionEvent event) {
+                            applySortFilter(new ResultSortFilter());
+                        }
+                    });
+                    menu.add(filterItem);
+                    menu.add(clearItem);
+                    menu.show(header, e.getX(), e.getY());
+                }
+            }
+        });
+    }
+    
+    private boolean isSortable() {
+        return tableModel instanceof ColumnarTableModel
+                || tableModel instanceof PagedResultTableModel && resultSourceSql != null;
+    }
+    
+    // 分页结果把排序和筛选改写为SQL重新查询，仍按页读取；内存中的结果在后台线程并行排序
+    private void applySortFilter(final ResultSortFilter next) {
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        final long start = System.nanoTime();
+        if (tableModel instanceof PagedResultTableModel) {
+            String[] columnNames = new String[tableModel.getColumnCount()];
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = tableModel.getColumnName(i);
+            }
+            final String sql = next.wrap(resultSourceSql, columnNames);
+            final Object[] parameters = next.parameters(resultSourceParameters);
+            final ReadConnectionPool pagePool = readPoolForReading();
+            log("排序/筛选: " + sql);
+            DatabaseTask<PagedResultTableModel> task = new DatabaseTask<PagedResultTableModel>("排序/筛选", true) {
+                @Override
+                protected PagedResultTableModel doInBackground() throws Exception {
+                    Statement stmt = openStatement();
+                    try {
+                        statementCache.validateSchema();
+                        return PagedResultTableModel.open(pagePool, statementCache, resultCache, databaseVersion(), sql,
+                                parameters, pagePool != null ? readerExecutor : databaseExecutor, pageErrorHandler);
+                    } finally {
+                        closeStatement(stmt);
+                    }
+                }
+                
+                @Override
+                protected void succeeded(PagedResultTableModel model) {
+                    resultSortFilter = next;
+                    replaceResultModel(model);
+                    resultTable.getTableHeader().repaint();
+                    log(String.format("排序/筛选完成，%s%d 行（%.1f 毫秒）", model.isRowCountKnown() ? "" : "至少 ",
+                            model.getKnownRowCount(), (System.nanoTime() - start) / 1e6));
+                }
+            };
+            task.setReadOnly(true);
+            runTask(task);
+        } else if (tableModel instanceof ColumnarTableModel) {
+            final ColumnarTableModel model = (ColumnarTableModel) tableModel;
+            DatabaseTask<int[]> task = new DatabaseTask<int[]>("排序/筛选") {
+                @Override
+                protected int[] doInBackground() {
+                    return next.rowOrder(model.getStore());
+                }
+                
+                @Override
+                protected void succeeded(int[] rowOrder) {
+                    if (tableModel != model) {
+                        return;
+                    }
+                    resultSortFilter = next;
+                    model.setRowOrder(rowOrder);
+                    resultTable.getTableHeader().repaint();
+                    log(String.format("排序/筛选完成，%d 行（内存中，%.1f 毫秒）", model.getRowCount(),
+                            (System.nanoTime() - start) / 1e6));
+                }
+            };
+            task.setReadOnly(true);
+            runTask(task);
+        }
+    }
+    
+    private final PagedResultTableModel.ErrorHandler pageErrorHandler = new PagedResultTableModel.ErrorHandler() {
+        @Override
+        public void pageLoadFailed(SQLException ex) {
+            log("加载结果数据失败: " + ex.getMessage());
+        }
+    };
+    
+    private void autoResizeColumns() {
+        // 按表头和抽样行调整列宽，不逐行创建渲染组件
+        columnSizer.resizeAll();
+    }
+    
+    private void refreshTableList() {
+        refreshTableList(null);
+    }
+    
+    // 从结构缓存更新表列表，select不为null时选中该表；schema_version没有变化时不重新读取结构
+    private void refreshTableList(final String select) {
+        if (connection == null) return;
+        final SchemaCache cache = schemaCache;
+        final SchemaCache.Snapshot previous = cache.getSnapshot();
+        
+        new ReadTask<SchemaCache.Snapshot>("获取表列表") {
+            @Override
+            protected SchemaCache.Snapshot read(Connection readConnection) throws Exception {
+                return cache.refresh(readConnection);
+            }
+            
+            @Override
+            protected void succeeded(SchemaCache.Snapshot snapshot) {
+                if (cache != schemaCache) {
+                    // 已切换到其他数据库
+                    return;
+                }
+                if (snapshot != previous || tableNamesModel.getSize() == 0) {
+                    Object selected = select != null ? select : tableNamesModel.getSelectedItem();
+                    tableNamesModel.removeAllElements();
+                    for (String name : snapshot.getNames()) {
+                        tableNamesModel.addElement(name);
+                    }
+                    if (selected != null) {
+                        tableNamesModel.setSelectedItem(selected);
+                    }
+                } else if (select != null) {
+                    tableNamesModel.setSelectedItem(select);
+                }
+            }
+        }.start();
+    }
+    
+    private void viewTableStructure() {
+        final String tableName = (String) tableNamesModel.getSelectedItem();
+        if (tableName == null || tableName.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请先选择一个表", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // 从结构缓存读取，结构没有变化时不执行任何PRAGMA查询
+        final SchemaCache cache = schemaCache;
+        new ReadTask<String>("获取表结构") {
+            @Override
+            protected String read(Connection readConnection) throws Exception {
+                SchemaCache.Table table = cache.refresh(readConnection).getTable(tableName);
+                if (table == null) {
+                    throw new SQLException("表 " + tableName + " 不存在");
+                }
+                StringBuilder structure = new StringBuilder();
+                structure.append(table.isView() ? "视图名: " : "表名: ").append(table.getName()).append("\n\n");
+                structure.append("列信息:\n");
+                structure.append(String.format("%-20s %-20s %-10s %-10s\n", "列名", "数据类型", "是否为空", "默认值"));
+                structure.append("----------------------------------------------------------------------\n");
+                for (SchemaCache.Column column : table.getColumns()) {
+                    String defaultValue = column.getDefaultValue();
+                    if (defaultValue == null) defaultValue = "";
+                    structure.append(String.format("%-20s %-20s %-10s %-10s\n",
+                            column.getName(), column.getType(), column.isNotNull() ? "NOT NULL" : "NULL", defaultValue));
+                }
+                
+                // 索引信息
+                structure.append("\n索引信息:\n");
+                if (table.getIndexes().isEmpty()) {
+                    structure.append("无索引\n");
+                }
+                for (SchemaCache.Index index : table.getIndexes()) {
+                    structure.append("索引名: " + index.getName() + " (" + (index.isUnique() ? "唯一" : "非唯一") + ")\n");
+                    structure.append("  索引列: ");
+                    boolean firstColumn = true;
+                    for (String column : index.getColumns()) {
+                        if (!firstColumn) structure.append(", ");
+                        structure.append(column != null ? column : "<表达式>");
+                        firstColumn = false;
+                    }
+                    structure.append("\n");
+                }
+                return structure.toString();
+            }
+            
+            @Override
+            protected void succeeded(String structure) {
+                // 显示表结构
+                tableStructureArea.setText(structure);
+                tableStructureArea.setCaretPosition(0);
+            }
+        }.start();
+    }
+    
+    private void viewTableData() {
+        final String tableName = (String) tableNamesModel.getSelectedItem();
+        if (tableName == null || tableName.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "请先选择一个表", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        // 表在按键分页的浏览窗口中打开；视图没有rowid，仍在SQL查询标签页中查询
+        final SchemaCache cache = schemaCache;
+        new ReadTask<SchemaCache.Table>("读取表结构") {
+            @Override
+            protected SchemaCache.Table read(Connection readConnection) throws Exception {
+                return cache.refresh(readConnection).getTable(tableName);
+            }
+            
+            @Override
+            protected void succeeded(SchemaCache.Table table) {
+                if (table == null) {
+                    JOptionPane.showMessageDialog(SQLiteEditor.this, "表不存在: " + tableName, "错误", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                TableBrowserModel model = null;
+                if (!table.isView()) {
+                    try {
+                        model = new TableBrowserModel(table);
+                    } catch (IllegalArgumentException ex) {
+                        log(ex.getMessage() + "，改为在SQL查询中查看");
+                    }
+                }
+                if (model != null) {
+                    showTableBrowser(model);
+                } else {
+                    tabbedPane.setSelectedIndex(0);
+                    sqlQueryArea.setText("SELECT * FROM " + SqlUtil.quoteIdentifier(tableName) + ";");
+                    executeQuery();
+                }
+            }
+        }.start();
+    }
+    
+    // 表数据浏览窗口：按键翻页，修改的单元格高亮显示，点击"保存修改"时在一个事务中写入。
+    // 窗口不随切换数据库关闭，只在打开它的数据库仍是当前数据库时读取和保存
+    private void showTableBrowser(final TableBrowserModel model) {
+        final File database = currentDatabase;
+        final JDialog dialog = new JDialog(this, "浏览表: " + model.getTableName(), false);
+        dialog.setSize(900, 560);
+        dialog.setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        
+        final JTable table = new JTable(model);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
+        table.getTableHeader().setReorderingAllowed(false);
+        table.putClientProperty("terminateEditOnFocusLost", Boolean.TRUE);
+        final ColumnWidthSizer sizer = new ColumnWidthSizer(table);
+        sizer.attach(model);
+        final Color dirtyColor = new Color(255, 240, 170);
+        table.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
+            @Override
+            public Component getTableCellRendererComponent(JTable table, Object value,
+                                                           boolean isSelected, boolean hasFocus,
+                                                           int row, int column) {
+                Component c = super.getTableCellRendererComponent(table, value instanceof byte[]
+                        ? "<BLOB " + ((byte[]) value).length + " 字节>" : value, isSelected, hasFocus, row, column);
+                setHorizontalAlignment(value instanceof Number ? JLabel.RIGHT : JLabel.LEFT);
+                if (!isSelected) {
+                    c.setBackground(model.isDirty(row, column) ? dirtyColor : table.getBackground());
+                }
+                return c;
+            }
+        });
+        
+        final JButton firstButton = new JButton("首页");
+        final JButton previousButton = new JButton("上一页");
+        final JButton nextButton = new JButton("下一页");
+        final JButton lastButton = new JButton("末页");
+        final JLabel rangeLabel = new JLabel();
+        final JButton nullButton = new JButton("设为NULL");
+        final JButton saveButton = new JButton();
+        final JButton discardButton = new JButton("放弃修改");
+        final JButton[] pageButtons = {firstButton, previousButton, nextButton, lastButton};
+        
+        final Runnable updateButtons = new Runnable() {
+            @Override
+            public void run() {
+                int dirtyCount = model.getDirtyCount();
+                saveButton.setText("保存修改(" + dirtyCount + ")");
+                saveButton.setEnabled(dirtyCount > 0 && !isBusy());
+                discardButton.setEnabled(dirtyCount > 0);
+                String range = model.describeRange();
+                rangeLabel.setText(range == null ? "没有数据" : model.getKeyDescription() + ": " + range
+                        + "（" + model.getRowCount() + " 行）");
+            }
+        };
+        model.addTableModelListener(new TableModelListener() {
+            @Override
+            public void tableChanged(TableModelEvent e) {
+                updateButtons.run();
+            }
+        });
+        
+        // 0: 首页，1: 上一页，2: 下一页，3: 末页，4: 重新读取当前页
+        final PageLoader loader = new PageLoader() {
+            @Override
+            public void load(final int direction) {
+                if (table.isEditing()) {
+                    table.getCellEditor().stopCellEditing();
+                }
+                if (!isBrowsedDatabase(dialog, database)) {
+                    return;
+                }
+                final TableBrowserModel.Page current = model.getPage();
+                for (JButton button : pageButtons) {
+                    button.setEnabled(false);
+                }
+                new ReadTask<TableBrowserModel.Page>("读取表数据") {
+                    @Override
+                    protected TableBrowserModel.Page read(Connection readConnection) throws Exception {
+                        switch (direction) {
+                            case 0: return model.readFirst(readConnection);
+                            case 1: return model.readPrevious(readConnection, current);
+                            case 2: return model.readNext(readConnection, current);
+                            case 3: return model.readLast(readConnection);
+                            default: return model.reload(readConnection, current);
+                        }
+                    }
+                    
+                    @Override
+                    protected void succeeded(TableBrowserModel.Page page) {
+                        // 已经在第一页或最后一页时保持当前页
+                        if (page.size() > 0 || direction == 0 || direction == 3 || direction == 4) {
+                            model.setPage(page);
+                        }
+                    }
+                    
+                    @Override
+                    protected void done() {
+                        super.done();
+                        for (JButton button : pageButtons) {
+                            button.setEnabled(true);
+                        }
+                    }
+                }.start();
+            }
+        };
+        for (int i = 0; i < pageButtons.length; i++) {
+            final int direction = i;
+            pageButtons[i].addActionListener(new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    loader.load(direction);
+                }
+            });
+        }
+        
+        nullButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (table.isEditing()) {
+                    table.getCellEditor().cancelCellEditing();
+                }
+                for (int row : table.getSelectedRows()) {
+                    for (int column : table.getSelectedColumns()) {
+                        if (model.isCellEditable(row, column)) {
+                            model.setValueAt(null, row, column);
+                        }
+                    }
+                }
+            }
+        });
+        
+        discardButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (table.isEditing()) {
+                    table.getCellEditor().cancelCellEditing();
+                }
+                model.discardChanges();
+            }
+        });
+        
+        saveButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (table.isEditing()) {
+                    table.getCellEditor().stopCellEditing();
+                }
+                if (!isBrowsedDatabase(dialog, database)) {
+                    return;
+                }
+                saveTableChanges(model, new Runnable() {
+                    @Override
+                    public void run() {
+                        loader.load(4);
+                    }
+                });
+            }
+        });
+        
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                if (table.isEditing()) {
+                    table.getCellEditor().stopCellEditing();
+                }
+                if (model.getDirtyCount() > 0 && JOptionPane.showConfirmDialog(dialog,
+                        "有 " + model.getDirtyCount() + " 个单元格的修改没有保存，确定放弃并关闭吗？", "确认",
+                        JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                    return;
+                }
+                dialog.dispose();
+            }
+        });
+        
+        JPanel navigationPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        for (JButton button : pageButtons) {
+            navigationPanel.add(button);
+        }
+        navigationPanel.add(rangeLabel);
+        JPanel editPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        editPanel.add(nullButton);
+        editPanel.add(discardButton);
+        editPanel.add(saveButton);
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(navigationPanel, BorderLayout.CENTER);
+        bottomPanel.add(editPanel, BorderLayout.EAST);
+        
+        dialog.add(new JScrollPane(table), BorderLayout.CENTER);
+        dialog.add(bottomPanel, BorderLayout.SOUTH);
+        updateButtons.run();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+        loader.load(0);
+    }
+    
+    private interface PageLoader {
+        void load(int direction);
+    }
+    
+    // 浏览窗口打开后切换了数据库时拒绝读取和保存，避免按rowid把修改写进另一个数据库的同名表
+    private boolean isBrowsedDatabase(Component parent, File database) {
+        if (connection != null && database.equals(currentDatabase)) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(parent, "当前连接的已不是打开此窗口时的数据库（" + database.getName()
+                + "），不能读取或保存。请重新打开该数据库后再操作。", "提示", JOptionPane.WARNING_MESSAGE);
+        return false;
+    }
+    
+    // 在主连接上用一个事务写入浏览窗口中的修改；在用户开启的事务中时只执行UPDATE，由用户提交或回滚
+    private void saveTableChanges(final TableBrowserModel model, final Runnable reload) {
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        final java.util.List<TableBrowserModel.Change> changes = model.snapshotChanges();
+        if (changes.isEmpty()) {
+            return;
+        }
+        final Connection target = connection;
+        final PreparedStatementCache cache = statementCache;
+        runTask(new DatabaseTask<Integer>("保存表修改") {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                cache.validateSchema();
+                return model.saveChanges(target, cache, changes);
+            }
+            
+            @Override
+            protected void succeeded(Integer rows) {
+                model.changesSaved(changes);
+                log("已保存 " + model.getTableName() + " 的修改: " + changes.size() + " 行，更新 " + rows + " 行"
+                        + (inTransaction ? "（在当前事务中，尚未提交）" : ""));
+                reload.run();
+            }
+        });
+    }
+    
+    // 全库搜索窗口：在后台索引中查找，双击结果在SQL查询标签页中打开该行
+    private void showSearchDialog() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        final SearchIndex index = searchIndex;
+        if (!index.isStarted()) {
+            log("开始在后台建立全文索引: " + index.getIndexFile().getName());
+            index.start();
+        }
+        
+        final JDialog dialog = new JDialog(this, "全库搜索", false);
+        dialog.setSize(800, 500);
+        final JTextField queryField = new JTextField(30);
+        final JButton searchButton = new JButton("搜索");
+        final JButton rebuildButton = new JButton("重建索引");
+        final JLabel statusLabel = new JLabel(index.getStatus());
+        final JLabel resultLabel = new JLabel(" ");
+        final DefaultTableModel resultModel = new DefaultTableModel(new Object[]{"表", "rowid", "匹配内容"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        final JTable resultGrid = new JTable(resultModel);
+        resultGrid.getColumnModel().getColumn(0).setPreferredWidth(120);
+        resultGrid.getColumnModel().getColumn(1).setPreferredWidth(80);
+        resultGrid.getColumnModel().getColumn(2).setPreferredWidth(580);
+        
+        index.setListener(new SearchIndex.Listener() {
+            @Override
+            public void statusChanged(final String status) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        statusLabel.setText(status);
+                    }
+                });
+            }
+        });
+        
+        ActionListener search = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                final String text = queryField.getText();
+                if (text.trim().isEmpty()) {
+                    return;
+                }
+                final long start = System.nanoTime();
+                searchButton.setEnabled(false);
+                // 不占用主连接和只读连接池，直接查询索引文件
+                readerExecutor.execute(new SwingWorker<java.util.List<SearchIndex.Hit>, Void>() {
+                    @Override
+                    protected java.util.List<SearchIndex.Hit> doInBackground() throws Exception {
+                        return index.search(text, SearchIndex.DEFAULT_LIMIT);
+                    }
+                    
+                    @Override
+                    protected void done() {
+                        searchButton.setEnabled(true);
+                        try {
+                            java.util.List<SearchIndex.Hit> hits = get();
+                            resultModel.setRowCount(0);
+                            for (SearchIndex.Hit hit : hits) {
+                                resultModel.addRow(new Object[]{hit.getTable(), hit.getRowid(), hit.getSnippet()});
+                            }
+                            String message = String.format("找到 %d 行%s（%.1f 毫秒）", hits.size(),
+                                    hits.size() >= SearchIndex.DEFAULT_LIMIT ? "（只显示前 " + SearchIndex.DEFAULT_LIMIT + " 行）" : "",
+                                    (System.nanoTime() - start) / 1e6);
+                            resultLabel.setText(message);
+                            log("全库搜索 \"" + text + "\": " + message);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                        } catch (ExecutionException ex) {
+                            JOptionPane.showMessageDialog(dialog, "搜索失败: " + ex.getCause().getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+                            log("全库搜索失败: " + ex.getCause().getMessage());
+                        }
+                    }
+                });
+            }
+        };
+        queryField.addActionListener(search);
+        searchButton.addActionListener(search);
+        
+        rebuildButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                log("重建全文索引");
+                index.rebuild();
+            }
+        });
+        
+        resultGrid.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = resultGrid.getSelectedRow();
+                if (e.getClickCount() != 2 || row < 0 || isBusy()) {
+                    return;
+                }
+                String table = (String) resultModel.getValueAt(row, 0);
+                SchemaCache.Snapshot snapshot = schemaCache.getSnapshot();
+                SchemaCache.Table info = snapshot != null ? snapshot.getTable(table) : null;
+                String alias = info != null && info.getRowidAlias() != null ? info.getRowidAlias() : "rowid";
+                tabbedPane.setSelectedIndex(0);
+                sqlQueryArea.setText("SELECT * FROM " + SqlUtil.quoteIdentifier(table) + " WHERE " + alias + " = "
+                        + resultModel.getValueAt(row, 1) + ";");
+                executeQuery();
+            }
+        });
+        
+        JPanel queryPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        queryPanel.add(new JLabel("查找:"));
+        queryPanel.add(queryField);
+        queryPanel.add(searchButton);
+        queryPanel.add(resultLabel);
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBorder(BorderFactory.createEmptyBorder(2, 6, 2, 6));
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+        statusPanel.add(rebuildButton, BorderLayout.EAST);
+        
+        dialog.add(queryPanel, BorderLayout.NORTH);
+        dialog.add(new JScrollPane(resultGrid), BorderLayout.CENTER);
+        dialog.add(statusPanel, BorderLayout.SOUTH);
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    private void saveDatabase() {
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        
+        // SQLite数据库是自动保存的；这里只做开销小的维护：按需更新统计信息，并把WAL中的内容写回数据库文件。
+        // 完整VACUUM会重写整个文件，放在"数据库维护"中按需执行
+        DatabaseTask<Void> task = new DatabaseTask<Void>("数据库保存") {
+            @Override
+            protected Void doInBackground() throws Exception {
+                Statement stmt = openStatement();
+                try {
+                    DatabaseMaintenance maintenance = new DatabaseMaintenance(connection, currentDatabase);
+                    maintenance.setStatement(stmt);
+                    maintenance.run(DatabaseMaintenance.Operation.OPTIMIZE, null);
+                    maintenance.run(DatabaseMaintenance.Operation.CHECKPOINT_PASSIVE, null);
+                } finally {
+                    closeStatement(stmt);
+                }
+                return null;
+            }
+            
+            @Override
+            protected void succeeded(Void result) {
+                log("数据库保存成功");
+                JOptionPane.showMessageDialog(SQLiteEditor.this, "数据库保存成功");
+            }
+        };
+        task.setReadOnly(true);
+        runTask(task);
+    }
+    
+    private void showMaintenanceDialog() {
+        if (connection == null) {
+            JOptionPane.showMessageDialog(this, "请先打开或新建数据库", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        if (isBusy()) {
+            log("已有操作正在执行，请等待完成或先取消");
+            return;
+        }
+        if (inTransaction) {
+            JOptionPane.showMessageDialog(this, "请先提交或回滚当前事务", "提示", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        
+        new ReadTask<DatabaseMaintenance.Stats>("读取数据库空间信息") {
+            @Override
+            protected DatabaseMaintenance.Stats read(Connection readConnection) throws Exception {
+                return DatabaseMaintenance.readStats(readConnection, currentDatabase);
+            }
+            
+            @Override
+            protected void succeeded(DatabaseMaintenance.Stats stats) {
+                showMaintenanceDialog(stats);
+            }
+        }.start();
+    }
+    
+    private void showMaintenanceDialog(DatabaseMaintenance.Stats stats) {
+        JTextArea statsArea = new JTextArea(String.format("文件大小: %s%n总页数: %d（每页 %d 字节）%n空闲页: %d（%s）%n"
+                + "WAL文件: %s%n日志模式: %s%n自动清理: %s",
+                PerformancePanel.formatBytes(stats.getFileBytes()), stats.getPageCount(), stats.getPageSize(),
+                stats.getFreelistCount(), PerformancePanel.formatBytes(stats.getFreelistBytes()),
+                PerformancePanel.formatBytes(stats.getWalBytes()), stats.getJournalMode(),
+                stats.getAutoVacuum() == 2 ? "INCREMENTAL（可增量回收）" : stats.getAutoVacuum() == 1 ? "FULL" : "NONE"));
+        statsArea.setEditable(false);
+        statsArea.setOpaque(false);
+        
+        final JComboBox<DatabaseMaintenance.Operation> operationBox = new JComboBox<>(DatabaseMaintenance.Operation.values());
+        operationBox.setSelectedItem(stats.getAutoVacuum() == 2 ? DatabaseMaintenance.Operation.INCREMENTAL_VACUUM
+                : DatabaseMaintenance.Operation.OPTIMIZE);
+        final JSpinner pagesSpinner = new JSpinner(new SpinnerNumberModel(maintenancePages, 0, Integer.MAX_VALUE, 100));
+        pagesSpinner.setToolTipText("0表示回收全部空闲页");
+        final JCheckBox idleBox = new JCheckBox("空闲时自动维护", idleMaintenanceMenuItem.isSelected());
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 8, 4));
+        optionsPanel.add(new JLabel("操作: "));
+        optionsPanel.add(operationBox);
+        optionsPanel.add(new JLabel("增量回收页数(0为全部): "));
+        optionsPanel.add(pagesSpinner);
+        optionsPanel.add(idleBox);
+        
+        JPanel panel = new JPanel(new BorderLayout(0, 8));
+        panel.add(statsArea, BorderLayout.NORTH);
+        panel.add(optionsPanel, BorderLayout.CENTER);
+        
+        int option = JOptionPane.showConfirmDialog(this, panel, "数据库维护 - " + currentDatabase.getName(),
+                JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        maintenancePages = ((Number) pagesSpinner.getValue()).intValue();
+        if (idleBox.isSelected() != idleMaintenanceMenuItem.isSelected()) {
+            idleMaintenanceMenuItem.doClick();
+        }
+        
+        DatabaseMaintenance.Operation operation = (DatabaseMaintenance.Operation) operationBox.getSelectedItem();
+        File target = null;
+        if (operation == DatabaseMaintenance.Operation.VACUUM_INTO) {
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("VACUUM INTO 目标文件");
+            fileChooser.setFileFilter(new javax.swing.filechooser.FileNameExtensionFilter("SQLite数据库文件 (*.db)", "db"));
+            if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            target = fileChooser.getSelectedFile();
+            if (!target.getName().endsWith(".db")) {
+                target = new File(target.getAbsolutePath() + ".db");
+            }
+            // VACUUM INTO不会覆盖已有文件
+            if (target.exists()) {
+                JOptionPane.showMessageDialog(this, "目标文件已存在，请选择新的文件名", "提示", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+        } else if (operation == DatabaseMaintenance.Operation.VACUUM || operation == DatabaseMaintenance.Operation.ENABLE_INCREMENTAL) {
+            int confirm = JOptionPane.showConfirmDialog(this, "完整VACUUM会重写整个数据库文件，需要与数据库同样大小的临时空间，"
+                    + "期间其他连接无法写入。是否继续？", "确认", JOptionPane.YES_NO_OPTION);
+            if (confirm != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        runMaintenance(operation, target, stats.getPageSize() * (stats.getPageCount() - stats.getFreelistCount()));
+    }
+    
+    // 在主连接上执行维护操作；VACUUM INTO没有进度回调，按目标文件的大小估算进度
+    private void runMaintenance(final DatabaseMaintenance.Operation operation, final File target, final long expectedBytes) {
+        final int pages = maintenancePages;
+        DatabaseTask<DatabaseMaintenance.Report> task = new DatabaseTask<DatabaseMaintenance.Report>("数据库维护") {
+            @Override
+            protected DatabaseMaintenance.Report doInBackground() throws Exception {
+                ScheduledFuture<?> poll = null;
+                if (target != null && expectedBytes > 0) {
+                    poll = timeoutScheduler.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            long written = target.length();
+                            showProgress("正在复制: " + PerformancePanel.formatBytes(written),
+                                    (int) Math.min(99, written * 100 / expectedBytes));
+                        }
+                    }, 200, 200, TimeUnit.MILLISECONDS);
+                }
+                // 已存在的文件不是本次写入的，VACUUM INTO会拒绝覆盖，也不能删除
+                boolean targetExisted = target != null && target.exists();
+                boolean completed = false;
+                Statement stmt = openStatement();
+                try {
+                    DatabaseMaintenance maintenance = new DatabaseMaintenance(connection, currentDatabase);
+                    maintenance.setStatement(stmt);
+                    maintenance.setIncrementalPages(pages);
+                    maintenance.setVacuumTarget(target);
+                    DatabaseMaintenance.Report report = maintenance.run(operation, new DatabaseMaintenance.Listener() {
+                        @Override
+                        public void progress(String message, int percent) {
+                            showProgress(message, percent);
+                        }
+                        
+                        @Override
+                        public boolean isCancelled() {
+                            return taskCancelled();
+                        }
+                    });
+                    completed = !isCancelled();
+                    return report;
+                } finally {
+                    if (poll != null) {
+                        poll.cancel(false);
+                    }
+                    closeStatement(stmt);
+                    // 失败或取消的VACUUM INTO会留下不完整的目标文件，看起来却像是有效的备份。
+                    // 取消时done()不等待本方法结束，所以在这里而不是failed()中删除
+                    if (target != null && !targetExisted && !completed && target.exists() && !target.delete()) {
+                        log("无法删除不完整的文件: " + target.getAbsolutePath());
+                    }
+                }
+            }
+            
+            private boolean taskCancelled() {
+                return isCancelled();
+            }
+            
+            private void showProgress(final String text, final int percent) {
+                final DatabaseTask<?> self = this;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        showTaskProgress(self, text, percent);
+                    }
+                });
+            }
+            
+            @Override
+            protected void succeeded(DatabaseMaintenance.Report report) {
+                log("数据库维护: " + report.getOperation() + String.format("，用时 %.1f 秒", report.getNanos() / 1e9));
+                for (String message : report.getMessages()) {
+                    log("  " + message);
+                }
+                JTextArea reportArea = new JTextArea(report.toString(), 12, 70);
+                reportArea.setEditable(false);
+                reportArea.setLineWrap(true);
+                JOptionPane.showMessageDialog(SQLiteEditor.this, new JScrollPane(reportArea), "维护完成", JOptionPane.INFORMATION_MESSAGE);
+                if (operation == DatabaseMaintenance.Operation.VACUUM || operation == DatabaseMaintenance.Operation.ENABLE_INCREMENTAL) {
+                    refreshTableList();
+                }
+            }
+        };
+        // 检查、检查点和复制不修改数据，保留查询结果缓存
+        task.setReadOnly(operation == DatabaseMaintenance.Operation.QUICK_CHECK
+                || operation == DatabaseMaintenance.Operation.INTEGRITY_CHECK
+                || operation == DatabaseMaintenance.Operation.VACUUM_INTO
+                || operation == DatabaseMaintenance.Operation.CHECKPOINT_PASSIVE
+                || operation == DatabaseMaintenance.Operation.CHECKPOINT_TRUNCATE);
+        runTask(task);
+    }
+    
+    // 空闲维护定时器回调：没有任务、没有事务，且距上次操作超过IDLE_DELAY_MS时执行一次，出错只记录日志
+    private void runIdleMaintenance() {
+        if (connection == null || isBusy() || inTransaction || idleMaintenanceDone
+                || System.currentTimeMillis() - lastActivityMillis < IDLE_DELAY_MS) {
+            return;
+        }
+        idleMaintenanceDone = true;
+        final int pages = maintenancePages;
+        DatabaseTask<java.util.List<String>> task = new DatabaseTask<java.util.List<String>>("空闲维护") {
+            @Override
+            protected java.util.List<String> doInBackground() throws Exception {
+                java.util.List<String> messages = new ArrayList<>();
+                Statement stmt = openStatement();
+                try {
+                    DatabaseMaintenance maintenance = new DatabaseMaintenance(connection, currentDatabase);
+                    maintenance.setStatement(stmt);
+                    maintenance.setIncrementalPages(pages);
+                    messages.addAll(maintenance.run(DatabaseMaintenance.Operation.OPTIMIZE, null).getMessages());
+                    DatabaseMaintenance.Stats stats = DatabaseMaintenance.readStats(connection, currentDatabase);
+                    if ("wal".equalsIgnoreCase(stats.getJournalMode()) && stats.getWalBytes() > 0) {
+                        messages.addAll(maintenance.run(DatabaseMaintenance.Operation.CHECKPOINT_PASSIVE, null).getMessages());
+                    }
+                    if (stats.getAutoVacuum() == 2 && stats.getFreelistCount() > 0) {
+                        messages.addAll(maintenance.run(DatabaseMaintenance.Operation.INCREMENTAL_VACUUM, null).getMessages());
+                    }
+                } finally {
+                    closeStatement(stmt);
+                }
+                return messages;
+            }
+            
+            @Override
+            protected void succeeded(java.util.List<String> messages) {
+                for (String message : messages) {
+                    log("空闲维护: " + message);
+                }
+            }
+            
+            @Override
+            protected void failed(Throwable cause) {
+                log("空闲维护失败: " + cause.getMessage());
+            }
+        };
+        // optimize、检查点和增量回收都不改变数据内容
+        task.setReadOnly(true);
+        idleMaintenanceTask = task;
+        runTask(task);
+    }
+    
+    private boolean isBusy() {
+        return runningTask != null;
+    }
+    
+    // 提交后台任务，并在执行期间显示忙碌指示器、启用取消按钮
+    private void runTask(DatabaseTask<?> task) {
+        runningTask = task;
+        busyIndicator.setString(task.description + "...");
+        busyIndicator.setVisible(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        updateUIState(connection != null);
+        
+        // 设置超时：到期后中断正在执行的查询
+        int timeoutSeconds = ((Number) timeoutSpinner.getValue()).intValue();
+        if (timeoutSeconds > 0 && task.query) {
+            final DatabaseTask<?> timedTask = task;
+            runningTimeout = timeoutScheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timedTask.timedOut = true;
+                    cancelStatement();
+                }
+            }, timeoutSeconds, TimeUnit.SECONDS);
+        }
+        
+        databaseExecutor.execute(task);
+    }
+    
+    private void finishTask(DatabaseTask<?> task) {
+        if (runningTask != task) {
+            return;
+        }
+        runningTask = null;
+        // 主连接上的任务可能修改了数据，之前缓存的查询结果失效
+        if (!task.readOnly) {
+            localWriteCount++;
+            if (searchIndex != null) {
+                searchIndex.requestUpdate();
+            }
+        }
+        if (task != idleMaintenanceTask) {
+            lastActivityMillis = System.currentTimeMillis();
+            idleMaintenanceDone = false;
+        }
+        if (runningTimeout != null) {
+            runningTimeout.cancel(false);
+            runningTimeout = null;
+        }
+        busyIndicator.setVisible(false);
+        busyIndicator.setIndeterminate(true);
+        setCursor(Cursor.getDefaultCursor());
+        updateUIState(connection != null);
+    }
+    
+    // 在忙碌指示器上显示任务进度，percent小于0表示进度未知
+    private void showTaskProgress(DatabaseTask<?> task, String text, int percent) {
+        if (runningTask != task) {
+            return;
+        }
+        busyIndicator.setString(text);
+        busyIndicator.setIndeterminate(percent < 0);
+        if (percent >= 0) {
+            busyIndicator.setValue(percent);
+        }
+    }
+    
+    private void cancelRunningTask() {
+        DatabaseTask<?> task = runningTask;
+        if (task == null) {
+            return;
+        }
+        log("正在取消: " + task.description);
+        cancelStatement();
+        task.cancel(true);
+    }
+    
+    // 调用sqlite3_interrupt中止正在执行的语句，可在任意线程调用
+    private void cancelStatement() {
+        Statement stmt = runningStatement;
+        if (stmt != null) {
+            try {
+                stmt.cancel();
+            } catch (SQLException ex) {
+                // 语句可能已经执行完毕
+            }
+        }
+    }
+    
+    // 在后台线程中创建可被取消的Statement
+    private Statement openStatement() throws SQLException {
+        return openStatement(connection);
+    }
+    
+    private Statement openStatement(Connection source) throws SQLException {
+        Statement stmt = source.createStatement();
+        runningStatement = stmt;
+        return stmt;
+    }
+    
+    // 事务之外读取使用只读连接池；事务中返回null，读取使用主连接以便看到未提交的修改
+    private ReadConnectionPool readPoolForReading() {
+        return inTransaction ? null : readPool;
+    }
+    
+    private void closeStatement(Statement stmt) {
+        runningStatement = null;
+        try {
+            stmt.close();
+        } catch (SQLException ex) {
+            // 忽略关闭时的错误
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(final String name) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+    
+    // 后台数据库任务：doInBackground在工作线程执行，succeeded/failed在事件调度线程回调
+    private abstract class DatabaseTask<T> extends SwingWorker<T, Void> {
+        private final String description;
+        // 执行查询的任务才受工具栏上的超时限制，导入、导出、脚本和维护等任务不会被中止
+        private final boolean query;
+        private volatile boolean timedOut;
+        private volatile boolean readOnly;
+        
+        DatabaseTask(String description) {
+            this(description, false);
+        }
+        
+        DatabaseTask(String description, boolean query) {
+            this.description = description;
+            this.query = query;
+        }
+        
+        // 任务没有修改数据时调用，保留结果缓存
+        protected void setReadOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+        }
+        
+        protected boolean isTimedOut() {
+            return timedOut;
+        }
+        
+        protected abstract void succeeded(T result);
+        
+        protected void failed(Throwable cause) {
+            String message = timedOut ? "执行超时，已中止" : cause.getMessage();
+            JOptionPane.showMessageDialog(SQLiteEditor.this, description + "失败: " + message, "错误", JOptionPane.ERROR_MESSAGE);
+            log(description + "失败: " + message);
+        }
+        
+        @Override
+        protected void done() {
+            finishTask(this);
+            if (isCancelled()) {
+                log(description + "已取消");
+                return;
+            }
+            try {
+                succeeded(get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                failed(ex.getCause());
+            }
+        }
+    }
+    
+    // 只读后台任务：事务之外借用只读连接在读取线程中执行，不占用主连接，也不禁用界面上的其他操作；
+    // 事务中在主连接的工作线程上排队执行
+    private abstract class ReadTask<T> extends SwingWorker<T, Void> {
+        private final String description;
+        private final ReadConnectionPool pool = readPoolForReading();
+        private final Connection primary = connection;
+        private final int generation = databaseGeneration;
+        
+        ReadTask(String description) {
+            this.description = description;
+        }
+        
+        protected abstract T read(Connection readConnection) throws Exception;
+        
+        protected abstract void succeeded(T result);
+        
+        void start() {
+            (pool != null ? readerExecutor : databaseExecutor).execute(this);
+        }
+        
+        @Override
+        protected T doInBackground() throws Exception {
+            if (pool == null) {
+                return read(primary);
+            }
+            Connection readConnection = pool.borrow();
+            try {
+                return read(readConnection);
+            } finally {
+                pool.release(readConnection);
+            }
+        }
+        
+        @Override
+        protected void done() {
+            // 已经打开了另一个数据库时，结果和错误（连接已关闭）都不再显示
+            if (isCancelled() || generation != databaseGeneration) {
+                return;
+            }
+            try {
+                succeeded(get());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                JOptionPane.showMessageDialog(SQLiteEditor.this, description + "失败: " + ex.getCause().getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+                log(description + "失败: " + ex.getCause().getMessage());
+            }
+        }
+    }
+    
+    // 后台查询的执行结果
+    private static class QueryResult {
+        private boolean hasResultSet;
+        private int rowsAffected;
+        private int rowCount;
+        // 分页结果的总行数还在统计，rowCount是已读取的行数
+        private boolean rowCountPending;
+        private TableModel model;
+        private boolean fromCache;
+        private final QueryMetrics.Sample sample = new QueryMetrics.Sample();
+    }
+    
+    private void showAboutDialog() {
+        JOptionPane.showMessageDialog(this,
+                "SQLite数据库编辑器 v1.0\n" +
+                "一个简单易用的SQLite数据库编辑工具\n" +
+                "支持SQL查询、表结构查看等功能\n\n" +
+                "© 2023 SQLite Editor",
+                "关于", JOptionPane.INFORMATION_MESSAGE);
+    }
+    
+    @Override
+    public void dispose() {
+        // 停止后台任务
+        cancelRunningTask();
+        timeoutScheduler.shutdownNow();
+        readerExecutor.shutdownNow();
+        databaseExecutor.shutdownNow();
+        try {
+            databaseExecutor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        
+        // 关闭数据库连接
+        if (searchIndex != null) {
+            searchIndex.close();
+        }
+        if (readPool != null) {
+            readPool.close();
+        }
+        try {
+            if (connection != null && !connection.isClosed()) {
+                // 如果在事务中，尝试回滚
+                if (inTransaction) {
+                    try {
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                        log("应用程序关闭，未提交的事务已回滚");
+                    } catch (SQLException ex) {
+                        log("回滚事务失败: " + ex.getMessage());
+                    }
+                }
+                connection.close();
+                log("数据库连接已关闭");
+            }
+        } catch (SQLException ex) {
+            ex.printStackTrace();
+        }
+        super.dispose();
+    }
+    
+    public static void main(String[] args) {
+        // 日志文件必须在SQLite驱动初始化SLF4J之前配置
+        OperationLog.configureFileLog();
+        
+        startNanos = System.nanoTime();
+        
+        // 在后台线程中加载驱动并解压、加载SQLite本机库，与界面构建并行进行；
+        // 打开数据库时驱动内部的锁保证等待加载完成
+        Thread loader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                try {
+                    Class.forName("org.sqlite.JDBC");
+                    org.sqlite.SQLiteJDBCLoader.initialize();
+                    nativeLoadNanos = System.nanoTime() - start;
+                } catch (final Throwable ex) {
+                    // 驱动确实未找到或本机库无法加载
+                    System.err.println("未找到SQLite JDBC驱动，请添加sqlite-jdbc.jar到类路径: " + ex);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            JOptionPane.showMessageDialog(null,
+                                    "未找到SQLite JDBC驱动，请添加sqlite-jdbc.jar到类路径\n" + ex,
+                                    "错误", JOptionPane.ERROR_MESSAGE);
+                            System.exit(1);
+                        }
+                    });
+                }
+            }
+        }, "sqlite-native-loader");
+        loader.setDaemon(true);
+        loader.start();
+        
+        // 在事件调度线程中运行GUI
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                new SQLiteEditor().setVisible(true);
+            }
+        });
+    }
+}
\ No newline at end of file
@@ -0,0 +1,273 @@
+package com.world.sqle;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 数据库结构（表、视图、列和索引）的内存模型。
+ * 通过pragma_table_info/pragma_index_list/pragma_index_info表值函数与sqlite_master连接，
+ * 用三条查询一次读入全部结构，而不是逐表、逐索引执行PRAGMA；只有PRAGMA schema_version变化时才重新读取，
+ * 因此能发现其他进程做的修改。读取到的快照不可变，可以在任意线程使用。
+ */
+public class SchemaCache {
+
+    public static final class Column {
+        private final String name;
+        private final String type;
+        private final boolean notNull;
+        private final String defaultValue;
+        private final int primaryKey;
+
+        Column(String name, String type, boolean notNull, String defaultValue, int primaryKey) {
+            this.name = name;
+            this.type = type;
+            this.notNull = notNull;
+            this.defaultValue = defaultValue;
+            this.primaryKey = primaryKey;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isNotNull() {
+            return notNull;
+        }
+
+        // 没有默认值时为null
+        public String getDefaultValue() {
+            return defaultValue;
+        }
+
+        // 按SQLite的类型亲和性规则判断是否为TEXT列（声明类型含CHAR、CLOB或TEXT，且不含INT）
+        public boolean hasTextAffinity() {
+            String upper = type == null ? "" : type.toUpperCase(Locale.ROOT);
+            return !upper.contains("INT") && (upper.contains("CHAR") || upper.contains("CLOB") || upper.contains("TEXT"));
+        }
+
+        // 在主键中的位置（从1开始），不是主键列时为0
+        public int getPrimaryKey() {
+            return primaryKey;
+        }
+    }
+
+    public static final class Index {
+        private final String name;
+        private final boolean unique;
+        private final String origin;
+        private final boolean partial;
+        private final List<String> columns = new ArrayList<>();
+
+        Index(String name, boolean unique, String origin, boolean partial) {
+            this.name = name;
+            this.unique = unique;
+            this.origin = origin;
+            this.partial = partial;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        // c: CREATE INDEX创建，u: UNIQUE约束，pk: 主键
+        public String getOrigin() {
+            return origin;
+        }
+
+        public boolean isPartial() {
+            return partial;
+        }
+
+        // 表达式索引的列为null
+        public List<String> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+    }
+
+    public static final class Table {
+        private final String name;
+        private final String type;
+        private final String sql;
+        private final List<Column> columns = new ArrayList<>();
+        private final List<Index> indexes = new ArrayList<>();
+
+        Table(String name, String type, String sql) {
+            this.name = name;
+            this.type = type;
+            this.sql = sql;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isView() {
+            return "view".equals(type);
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Column> getColumns() {
+            return Collections.unmodifiableList(columns);
+        }
+
+        public boolean isWithoutRowid() {
+            return sql != null && sql.toUpperCase(Locale.ROOT).replaceAll("\\s+", " ").matches("(?s).*\\)\\s?WITHOUT ROWID.*");
+        }
+
+        // 读取rowid使用的名称：rowid、_rowid_、oid中第一个没有被列名占用的；视图、WITHOUT ROWID表或三个名称都被占用时返回null
+        public String getRowidAlias() {
+            if (isView() || isWithoutRowid()) {
+                return null;
+            }
+            for (String alias : new String[]{"rowid", "_rowid_", "oid"}) {
+                boolean used = false;
+                for (Column column : columns) {
+                    used |= column.name.equalsIgnoreCase(alias);
+                }
+                if (!used) {
+                    return alias;
+                }
+            }
+            return null;
+        }
+
+        public List<Index> getIndexes() {
+            return Collections.unmodifiableList(indexes);
+        }
+    }
+
+    // 某一schema_version下的全部结构
+    public static final class Snapshot {
+        private final int schemaVersion;
+        // 按名称排序，键为小写名称
+        private final Map<String, Table> tables;
+
+        Snapshot(int schemaVersion, Map<String, Table> tables) {
+            this.schemaVersion = schemaVersion;
+            this.tables = tables;
+        }
+
+        public int getSchemaVersion() {
+            return schemaVersion;
+        }
+
+        // 不区分大小写，不存在时返回null
+        public Table getTable(String name) {
+            return name == null ? null : tables.get(name.toLowerCase(Locale.ROOT));
+        }
+
+        // 所有表名，然后是视图名
+        public List<String> getNames() {
+            List<String> names = new ArrayList<>();
+            List<String> views = new ArrayList<>();
+            for (Table table : tables.values()) {
+                (table.isView() ? views : names).add(table.name);
+            }
+            names.addAll(views);
+            return names;
+        }
+    }
+
+    private volatile Snapshot snapshot;
+
+    // 当前的快照，还没有读取过时为null
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // schema_version变化（或还没有读取过）时重新读取全部结构，否则直接返回缓存的快照
+    public synchronized Snapshot refresh(Connection connection) throws SQLException {
+        Statement stmt = connection.createStatement();
+        try {
+            int version = queryInt(stmt, "PRAGMA schema_version");
+            Snapshot current = snapshot;
+            if (current != null && current.schemaVersion == version) {
+                return current;
+            }
+            current = new Snapshot(version, load(stmt));
+            snapshot = current;
+            return current;
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private static Map<String, Table> load(Statement stmt) throws SQLException {
+        Map<String, Table> tables = new LinkedHashMap<>();
+        ResultSet resultSet = stmt.executeQuery("SELECT name, type, sql FROM sqlite_master"
+                + " WHERE type IN ('table', 'view') AND name NOT LIKE 'sqlite\\_%' ESCAPE '\\' ORDER BY name COLLATE NOCASE");
+        try {
+            while (resultSet.next()) {
+                Table table = new Table(resultSet.getString(1), resultSet.getString(2), resultSet.getString(3));
+                tables.put(table.name.toLowerCase(Locale.ROOT), table);
+            }
+        } finally {
+            resultSet.close();
+        }
+
+        resultSet = stmt.executeQuery("SELECT m.name, p.name, p.type, p.\"notnull\", p.dflt_value, p.pk"
+                + " FROM sqlite_master m JOIN pragma_table_info(m.name) p"
+                + " WHERE m.type IN ('table', 'view') ORDER BY m.name, p.cid");
+        try {
+            while (resultSet.next()) {
+                Table table = tables.get(resultSet.getString(1).toLowerCase(Locale.ROOT));
+                if (table != null) {
+                    table.columns.add(new Column(resultSet.getString(2), resultSet.getString(3),
+                            resultSet.getInt(4) == 1, resultSet.getString(5), resultSet.getInt(6)));
+                }
+            }
+        } finally {
+            resultSet.close();
+        }
+
+        resultSet = stmt.executeQuery("SELECT m.name, il.name, il.\"unique\", il.origin, il.partial, ii.name"
+                + " FROM sqlite_master m JOIN pragma_index_list(m.name) il LEFT JOIN pragma_index_info(il.name) ii"
+                + " WHERE m.type = 'table' ORDER BY m.name, il.seq, ii.seqno");
+        try {
+            Index index = null;
+            while (resultSet.next()) {
+                Table table = tables.get(resultSet.getString(1).toLowerCase(Locale.ROOT));
+                if (table == null) {
+                    continue;
+                }
+                String indexName = resultSet.getString(2);
+                if (index == null || !index.name.equals(indexName) || !table.indexes.contains(index)) {
+                    index = new Index(indexName, resultSet.getInt(3) == 1, resultSet.getString(4), resultSet.getInt(5) == 1);
+                    table.indexes.add(index);
+                }
+                index.columns.add(resultSet.getString(6));
+            }
+        } finally {
+            resultSet.close();
+        }
+        return tables;
+    }
+
+    private static int queryInt(Statement stmt, String sql) throws SQLException {
+        ResultSet resultSet = stmt.executeQuery(sql);
+        try {
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        } finally {
+            resultSet.close();
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.world.sqle;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+
+/**
+ * 逐条执行SQL脚本并记录每条语句的耗时和影响行数。
+ * 在自动提交模式下可以把连续的INSERT/UPDATE/DELETE/REPLACE语句放在一个事务中执行，
+ * 避免每条语句单独提交（每次提交都要等待磁盘同步）；脚本自己开启的事务中不做合并。
+ */
+public class ScriptRunner {
+    // 每个合并事务最多包含的语句数，0表示不限制
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    // 单条语句的执行结果
+    public static final class StatementResult {
+        private final long index;
+        private final int line;
+        private final String sql;
+        private final long nanos;
+        private final long rowsAffected;
+        private final long rowsReturned;
+        private final String error;
+
+        StatementResult(long index, int line, String sql, long nanos, long rowsAffected, long rowsReturned, String error) {
+            this.index = index;
+            this.line = line;
+            this.sql = sql;
+            this.nanos = nanos;
+            this.rowsAffected = rowsAffected;
+            this.rowsReturned = rowsReturned;
+            this.error = error;
+        }
+
+        public long getIndex() {
+            return index;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        // 查询语句为-1
+        public long getRowsAffected() {
+            return rowsAffected;
+        }
+
+        // 非查询语句为-1
+        public long getRowsReturned() {
+            return rowsReturned;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getRowsPerSecond() {
+            long rows = Math.max(rowsAffected, rowsReturned);
+            return rows <= 0 ? 0 : rows * 1000000000L / Math.max(1, nanos);
+        }
+    }
+
+    // 回调在执行脚本的线程中调用
+    public interface Listener {
+        void statementFinished(StatementResult result);
+
+        boolean isCancelled();
+    }
+
+    // 处理脚本中查询语句的结果（例如写到输出流），返回读取的行数；不设置时只统计行数
+    public interface ResultHandler {
+        long handle(ResultSet resultSet) throws SQLException, IOException;
+    }
+
+    // 整个脚本的执行统计
+    public static final class Summary {
+        private long statements;
+        private long failed;
+        private long rowsAffected;
+        private long transactions;
+        private long nanos;
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getRowsAffected() {
+            return rowsAffected;
+        }
+
+        // 合并提交的事务数
+        public long getTransactions() {
+            return transactions;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private final Connection connection;
+    private final Listener listener;
+    private boolean batchTransactions = true;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private boolean stopOnError = true;
+    private ResultHandler resultHandler;
+
+    private Statement statement;
+    private boolean batchOpen;
+    private int batchStatements;
+    // 脚本中的BEGIN/SAVEPOINT开启的事务
+    private boolean scriptTransaction;
+    private int savepointDepth;
+    private boolean openTransactionRolledBack;
+
+    public ScriptRunner(Connection connection, Listener listener) {
+        this.connection = connection;
+        this.listener = listener;
+    }
+
+    // 是否把连续的数据修改语句合并到一个事务中（只在连接处于自动提交模式时生效）
+    public void setBatchTransactions(boolean batchTransactions) {
+        this.batchTransactions = batchTransactions;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    // 为false时出错的语句只记录错误，继续执行后面的语句
+    public void setStopOnError(boolean stopOnError) {
+        this.stopOnError = stopOnError;
+    }
+
+    // 设置执行语句使用的Statement（例如可以被取消的Statement），不设置时自行创建
+    public void setStatement(Statement statement) {
+        this.statement = statement;
+    }
+
+    public void setResultHandler(ResultHandler resultHandler) {
+        this.resultHandler = resultHandler;
+    }
+
+    // 脚本结束（或出错停止）时自己开启的事务还没有提交，已被回滚
+    public boolean isOpenTransactionRolledBack() {
+        return openTransactionRolledBack;
+    }
+
+    // 执行脚本中的全部语句；stopOnError为true时遇到错误抛出SQLException，之前已执行的语句保持提交。
+    // 取消时抛出CancellationException
+    public Summary run(SqlScriptReader script) throws SQLException, IOException {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        boolean ownStatement = statement == null;
+        if (ownStatement) {
+            statement = connection.createStatement();
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        boolean canBatch = batchTransactions && autoCommit;
+        openTransactionRolledBack = false;
+        try {
+            String sql;
+            while ((sql = script.next()) != null) {
+                if (listener != null && listener.isCancelled() || Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("脚本执行已取消");
+                }
+                String keyword = firstKeyword(sql);
+                boolean dml = isDataModification(keyword);
+                if (batchOpen && (!dml || batchSize > 0 && batchStatements >= batchSize)) {
+                    commitBatch(summary);
+                }
+                if (canBatch && dml && !batchOpen && !scriptTransaction && savepointDepth == 0) {
+                    statement.execute("BEGIN");
+                    batchOpen = true;
+                    batchStatements = 0;
+                }
+
+                summary.statements++;
+                StatementResult result = execute(summary.statements, script.getStatementLine(), sql);
+                if (batchOpen) {
+                    batchStatements++;
+                }
+                trackTransaction(keyword, sql, result.error == null);
+                if (result.error != null) {
+                    summary.failed++;
+                } else if (result.rowsAffected > 0) {
+                    summary.rowsAffected += result.rowsAffected;
+                }
+                if (listener != null) {
+                    listener.statementFinished(result);
+                }
+                if (result.error != null && stopOnError) {
+                    // 与逐条自动提交一致：出错语句之前的修改保留
+                    if (batchOpen) {
+                        commitBatch(summary);
+                    }
+                    throw new SQLException("第 " + result.line + " 行的语句执行失败: " + result.error);
+                }
+            }
+            if (batchOpen) {
+                commitBatch(summary);
+            }
+            summary.nanos = System.nanoTime() - start;
+            return summary;
+        } catch (SQLException | IOException | RuntimeException ex) {
+            // 取消或出错时放弃尚未提交的合并事务
+            if (batchOpen) {
+                rollback();
+            }
+            throw ex;
+        } finally {
+            // 自动提交模式下不把脚本的未完成事务留给后续操作
+            if (autoCommit && (scriptTransaction || savepointDepth > 0)) {
+                rollback();
+                openTransactionRolledBack = true;
+            }
+            scriptTransaction = false;
+            savepointDepth = 0;
+            if (ownStatement) {
+                statement.close();
+                statement = null;
+            }
+        }
+    }
+
+    private StatementResult execute(long index, int line, String sql) throws IOException {
+        long start = System.nanoTime();
+        try {
+            boolean hasResultSet = statement.execute(sql);
+            long rowsAffected = -1;
+            long rowsReturned = -1;
+            if (hasResultSet) {
+                ResultSet resultSet = statement.getResultSet();
+                try {
+                    if (resultHandler != null) {
+                        rowsReturned = resultHandler.handle(resultSet);
+                    } else {
+                        // 脚本中的查询只统计行数
+                        rowsReturned = 0;
+                        while (resultSet.next()) {
+                            rowsReturned++;
+                        }
+                    }
+                } finally {
+                    resultSet.close();
+                }
+            } else {
+                rowsAffected = statement.getUpdateCount();
+            }
+            return new StatementResult(index, line, sql, System.nanoTime() - start, rowsAffected, rowsReturned, null);
+        } catch (SQLException ex) {
+            return new StatementResult(index, line, sql, System.nanoTime() - start, -1, -1, ex.getMessage());
+        }
+    }
+
+    private void commitBatch(Summary summary) throws SQLException {
+        batchOpen = false;
+        statement.execute("COMMIT");
+        summary.transactions++;
+    }
+
+    private void rollback() {
+        batchOpen = false;
+        try {
+            statement.execute("ROLLBACK");
+        } catch (SQLException ex) {
+            // 事务可能已被SQLite自动回滚
+        }
+    }
+
+    // 跟踪脚本自己管理的事务，期间不做合并
+    private void trackTransaction(String keyword, String sql, boolean succeeded) {
+        if (!succeeded) {
+            return;
+        }
+        if (keyword.equals("BEGIN")) {
+            scriptTransaction = true;
+        } else if (keyword.equals("COMMIT") || keyword.equals("END")) {
+            scriptTransaction = false;
+            savepointDepth = 0;
+        } else if (keyword.equals("ROLLBACK")) {
+            if (!sql.toUpperCase(Locale.ROOT).matches("ROLLBACK\\s+(TRANSACTION\\s+)?TO\\b.*")) {
+                scriptTransaction = false;
+                savepointDepth = 0;
+            }
+        } else if (keyword.equals("SAVEPOINT")) {
+            savepointDepth++;
+        } else if (keyword.equals("RELEASE")) {
+            savepointDepth = Math.max(0, savepointDepth - 1);
+        }
+    }
+
+    // 语句的第一个关键字（大写），只扫描开头的注释和空白，不对整条语句做词法分析
+    public static String firstKeyword(String sql) {
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else {
+                break;
+            }
+        }
+        int start = i;
+        while (i < length && SqlLexer.isIdentifierPart(sql.charAt(i))) {
+            i++;
+        }
+        return sql.substring(start, i).toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean isDataModification(String keyword) {
+        return keyword.equals("INSERT") || keyword.equals("UPDATE") || keyword.equals("DELETE") || keyword.equals("REPLACE");
+    }
+}
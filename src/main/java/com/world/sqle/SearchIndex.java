@@ -0,0 +1,651 @@
+package com.world.sqle;
+
+import org.sqlite.SQLiteConfig;
+
+import java.io.File;
+import java.sql.*;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全库搜索的FTS5索引，保存在数据库旁边的独立文件（<数据库>.search.db）中，不修改用户数据库的结构。
+ * 后台线程打开数据库并ATTACH索引文件，把各表TEXT亲和性列的内容写入trigram分词的FTS5表，任意子串都可以用索引查找。
+ * 每张表按rowid范围分块，记录每块内容的摘要；数据库变化（PRAGMA data_version或schema_version）后，
+ * 只重新读取最大rowid有变化（有新插入的行）的表，比较摘要并重写内容变化的块。删除和修改已有行不改变最大rowid，
+ * 要等到距上次读取所有表FULL_SCAN_INTERVAL_MINUTES分钟后的下一次全表检查才会反映到索引中。
+ * 索引线程每处理一块后休眠与处理时间相同的时长，最多占用一半的CPU时间。
+ * 搜索使用另一个只读连接直接查询索引文件，可以与索引线程并行。
+ * start、requestUpdate等调度方法只在this上同步，搜索连接另用readerLock同步，
+ * 在事件分派线程调用requestUpdate不会等待正在执行的搜索。
+ */
+public class SearchIndex {
+    public static final String FILE_SUFFIX = ".search.db";
+    public static final int DEFAULT_LIMIT = 200;
+    // 每块覆盖的rowid范围
+    private static final int CHUNK_ROWS = 1000;
+    // 定期检查数据库是否有变化（包括其他程序的修改）
+    private static final long CHECK_INTERVAL_SECONDS = 30;
+    // 请求更新后稍等再开始，合并连续的写操作
+    private static final long UPDATE_DELAY_MS = 2000;
+    private static final long MIN_PAUSE_MS = 5;
+    // 跳过未变化的表之后，隔多久重新读取所有表，发现删除和修改已有行的更新
+    private static final long FULL_SCAN_INTERVAL_MINUTES = 10;
+    // trigram分词器能用索引查找的最短字符数，更短的查询逐行匹配索引中的文本
+    private static final int MIN_MATCH_LENGTH = 3;
+    private static final int SNIPPET_CHARS = 60;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    // 索引状态变化时在索引线程回调
+    public interface Listener {
+        void statusChanged(String status);
+    }
+
+    // 一条搜索结果
+    public static final class Hit {
+        private final String table;
+        private final long rowid;
+        private final String snippet;
+
+        Hit(String table, long rowid, String snippet) {
+            this.table = table;
+            this.rowid = rowid;
+            this.snippet = snippet;
+        }
+
+        public String getTable() {
+            return table;
+        }
+
+        public long getRowid() {
+            return rowid;
+        }
+
+        // 匹配位置附近的文本，匹配部分用【】标出
+        public String getSnippet() {
+            return snippet;
+        }
+    }
+
+    private final File databaseFile;
+    private final File indexFile;
+    private final ConnectionProfile profile;
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "search-indexer");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+    private volatile Listener listener;
+    private volatile String status = "尚未建立索引";
+    private volatile boolean closed;
+    private volatile boolean rebuildRequested;
+    private boolean started;
+    private ScheduledFuture<?> pendingUpdate;
+
+    // 以下字段只在索引线程使用
+    private Connection writer;
+    private PreparedStatementCache statements;
+    private final SchemaCache schemaCache = new SchemaCache();
+    private long lastDataVersion = -1;
+    private int lastSchemaVersion = -1;
+    private long nextDocId;
+    // 每张表上次索引时的列和最大rowid，相同时跳过这张表
+    private final Map<String, String> tableStamps = new HashMap<>();
+    private boolean fullScanDue = true;
+    private long lastFullScanNanos;
+    private boolean skippedSinceFullScan;
+
+    // 搜索用的只读连接，由readerLock同步
+    private final Object readerLock = new Object();
+    private Connection reader;
+
+    private final Runnable updateTask = new Runnable() {
+        @Override
+        public void run() {
+            update();
+        }
+    };
+
+    public SearchIndex(File databaseFile, ConnectionProfile profile) {
+        this.databaseFile = databaseFile;
+        this.indexFile = indexFile(databaseFile);
+        this.profile = profile;
+    }
+
+    public static File indexFile(File databaseFile) {
+        return new File(databaseFile.getPath() + FILE_SUFFIX);
+    }
+
+    public File getIndexFile() {
+        return indexFile;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    // 开始在后台建立索引并定期检查更新，重复调用无效
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        worker.scheduleWithFixedDelay(updateTask, 0, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public synchronized boolean isStarted() {
+        return started;
+    }
+
+    // 本程序修改数据后调用，稍后检查并更新索引；索引还没有启动时不做任何事
+    public synchronized void requestUpdate() {
+        if (!started || closed || pendingUpdate != null && !pendingUpdate.isDone()) {
+            return;
+        }
+        pendingUpdate = worker.schedule(updateTask, UPDATE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // 清空索引后重新建立
+    public synchronized void rebuild() {
+        if (closed) {
+            return;
+        }
+        started = true;
+        rebuildRequested = true;
+        worker.execute(updateTask);
+    }
+
+    public void close() {
+        closed = true;
+        worker.shutdownNow();
+        try {
+            worker.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closeQuietly(writer);
+        synchronized (readerLock) {
+            closeQuietly(reader);
+            reader = null;
+        }
+    }
+
+    // ---------- 搜索 ----------
+
+    /**
+     * 查找包含text的行（不区分大小写），最多返回limit条。可在任意线程调用；索引还没有建立的部分查不到。
+     */
+    public List<Hit> search(String text, int limit) throws SQLException {
+        List<Hit> hits = new ArrayList<>();
+        if (text.trim().isEmpty() || !indexFile.exists()) {
+            return hits;
+        }
+        synchronized (readerLock) {
+            // 关闭后不再重新打开连接
+            if (closed) {
+                return hits;
+            }
+            return search(text, limit, hits);
+        }
+    }
+
+    private List<Hit> search(String text, int limit, List<Hit> hits) throws SQLException {
+        if (reader == null) {
+            // 只读打开的连接在没有其他连接时无法读取WAL模式的文件（不能创建-shm），改用query_only禁止写入
+            SQLiteConfig config = new SQLiteConfig();
+            config.setBusyTimeout(5000);
+            reader = DriverManager.getConnection("jdbc:sqlite:" + indexFile.getAbsolutePath(), config.toProperties());
+            Statement stmt = reader.createStatement();
+            try {
+                stmt.execute("PRAGMA query_only = 1");
+            } finally {
+                stmt.close();
+            }
+        }
+        boolean match = text.codePointCount(0, text.length()) >= MIN_MATCH_LENGTH;
+        String sql = match
+                ? "SELECT tbl, rid, snippet(docs, 0, '【', '】', '…', 48) FROM docs WHERE docs MATCH ? LIMIT ?"
+                : "SELECT tbl, rid, body FROM docs WHERE body LIKE ? ESCAPE '\\' LIMIT ?";
+        PreparedStatement stmt;
+        try {
+            stmt = reader.prepareStatement(sql);
+        } catch (SQLException ex) {
+            // 索引文件刚创建，表还没有建好
+            if (ex.getMessage() != null && ex.getMessage().contains("no such table")) {
+                return hits;
+            }
+            throw ex;
+        }
+        try {
+            // 整个查询作为一个短语，与LIKE '%text%'的含义相同
+            stmt.setString(1, match ? "\"" + text.replace("\"", "\"\"") + "\""
+                    : "%" + text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+            stmt.setInt(2, limit);
+            ResultSet resultSet = stmt.executeQuery();
+            try {
+                while (resultSet.next()) {
+                    String snippet = match ? resultSet.getString(3) : excerpt(resultSet.getString(3), text);
+                    hits.add(new Hit(resultSet.getString(1), resultSet.getLong(2), snippet.replace('\n', ' ')));
+                }
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        return hits;
+    }
+
+    // 短查询不能使用snippet()，在Java中截取匹配位置附近的文本
+    private static String excerpt(String body, String text) {
+        int index = body.toLowerCase(Locale.ROOT).indexOf(text.toLowerCase(Locale.ROOT));
+        if (index < 0) {
+            return body.length() > SNIPPET_CHARS ? body.substring(0, SNIPPET_CHARS) + "…" : body;
+        }
+        int start = Math.max(0, index - SNIPPET_CHARS / 2);
+        int end = Math.min(body.length(), index + text.length() + SNIPPET_CHARS / 2);
+        return (start > 0 ? "…" : "") + body.substring(start, index) + "【" + body.substring(index, index + text.length())
+                + "】" + body.substring(index + text.length(), end) + (end < body.length() ? "…" : "");
+    }
+
+    // ---------- 建立和更新索引（在索引线程执行） ----------
+
+    private void update() {
+        if (closed) {
+            return;
+        }
+        try {
+            openWriter();
+            if (rebuildRequested) {
+                rebuildRequested = false;
+                clear();
+                lastDataVersion = -1;
+                fullScanDue = true;
+            }
+            // 先记录版本再扫描，扫描期间发生的修改在下一次检查时处理
+            long dataVersion = queryLong("PRAGMA main.data_version");
+            int schemaVersion = (int) queryLong("PRAGMA main.schema_version");
+            long start = System.nanoTime();
+            // 上次跳过了未变化的表，到时间后即使没有新的修改也检查一遍所有表
+            boolean fullScan = fullScanDue || skippedSinceFullScan
+                    && start - lastFullScanNanos >= TimeUnit.MINUTES.toNanos(FULL_SCAN_INTERVAL_MINUTES);
+            boolean changed = dataVersion != lastDataVersion || schemaVersion != lastSchemaVersion;
+            if (!changed && !fullScan) {
+                return;
+            }
+            statements.validateSchema();
+            SchemaCache.Snapshot snapshot = schemaCache.refresh(writer);
+
+            Set<String> indexed = new HashSet<>();
+            int skipped = 0;
+            for (String name : snapshot.getNames()) {
+                SchemaCache.Table table = snapshot.getTable(name);
+                String alias = table.getRowidAlias();
+                List<String> textColumns = new ArrayList<>();
+                for (SchemaCache.Column column : table.getColumns()) {
+                    if (column.hasTextAffinity()) {
+                        textColumns.add(column.getName());
+                    }
+                }
+                // 视图、WITHOUT ROWID表和没有TEXT列的表不建索引
+                if (alias == null || textColumns.isEmpty()) {
+                    continue;
+                }
+                indexed.add(table.getName());
+                String stamp = tableStamp(table.getName(), alias, textColumns);
+                if (!fullScan && stamp.equals(tableStamps.get(table.getName()))) {
+                    skipped++;
+                    continue;
+                }
+                setStatus("正在索引 " + table.getName() + " …");
+                indexTable(table.getName(), alias, textColumns);
+                tableStamps.put(table.getName(), stamp);
+            }
+            tableStamps.keySet().retainAll(indexed);
+            for (String name : queryStrings("SELECT name FROM search.tables")) {
+                if (!indexed.contains(name)) {
+                    removeTable(name);
+                }
+            }
+
+            lastDataVersion = dataVersion;
+            lastSchemaVersion = schemaVersion;
+            if (fullScan) {
+                fullScanDue = false;
+                lastFullScanNanos = start;
+                skippedSinceFullScan = false;
+            } else if (skipped > 0) {
+                skippedSinceFullScan = true;
+            }
+            setStatus(String.format("已索引 %d 行（%d 张表），%s 更新，用时 %.1f 秒", queryLong("SELECT count(*) FROM search.entries"),
+                    indexed.size(), LocalTime.now().format(TIME_FORMAT), (System.nanoTime() - start) / 1e9));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException ex) {
+            if (!closed) {
+                setStatus("索引更新失败: " + ex.getMessage());
+            }
+        }
+    }
+
+    private void openWriter() throws SQLException {
+        if (writer != null) {
+            return;
+        }
+        SQLiteConfig config = profile != null ? profile.toConfig(false) : new SQLiteConfig();
+        writer = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.getAbsolutePath(), config.toProperties());
+        Statement stmt = writer.createStatement();
+        try {
+            stmt.execute("ATTACH DATABASE " + SqlUtil.quoteLiteral(indexFile.getAbsolutePath()) + " AS search");
+            // 搜索连接读取时不阻塞索引线程的写入
+            stmt.execute("PRAGMA search.journal_mode = WAL");
+            stmt.execute("CREATE TABLE IF NOT EXISTS search.tables(name TEXT PRIMARY KEY, columns TEXT NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS search.chunks(tbl TEXT NOT NULL, chunk INTEGER NOT NULL,"
+                    + " hash INTEGER NOT NULL, PRIMARY KEY(tbl, chunk)) WITHOUT ROWID");
+            stmt.execute("CREATE TABLE IF NOT EXISTS search.entries(tbl TEXT NOT NULL, rid INTEGER NOT NULL,"
+                    + " doc INTEGER NOT NULL, PRIMARY KEY(tbl, rid)) WITHOUT ROWID");
+            stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS search.docs USING fts5(body, tbl UNINDEXED, rid UNINDEXED,"
+                    + " tokenize = 'trigram')");
+        } finally {
+            stmt.close();
+        }
+        statements = new PreparedStatementCache(writer);
+        nextDocId = queryLong("SELECT coalesce(max(rowid), 0) + 1 FROM search.docs");
+    }
+
+    private void clear() throws SQLException {
+        Statement stmt = writer.createStatement();
+        try {
+            stmt.execute("BEGIN");
+            stmt.execute("DELETE FROM search.docs");
+            stmt.execute("DELETE FROM search.entries");
+            stmt.execute("DELETE FROM search.chunks");
+            stmt.execute("DELETE FROM search.tables");
+            stmt.execute("COMMIT");
+        } finally {
+            stmt.close();
+        }
+        nextDocId = 1;
+    }
+
+    // 按rowid分块读取一张表，内容摘要与上次不同的块重新写入索引，已不存在的块从索引中删除
+    private void indexTable(String table, String alias, List<String> columns) throws SQLException, InterruptedException {
+        String columnsKey = alias + ":" + String.join("\u0001", columns);
+        List<String> stored = queryStrings("SELECT columns FROM search.tables WHERE name = ?", table);
+        if (stored.isEmpty() || !stored.get(0).equals(columnsKey)) {
+            // 新表或列有变化时重新建立这张表的索引
+            removeTable(table);
+            PreparedStatement insert = statements.prepare("INSERT INTO search.tables(name, columns) VALUES (?, ?)");
+            insert.setString(1, table);
+            insert.setString(2, columnsKey);
+            insert.executeUpdate();
+        }
+
+        Map<Long, Long> storedHashes = new HashMap<>();
+        PreparedStatement hashes = statements.prepare("SELECT chunk, hash FROM search.chunks WHERE tbl = ?");
+        hashes.setString(1, table);
+        ResultSet resultSet = hashes.executeQuery();
+        try {
+            while (resultSet.next()) {
+                storedHashes.put(resultSet.getLong(1), resultSet.getLong(2));
+            }
+        } finally {
+            resultSet.close();
+        }
+
+        String quotedTable = SqlUtil.quoteIdentifier(table);
+        StringBuilder select = new StringBuilder("SELECT ").append(alias);
+        for (String column : columns) {
+            select.append(", ").append(SqlUtil.quoteIdentifier(column));
+        }
+        select.append(" FROM ").append(quotedTable).append(" WHERE ").append(alias).append(" BETWEEN ? AND ? ORDER BY ").append(alias);
+        String firstSql = "SELECT min(" + alias + ") FROM " + quotedTable + " WHERE " + alias + " >= ?";
+
+        long from = Long.MIN_VALUE;
+        while (true) {
+            if (closed || Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            long start = System.nanoTime();
+            PreparedStatement first = statements.prepare(firstSql);
+            first.setLong(1, from);
+            resultSet = first.executeQuery();
+            Long firstRowid;
+            try {
+                firstRowid = resultSet.next() && resultSet.getObject(1) != null ? resultSet.getLong(1) : null;
+            } finally {
+                resultSet.close();
+            }
+            if (firstRowid == null) {
+                break;
+            }
+            long chunk = Math.floorDiv(firstRowid, CHUNK_ROWS);
+            long low = chunk * CHUNK_ROWS;
+            long high = low > Long.MAX_VALUE - (CHUNK_ROWS - 1) ? Long.MAX_VALUE : low + CHUNK_ROWS - 1;
+
+            // 在事务之外读取，不在读取用户数据时持有索引文件的写锁
+            List<Long> rowids = new ArrayList<>();
+            List<String> bodies = new ArrayList<>();
+            long hash = 0xcbf29ce484222325L;
+            PreparedStatement rows = statements.prepare(select.toString());
+            rows.setLong(1, low);
+            rows.setLong(2, high);
+            resultSet = rows.executeQuery();
+            try {
+                StringBuilder body = new StringBuilder();
+                while (resultSet.next()) {
+                    long rowid = resultSet.getLong(1);
+                    body.setLength(0);
+                    for (int i = 0; i < columns.size(); i++) {
+                        String value = resultSet.getString(i + 2);
+                        if (value != null && !value.isEmpty()) {
+                            body.append(body.length() > 0 ? "\n" : "").append(value);
+                        }
+                    }
+                    hash = fnv(fnv(hash, rowid), body);
+                    if (body.length() > 0) {
+                        rowids.add(rowid);
+                        bodies.add(body.toString());
+                    }
+                }
+            } finally {
+                resultSet.close();
+            }
+
+            Long storedHash = storedHashes.remove(chunk);
+            if (storedHash == null || storedHash != hash) {
+                writeChunk(table, chunk, low, high, rowids, bodies, hash);
+            }
+            // 与处理时间相同的休眠，让出CPU和数据库
+            Thread.sleep(Math.max(MIN_PAUSE_MS, (System.nanoTime() - start) / 1000000));
+            if (high == Long.MAX_VALUE) {
+                break;
+            }
+            from = high + 1;
+        }
+
+        for (long chunk : storedHashes.keySet()) {
+            long low = chunk * CHUNK_ROWS;
+            long high = low > Long.MAX_VALUE - (CHUNK_ROWS - 1) ? Long.MAX_VALUE : low + CHUNK_ROWS - 1;
+            writeChunk(table, chunk, low, high, new ArrayList<Long>(), new ArrayList<String>(), null);
+        }
+    }
+
+    // 在一个事务中替换一块的索引内容；hash为null时删除这一块
+    private void writeChunk(String table, long chunk, long low, long high, List<Long> rowids, List<String> bodies, Long hash)
+            throws SQLException {
+        writer.setAutoCommit(false);
+        try {
+            PreparedStatement deleteDocs = statements.prepare("DELETE FROM search.docs WHERE rowid IN"
+                    + " (SELECT doc FROM search.entries WHERE tbl = ? AND rid BETWEEN ? AND ?)");
+            deleteDocs.setString(1, table);
+            deleteDocs.setLong(2, low);
+            deleteDocs.setLong(3, high);
+            deleteDocs.executeUpdate();
+            PreparedStatement deleteEntries = statements.prepare("DELETE FROM search.entries WHERE tbl = ? AND rid BETWEEN ? AND ?");
+            deleteEntries.setString(1, table);
+            deleteEntries.setLong(2, low);
+            deleteEntries.setLong(3, high);
+            deleteEntries.executeUpdate();
+
+            if (!rowids.isEmpty()) {
+                PreparedStatement insertDoc = statements.prepare("INSERT INTO search.docs(rowid, body, tbl, rid) VALUES (?, ?, ?, ?)");
+                PreparedStatement insertEntry = statements.prepare("INSERT INTO search.entries(tbl, rid, doc) VALUES (?, ?, ?)");
+                for (int i = 0; i < rowids.size(); i++) {
+                    long doc = nextDocId++;
+                    insertDoc.setLong(1, doc);
+                    insertDoc.setString(2, bodies.get(i));
+                    insertDoc.setString(3, table);
+                    insertDoc.setLong(4, rowids.get(i));
+                    insertDoc.addBatch();
+                    insertEntry.setString(1, table);
+                    insertEntry.setLong(2, rowids.get(i));
+                    insertEntry.setLong(3, doc);
+                    insertEntry.addBatch();
+                }
+                insertDoc.executeBatch();
+                insertEntry.executeBatch();
+            }
+
+            if (hash != null) {
+                PreparedStatement saveHash = statements.prepare("INSERT OR REPLACE INTO search.chunks(tbl, chunk, hash) VALUES (?, ?, ?)");
+                saveHash.setString(1, table);
+                saveHash.setLong(2, chunk);
+                saveHash.setLong(3, hash);
+                saveHash.executeUpdate();
+            } else {
+                PreparedStatement deleteHash = statements.prepare("DELETE FROM search.chunks WHERE tbl = ? AND chunk = ?");
+                deleteHash.setString(1, table);
+                deleteHash.setLong(2, chunk);
+                deleteHash.executeUpdate();
+            }
+            writer.commit();
+        } catch (SQLException ex) {
+            writer.rollback();
+            throw ex;
+        } finally {
+            writer.setAutoCommit(true);
+        }
+    }
+
+    private void removeTable(String table) throws SQLException {
+        writer.setAutoCommit(false);
+        try {
+            for (String sql : new String[]{
+                    "DELETE FROM search.docs WHERE rowid IN (SELECT doc FROM search.entries WHERE tbl = ?)",
+                    "DELETE FROM search.entries WHERE tbl = ?",
+                    "DELETE FROM search.chunks WHERE tbl = ?",
+                    "DELETE FROM search.tables WHERE name = ?"}) {
+                PreparedStatement stmt = statements.prepare(sql);
+                stmt.setString(1, table);
+                stmt.executeUpdate();
+            }
+            writer.commit();
+        } catch (SQLException ex) {
+            writer.rollback();
+            throw ex;
+        } finally {
+            writer.setAutoCommit(true);
+        }
+    }
+
+    // 列和最大rowid都相同时认为表没有变化；max(rowid)只查找表B树最右边的叶子，不随表的大小变慢，
+    // 不在扫描前用count(*)读取整张表（回滚日志模式下还会在扫描期间持有共享锁，阻塞编辑器的提交）
+    private String tableStamp(String table, String alias, List<String> columns) throws SQLException {
+        Statement stmt = writer.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery("SELECT max(" + alias + ") FROM " + SqlUtil.quoteIdentifier(table));
+            try {
+                resultSet.next();
+                return alias + ":" + String.join("\u0001", columns) + ":" + resultSet.getString(1);
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    // 64位FNV-1a摘要
+    private static long fnv(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * 0x100000001b3L;
+            value >>>= 8;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * 0x100000001b3L;
+        }
+        return (hash ^ 0xffff) * 0x100000001b3L;
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        Statement stmt = writer.createStatement();
+        try {
+            ResultSet resultSet = stmt.executeQuery(sql);
+            try {
+                return resultSet.next() ? resultSet.getLong(1) : 0;
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+    }
+
+    private List<String> queryStrings(String sql, String... parameters) throws SQLException {
+        List<String> values = new ArrayList<>();
+        PreparedStatement stmt = statements.prepare(sql);
+        PreparedStatementCache.bind(stmt, parameters);
+        ResultSet resultSet = stmt.executeQuery();
+        try {
+            while (resultSet.next()) {
+                values.add(resultSet.getString(1));
+            }
+        } finally {
+            resultSet.close();
+        }
+        return values;
+    }
+
+    private void setStatus(String status) {
+        this.status = status;
+        Listener current = listener;
+        if (current != null) {
+            current.statusChanged(status);
+        }
+    }
+
+    private static void closeQuietly(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // 忽略关闭错误
+        }
+    }
+}
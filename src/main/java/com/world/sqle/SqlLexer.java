@@ -0,0 +1,223 @@
+package com.world.sqle;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQLite方言的简单词法分析器：识别字符串、带引号的标识符、注释、数字、参数占位符和运算符。
+ * 用于在不解析语法的前提下找出语句中的参数，忽略字符串和注释中的字符。
+ */
+public final class SqlLexer {
+    public enum TokenType {
+        WORD, NUMBER, STRING, IDENTIFIER, PARAMETER, OPERATOR, SEMICOLON, COMMENT, WHITESPACE
+    }
+
+    public static final class Token {
+        private final TokenType type;
+        private final String text;
+        private final int start;
+
+        Token(TokenType type, String text, int start) {
+            this.type = type;
+            this.text = text;
+            this.start = start;
+        }
+
+        public TokenType getType() {
+            return type;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return start + text.length();
+        }
+
+        @Override
+        public String toString() {
+            return type + ":" + text;
+        }
+    }
+
+    private SqlLexer() {
+    }
+
+    public static List<Token> tokenize(String sql) {
+        List<Token> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            int start = i;
+            char c = sql.charAt(i);
+            TokenType type;
+            if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                type = TokenType.WHITESPACE;
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                while (i < length && sql.charAt(i) != '\n') {
+                    i++;
+                }
+                type = TokenType.COMMENT;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                type = TokenType.COMMENT;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+                type = TokenType.STRING;
+            } else if ((c == 'x' || c == 'X') && i + 1 < length && sql.charAt(i + 1) == '\'') {
+                // BLOB字面量 x'0A1B'
+                i = skipQuoted(sql, i + 1, '\'');
+                type = TokenType.STRING;
+            } else if (c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+                type = TokenType.IDENTIFIER;
+            } else if (c == '[') {
+                int end = sql.indexOf(']', i + 1);
+                i = end < 0 ? length : end + 1;
+                type = TokenType.IDENTIFIER;
+            } else if (c == '?') {
+                i++;
+                while (i < length && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+                type = TokenType.PARAMETER;
+            } else if ((c == ':' || c == '@' || c == '$') && i + 1 < length && isIdentifierPart(sql.charAt(i + 1))) {
+                i++;
+                while (i < length && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                type = TokenType.PARAMETER;
+            } else if (Character.isDigit(c) || c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1))) {
+                i = skipNumber(sql, i);
+                type = TokenType.NUMBER;
+            } else if (isIdentifierPart(c)) {
+                while (i < length && isIdentifierPart(sql.charAt(i))) {
+                    i++;
+                }
+                type = TokenType.WORD;
+            } else if (c == ';') {
+                i++;
+                type = TokenType.SEMICOLON;
+            } else {
+                i += operatorLength(sql, i);
+                type = TokenType.OPERATOR;
+            }
+            tokens.add(new Token(type, sql.substring(start, i), start));
+        }
+        return tokens;
+    }
+
+    // 按SQLite的编号规则返回各参数的名称，下标0对应参数1：
+    // ?为下一个编号，?NNN为指定编号，同名的:name/@name/$name共用第一次出现时的编号；没有出现的编号为"?N"
+    public static List<String> parameterNames(String sql) {
+        Map<Integer, String> byIndex = new LinkedHashMap<>();
+        Map<String, Integer> named = new LinkedHashMap<>();
+        int max = 0;
+        for (Token token : tokenize(sql)) {
+            if (token.type != TokenType.PARAMETER) {
+                continue;
+            }
+            String text = token.text;
+            int index;
+            if (text.equals("?")) {
+                index = max + 1;
+            } else if (text.charAt(0) == '?') {
+                try {
+                    index = Integer.parseInt(text.substring(1));
+                } catch (NumberFormatException ex) {
+                    continue;
+                }
+                if (index <= 0) {
+                    continue;
+                }
+                text = "?" + index;
+            } else if (named.containsKey(text)) {
+                continue;
+            } else {
+                index = max + 1;
+                named.put(text, index);
+            }
+            max = Math.max(max, index);
+            if (!byIndex.containsKey(index)) {
+                byIndex.put(index, text.equals("?") ? "?" + index : text);
+            }
+        }
+        List<String> names = new ArrayList<>();
+        for (int index = 1; index <= max; index++) {
+            String name = byIndex.get(index);
+            names.add(name != null ? name : "?" + index);
+        }
+        return names;
+    }
+
+    private static int skipQuoted(String sql, int i, char quote) {
+        int length = sql.length();
+        i++;
+        while (i < length) {
+            if (sql.charAt(i) == quote) {
+                // 连续两个引号表示引号本身
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return length;
+    }
+
+    private static int skipNumber(String sql, int i) {
+        int length = sql.length();
+        if (sql.startsWith("0x", i) || sql.startsWith("0X", i)) {
+            i += 2;
+            while (i < length && Character.digit(sql.charAt(i), 16) >= 0) {
+                i++;
+            }
+            return i;
+        }
+        while (i < length && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+            i++;
+        }
+        if (i < length && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E')) {
+            int exponent = i + 1;
+            if (exponent < length && (sql.charAt(exponent) == '+' || sql.charAt(exponent) == '-')) {
+                exponent++;
+            }
+            if (exponent < length && Character.isDigit(sql.charAt(exponent))) {
+                i = exponent;
+                while (i < length && Character.isDigit(sql.charAt(i))) {
+                    i++;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static int operatorLength(String sql, int i) {
+        if (i + 1 < sql.length()) {
+            String pair = sql.substring(i, i + 2);
+            if (pair.equals("<=") || pair.equals(">=") || pair.equals("<>") || pair.equals("!=")
+                    || pair.equals("==") || pair.equals("||") || pair.equals("<<") || pair.equals(">>")
+                    || pair.equals("->")) {
+                return sql.startsWith("->>", i) ? 3 : 2;
+            }
+        }
+        return 1;
+    }
+
+    public static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c > 0x7F;
+    }
+}
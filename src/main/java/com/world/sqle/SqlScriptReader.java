@@ -0,0 +1,201 @@
+package com.world.sqle;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * 从字符流中逐条读取SQL语句，不把整个脚本载入内存。
+ * 能识别字符串、带引号的标识符和注释中的分号；CREATE TRIGGER语句在触发器体的END之后才结束
+ * （触发器体中CASE ... END的END不算）。只包含空白和注释的语句会被跳过。
+ */
+public class SqlScriptReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private long charsConsumed;
+    private int line = 1;
+    private int statementLine;
+
+    private final StringBuilder statement = new StringBuilder();
+    private final StringBuilder word = new StringBuilder();
+    // 语句开头的关键字，用于识别CREATE [TEMP] TRIGGER
+    private int wordCount;
+    private boolean createSeen;
+    private boolean trigger;
+    private int caseDepth;
+    private boolean triggerEnded;
+
+    public SqlScriptReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // 已读取的字符数
+    public long getCharsConsumed() {
+        return charsConsumed;
+    }
+
+    // 上一次返回的语句第一个有效字符所在的行号（从1开始）
+    public int getStatementLine() {
+        return statementLine;
+    }
+
+    // 返回下一条语句（不含结尾的分号），脚本结束时返回null
+    public String next() throws IOException {
+        statement.setLength(0);
+        word.setLength(0);
+        wordCount = 0;
+        createSeen = false;
+        trigger = false;
+        caseDepth = 0;
+        triggerEnded = false;
+        boolean hasContent = false;
+
+        int c;
+        while ((c = read()) >= 0) {
+            char ch = (char) c;
+            if (ch == '\uFEFF' && charsConsumed == 1) {
+                // 文件开头的BOM
+                continue;
+            }
+            if (ch == '-' && peek() == '-') {
+                endWord();
+                statement.append(ch);
+                while ((c = read()) >= 0) {
+                    statement.append((char) c);
+                    if (c == '\n') {
+                        break;
+                    }
+                }
+                continue;
+            }
+            if (ch == '/' && peek() == '*') {
+                endWord();
+                statement.append(ch).append((char) read());
+                int previous = 0;
+                while ((c = read()) >= 0) {
+                    statement.append((char) c);
+                    if (previous == '*' && c == '/') {
+                        break;
+                    }
+                    previous = c;
+                }
+                continue;
+            }
+            if (Character.isWhitespace(ch)) {
+                endWord();
+                if (hasContent) {
+                    statement.append(ch);
+                }
+                continue;
+            }
+
+            if (!hasContent) {
+                hasContent = true;
+                // 丢弃语句前的注释
+                statement.setLength(0);
+                statementLine = line;
+            }
+            if (ch == '\'' || ch == '"' || ch == '`' || ch == '[') {
+                endWord();
+                char close = ch == '[' ? ']' : ch;
+                statement.append(ch);
+                while ((c = read()) >= 0) {
+                    statement.append((char) c);
+                    if (c == close) {
+                        break;
+                    }
+                }
+                continue;
+            }
+            if (ch == ';') {
+                endWord();
+                if (trigger && !triggerEnded) {
+                    statement.append(ch);
+                    continue;
+                }
+                return statement.toString().trim();
+            }
+            if (SqlLexer.isIdentifierPart(ch)) {
+                word.append(ch);
+            } else {
+                endWord();
+            }
+            statement.append(ch);
+        }
+        endWord();
+        return hasContent ? statement.toString().trim() : null;
+    }
+
+    private void endWord() {
+        if (word.length() == 0) {
+            return;
+        }
+        String keyword = word.toString().toUpperCase(Locale.ROOT);
+        word.setLength(0);
+        wordCount++;
+        if (wordCount == 1) {
+            createSeen = keyword.equals("CREATE");
+        } else if (createSeen && !trigger && wordCount <= 3) {
+            if (keyword.equals("TRIGGER")) {
+                trigger = true;
+            } else if (!keyword.equals("TEMP") && !keyword.equals("TEMPORARY")) {
+                createSeen = false;
+            }
+        } else if (trigger) {
+            if (keyword.equals("CASE")) {
+                caseDepth++;
+                triggerEnded = false;
+            } else if (keyword.equals("END")) {
+                if (caseDepth > 0) {
+                    caseDepth--;
+                } else {
+                    triggerEnded = true;
+                }
+            } else {
+                triggerEnded = false;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        char c = buffer[position++];
+        charsConsumed++;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    private int peek() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int n;
+        do {
+            n = reader.read(buffer, 0, buffer.length);
+        } while (n == 0);
+        if (n < 0) {
+            return false;
+        }
+        position = 0;
+        limit = n;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,19 @@
+package com.world.sqle;
+
+/**
+ * SQL文本处理的辅助方法。
+ */
+public final class SqlUtil {
+    private SqlUtil() {
+    }
+
+    // 用双引号包围标识符（表名、列名），内部的双引号加倍转义
+    public static String quoteIdentifier(String name) {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+
+    // 用单引号包围字符串字面量
+    public static String quoteLiteral(String text) {
+        return "'" + text.replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,434 @@
+package com.world.sqle;
+
+import javax.swing.table.AbstractTableModel;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 浏览和编辑一张表的表格模型，按键（rowid或WITHOUT ROWID表的主键）分页：
+ * 下一页为 WHERE key > 本页最后一行的键 ORDER BY key LIMIT n，上一页反向读取，
+ * 无论翻到多深都只读取一页，不像OFFSET那样要跳过前面的所有行。
+ * 修改的单元格先保存在内存中（按行键记录，翻页后仍然保留），保存时在一个事务中用缓存的UPDATE预编译语句批量写入。
+ * 页面读取和保存在后台线程调用，其余方法只在事件调度线程调用。
+ */
+public class TableBrowserModel extends AbstractTableModel {
+    public static final int DEFAULT_PAGE_SIZE = 200;
+
+    // 一页数据：每行的键和各列的值
+    public static final class Page {
+        private final List<Object[]> keys;
+        private final List<Object[]> rows;
+
+        Page(List<Object[]> keys, List<Object[]> rows) {
+            this.keys = keys;
+            this.rows = rows;
+        }
+
+        public int size() {
+            return rows.size();
+        }
+    }
+
+    // 待保存的修改：行键及该行被修改的列和新值
+    public static final class Change {
+        private final Object[] key;
+        private final Map<Integer, Object> values;
+
+        Change(Object[] key, Map<Integer, Object> values) {
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    private final String tableName;
+    private final String[] columnNames;
+    // 分页用的键列：rowid别名，或WITHOUT ROWID表的主键列
+    private final String[] keyColumns;
+    // 键是否是额外读取的rowid（不在columnNames中）
+    private final boolean rowidKey;
+    // 键列在columnNames中的位置，rowidKey时为空
+    private final int[] keyIndexes;
+    private final int pageSize;
+
+    private Page page = new Page(Collections.<Object[]>emptyList(), Collections.<Object[]>emptyList());
+    // 行键（转为List以便比较）到修改的列和新值
+    private final Map<List<Object>, Object[]> dirtyKeys = new LinkedHashMap<>();
+    private final Map<List<Object>, Map<Integer, Object>> dirty = new LinkedHashMap<>();
+
+    public TableBrowserModel(SchemaCache.Table table) {
+        this(table, DEFAULT_PAGE_SIZE);
+    }
+
+    public TableBrowserModel(SchemaCache.Table table, int pageSize) {
+        if (table.isView()) {
+            throw new IllegalArgumentException("视图不能按键分页浏览: " + table.getName());
+        }
+        this.tableName = table.getName();
+        this.pageSize = pageSize;
+        List<SchemaCache.Column> columns = table.getColumns();
+        columnNames = new String[columns.size()];
+        TreeMap<Integer, Integer> primaryKey = new TreeMap<>();
+        for (int i = 0; i < columnNames.length; i++) {
+            columnNames[i] = columns.get(i).getName();
+            if (columns.get(i).getPrimaryKey() > 0) {
+                primaryKey.put(columns.get(i).getPrimaryKey(), i);
+            }
+        }
+        String alias = table.getRowidAlias();
+        if (alias != null) {
+            rowidKey = true;
+            keyColumns = new String[]{alias};
+            keyIndexes = new int[0];
+        } else {
+            if (primaryKey.isEmpty()) {
+                throw new IllegalArgumentException("表没有可用于分页的rowid或主键: " + tableName);
+            }
+            rowidKey = false;
+            keyColumns = new String[primaryKey.size()];
+            keyIndexes = new int[primaryKey.size()];
+            int k = 0;
+            for (int index : primaryKey.values()) {
+                keyColumns[k] = columnNames[index];
+                keyIndexes[k++] = index;
+            }
+        }
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    // 分页键的描述，例如"rowid"或"(a, b)"
+    public String getKeyDescription() {
+        return keyColumns.length == 1 ? keyColumns[0] : "(" + String.join(", ", keyColumns) + ")";
+    }
+
+    // ---------- 分页读取（在后台线程调用） ----------
+
+    public Page readFirst(Connection connection) throws SQLException {
+        return read(connection, null, true);
+    }
+
+    public Page readLast(Connection connection) throws SQLException {
+        return read(connection, null, false);
+    }
+
+    // 当前页之后的一页；当前页为空时读取第一页
+    public Page readNext(Connection connection, Page current) throws SQLException {
+        return current.size() == 0 ? readFirst(connection) : read(connection, current.keys.get(current.size() - 1), true);
+    }
+
+    public Page readPrevious(Connection connection, Page current) throws SQLException {
+        return current.size() == 0 ? readLast(connection) : read(connection, current.keys.get(0), false);
+    }
+
+    // 从当前页第一行起重新读取一页，用于保存修改后刷新
+    public Page reload(Connection connection, Page current) throws SQLException {
+        return current.size() == 0 ? readFirst(connection) : read(connection, current.keys.get(0), true, true);
+    }
+
+    private Page read(Connection connection, Object[] from, boolean forward) throws SQLException {
+        return read(connection, from, forward, false);
+    }
+
+    // from为null时从头（forward）或尾部读取；反向读取的结果按键升序返回
+    private Page read(Connection connection, Object[] from, boolean forward, boolean inclusive) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        if (rowidKey) {
+            sql.append(keyColumns[0]).append(", ");
+        }
+        sql.append("* FROM ").append(SqlUtil.quoteIdentifier(tableName));
+        String keyList = quotedKeyList();
+        if (from != null) {
+            sql.append(" WHERE ").append(keyList).append(forward ? " >" : " <").append(inclusive ? "= " : " ")
+                    .append(placeholders(keyColumns.length));
+        }
+        sql.append(" ORDER BY ");
+        for (int i = 0; i < keyColumns.length; i++) {
+            sql.append(i > 0 ? ", " : "").append(quote(keyColumns[i])).append(forward ? "" : " DESC");
+        }
+        sql.append(" LIMIT ").append(pageSize);
+
+        List<Object[]> keys = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        PreparedStatement stmt = connection.prepareStatement(sql.toString());
+        try {
+            if (from != null) {
+                for (int i = 0; i < from.length; i++) {
+                    stmt.setObject(i + 1, from[i]);
+                }
+            }
+            ResultSet resultSet = stmt.executeQuery();
+            try {
+                int offset = rowidKey ? 1 : 0;
+                while (resultSet.next()) {
+                    Object[] row = new Object[columnNames.length];
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = resultSet.getObject(i + 1 + offset);
+                    }
+                    Object[] key = new Object[keyColumns.length];
+                    if (rowidKey) {
+                        key[0] = resultSet.getObject(1);
+                    } else {
+                        for (int i = 0; i < key.length; i++) {
+                            key[i] = row[keyIndexes[i]];
+                        }
+                    }
+                    keys.add(key);
+                    rows.add(row);
+                }
+            } finally {
+                resultSet.close();
+            }
+        } finally {
+            stmt.close();
+        }
+        if (!forward) {
+            Collections.reverse(keys);
+            Collections.reverse(rows);
+        }
+        return new Page(keys, rows);
+    }
+
+    private String quotedKeyList() {
+        if (keyColumns.length == 1) {
+            return quote(keyColumns[0]);
+        }
+        StringBuilder list = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.length; i++) {
+            list.append(i > 0 ? ", " : "").append(quote(keyColumns[i]));
+        }
+        return list.append(')').toString();
+    }
+
+    private String quote(String column) {
+        // rowid别名不能加引号，否则会被当作普通列名
+        return rowidKey ? column : SqlUtil.quoteIdentifier(column);
+    }
+
+    private static String placeholders(int count) {
+        if (count == 1) {
+            return "?";
+        }
+        StringBuilder list = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            list.append(i > 0 ? ", ?" : "?");
+        }
+        return list.append(')').toString();
+    }
+
+    // ---------- 当前页和修改（在事件调度线程调用） ----------
+
+    public Page getPage() {
+        return page;
+    }
+
+    public void setPage(Page page) {
+        this.page = page;
+        fireTableDataChanged();
+    }
+
+    // 当前页第一行和最后一行的键，空页时返回null
+    public String describeRange() {
+        if (page.size() == 0) {
+            return null;
+        }
+        return formatKey(page.keys.get(0)) + " – " + formatKey(page.keys.get(page.size() - 1));
+    }
+
+    private static String formatKey(Object[] key) {
+        return key.length == 1 ? String.valueOf(key[0]) : Arrays.toString(key);
+    }
+
+    @Override
+    public int getRowCount() {
+        return page.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    // 键列和BLOB不能直接编辑
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        for (int index : keyIndexes) {
+            if (index == column) {
+                return false;
+            }
+        }
+        return !(page.rows.get(row)[column] instanceof byte[]);
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Map<Integer, Object> changes = dirty.get(Arrays.asList(page.keys.get(row)));
+        if (changes != null && changes.containsKey(column)) {
+            return changes.get(column);
+        }
+        return page.rows.get(row)[column];
+    }
+
+    // 编辑器提交的文本；与原值相同时撤销该单元格的修改。值按文本绑定，由SQLite按列的类型亲和性转换
+    @Override
+    public void setValueAt(Object value, int row, int column) {
+        Object original = page.rows.get(row)[column];
+        if (value instanceof String && ((String) value).isEmpty() && original == null) {
+            value = null;
+        }
+        Object[] key = page.keys.get(row);
+        List<Object> keyList = Arrays.asList(key);
+        Map<Integer, Object> changes = dirty.get(keyList);
+        boolean unchanged = value == null ? original == null : original != null && String.valueOf(original).equals(String.valueOf(value));
+        if (unchanged) {
+            if (changes != null) {
+                changes.remove(column);
+                if (changes.isEmpty()) {
+                    dirty.remove(keyList);
+                    dirtyKeys.remove(keyList);
+                }
+            }
+        } else {
+            if (changes == null) {
+                changes = new TreeMap<>();
+                dirty.put(keyList, changes);
+                dirtyKeys.put(keyList, key);
+            }
+            changes.put(column, value);
+        }
+        fireTableCellUpdated(row, column);
+    }
+
+    public boolean isDirty(int row, int column) {
+        Map<Integer, Object> changes = dirty.get(Arrays.asList(page.keys.get(row)));
+        return changes != null && changes.containsKey(column);
+    }
+
+    // 修改过的单元格数
+    public int getDirtyCount() {
+        int count = 0;
+        for (Map<Integer, Object> changes : dirty.values()) {
+            count += changes.size();
+        }
+        return count;
+    }
+
+    public void discardChanges() {
+        dirty.clear();
+        dirtyKeys.clear();
+        fireTableDataChanged();
+    }
+
+    // 待保存修改的副本，交给后台线程写入
+    public List<Change> snapshotChanges() {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<List<Object>, Map<Integer, Object>> entry : dirty.entrySet()) {
+            changes.add(new Change(dirtyKeys.get(entry.getKey()), new TreeMap<>(entry.getValue())));
+        }
+        return changes;
+    }
+
+    // 保存成功后移除已写入的修改；保存期间又被改动的单元格保留
+    public void changesSaved(List<Change> saved) {
+        for (Change change : saved) {
+            List<Object> keyList = Arrays.asList(change.key);
+            Map<Integer, Object> current = dirty.get(keyList);
+            if (current == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, Object> value : change.values.entrySet()) {
+                Object now = current.get(value.getKey());
+                if (now == value.getValue() || now != null && now.equals(value.getValue())) {
+                    current.remove(value.getKey());
+                }
+            }
+            if (current.isEmpty()) {
+                dirty.remove(keyList);
+                dirtyKeys.remove(keyList);
+            }
+        }
+    }
+
+    // ---------- 保存（在主连接的工作线程调用） ----------
+
+    /**
+     * 在一个事务中写入修改并返回更新的行数：修改了相同列的行共用一条UPDATE语句，从statementCache获取并批量执行。
+     * 连接处于自动提交模式时自己开启并提交事务，出错时回滚；已在事务中时只执行语句，由调用者提交或回滚。
+     */
+    public int saveChanges(Connection connection, PreparedStatementCache statementCache, List<Change> changes)
+            throws SQLException {
+        Map<String, List<Change>> bySql = new LinkedHashMap<>();
+        for (Change change : changes) {
+            String sql = updateSql(change.values.keySet());
+            List<Change> group = bySql.get(sql);
+            if (group == null) {
+                group = new ArrayList<>();
+                bySql.put(sql, group);
+            }
+            group.add(change);
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        if (autoCommit) {
+            connection.setAutoCommit(false);
+        }
+        try {
+            int updated = 0;
+            for (Map.Entry<String, List<Change>> entry : bySql.entrySet()) {
+                PreparedStatement stmt = statementCache.prepare(entry.getKey());
+                for (Change change : entry.getValue()) {
+                    int index = 1;
+                    for (Object value : change.values.values()) {
+                        stmt.setObject(index++, value);
+                    }
+                    for (Object keyValue : change.key) {
+                        stmt.setObject(index++, keyValue);
+                    }
+                    stmt.addBatch();
+                }
+                for (int count : stmt.executeBatch()) {
+                    updated += Math.max(0, count);
+                }
+            }
+            if (autoCommit) {
+                connection.commit();
+            }
+            return updated;
+        } catch (SQLException | RuntimeException ex) {
+            if (autoCommit) {
+                connection.rollback();
+            }
+            throw ex;
+        } finally {
+            if (autoCommit) {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    private String updateSql(Iterable<Integer> columns) {
+        StringBuilder sql = new StringBuilder("UPDATE ").append(SqlUtil.quoteIdentifier(tableName)).append(" SET ");
+        boolean first = true;
+        for (int column : columns) {
+            sql.append(first ? "" : ", ").append(SqlUtil.quoteIdentifier(columnNames[column])).append(" = ?");
+            first = false;
+        }
+        sql.append(" WHERE ");
+        for (int i = 0; i < keyColumns.length; i++) {
+            sql.append(i > 0 ? " AND " : "").append(quote(keyColumns[i])).append(" = ?");
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package com.world.sqle;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * 把字符直接编码为UTF-8写入大缓冲区，缓冲区写满后整块写入通道。
+ * 与平台默认编码无关，也不经过Writer/OutputStream的逐层缓冲；也可以写入小端序的二进制数据。
+ */
+public class Utf8ChannelWriter implements Closeable, Flushable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer byteBuffer;
+    private int position;
+    private long bytesWritten;
+
+    public Utf8ChannelWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public Utf8ChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = new byte[bufferSize];
+        this.byteBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    // 已写出（包括缓冲区中）的字节数
+    public long getBytesWritten() {
+        return bytesWritten + position;
+    }
+
+    public void write(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (position == buffer.length) {
+                    drain();
+                }
+                buffer[position++] = (byte) c;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+            }
+        }
+    }
+
+    public void write(char c) throws IOException {
+        if (c < 0x80) {
+            if (position == buffer.length) {
+                drain();
+            }
+            buffer[position++] = (byte) c;
+        } else {
+            writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+        }
+    }
+
+    private void writeCodePoint(int codePoint) throws IOException {
+        if (buffer.length - position < 4) {
+            drain();
+        }
+        if (codePoint < 0x80) {
+            buffer[position++] = (byte) codePoint;
+        } else if (codePoint < 0x800) {
+            buffer[position++] = (byte) (0xC0 | (codePoint >> 6));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (codePoint < 0x10000) {
+            buffer[position++] = (byte) (0xE0 | (codePoint >> 12));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else {
+            buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+        }
+    }
+
+    // 二进制数据按小端序写入，便于用内存映射的ByteBuffer读回
+    public void writeByte(int value) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    public void writeInt(int value) throws IOException {
+        if (buffer.length - position < 4) {
+            drain();
+        }
+        for (int i = 0; i < 4; i++) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (buffer.length - position < 8) {
+            drain();
+        }
+        for (int i = 0; i < 8; i++) {
+            buffer[position++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    public void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int n = Math.min(length, buffer.length - position);
+            System.arraycopy(bytes, offset, buffer, position, n);
+            position += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    // 把缓冲区内容写入通道
+    private void drain() throws IOException {
+        byteBuffer.clear();
+        byteBuffer.limit(position);
+        while (byteBuffer.hasRemaining()) {
+            channel.write(byteBuffer);
+        }
+        bytesWritten += position;
+        position = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (position > 0) {
+            drain();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}